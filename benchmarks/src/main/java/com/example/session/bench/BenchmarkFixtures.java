@@ -0,0 +1,34 @@
+package com.example.session.bench;
+
+import com.example.session.SessionRecord;
+import java.util.Map;
+
+final class BenchmarkFixtures {
+    static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36";
+    static final String JA4 = "t13d1516h2_8daaf6152771_02713d6af862";
+    static final byte[] TLS_SESSION_ID = new byte[32];
+    static final Map<String, String> CLIENT_SIGNALS = Map.of(
+            "timezone", "Asia/Taipei",
+            "language", "zh-TW",
+            "platform", "Win32",
+            "screen", "1920x1080x24",
+            "hardwareConcurrency", "8",
+            "webglVendor", "Google Inc. (NVIDIA)",
+            "webglRenderer", "ANGLE (NVIDIA, NVIDIA GeForce RTX 3060 Direct3D11 vs_5_0 ps_5_0, D3D11)",
+            "canvasHash", "4f3c2a8e9b1d7c6f5e4a3b2c1d0e9f8a7b6c5d4e3f2a1b0c9d8e7f6a5b4c3d2e1");
+
+    static {
+        for (int i = 0; i < TLS_SESSION_ID.length; i++) {
+            TLS_SESSION_ID[i] = (byte) (i * 37);
+        }
+    }
+
+    private BenchmarkFixtures() {
+    }
+
+    static SessionRecord sessionRecord(String sessionId) {
+        return SessionRecord.create(sessionId, "analyst", JA4, "c0ffee4a11ce", USER_AGENT, "198.51.100.7",
+                CLIENT_SIGNALS);
+    }
+}
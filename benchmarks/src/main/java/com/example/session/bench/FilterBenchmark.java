@@ -0,0 +1,89 @@
+package com.example.session.bench;
+
+import com.example.session.FingerprintValidationFilter;
+import com.example.session.InMemorySessionStore;
+import com.example.session.RedisManager;
+import com.example.session.RedisSessionStore;
+import com.example.session.SessionConstants;
+import com.example.session.SessionSecurityRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    // Only "memory" runs by default. "redis" talks to the instance configured through
+    // REDIS_HOST / REDIS_PORT and is opted into with -p store=redis (or -p store=memory,redis).
+    @Param({"memory"})
+    public String store;
+
+    private final FingerprintValidationFilter filter = new FingerprintValidationFilter();
+    private StubHttpServletRequest request;
+    private StubHttpServletResponse response;
+    private String sessionId;
+    private InMemorySessionStore memoryStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("redis".equals(store)) {
+            if (!RedisManager.isEnabled()) {
+                throw new IllegalStateException("Redis is not configured; set REDIS_HOST/REDIS_PORT");
+            }
+            SessionSecurityRepository.configure(new RedisSessionStore());
+        } else {
+            memoryStore = new InMemorySessionStore();
+            SessionSecurityRepository.configure(memoryStore);
+        }
+        sessionId = UUID.randomUUID().toString();
+        SessionSecurityRepository.persistSession(BenchmarkFixtures.sessionRecord(sessionId));
+
+        StubHttpSession session = new StubHttpSession(sessionId);
+        session.setAttribute(SessionConstants.SESSION_FINGERPRINT_ATTR, BenchmarkFixtures.JA4);
+        request = new StubHttpServletRequest("/api/profile", "198.51.100.7")
+                .header("X-JA4-Fingerprint", BenchmarkFixtures.JA4)
+                .header("User-Agent", BenchmarkFixtures.USER_AGENT)
+                .session(session);
+        response = new StubHttpServletResponse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SessionSecurityRepository.deleteSession(sessionId);
+        if (memoryStore != null) {
+            // stops the expiry ticker so it does not outlive the trial
+            memoryStore.close();
+            memoryStore = null;
+        }
+        SessionSecurityRepository.configure(null);
+    }
+
+    @Benchmark
+    public int validRequest() throws IOException, ServletException {
+        response.reset(200);
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return response.getStatusCode();
+    }
+}
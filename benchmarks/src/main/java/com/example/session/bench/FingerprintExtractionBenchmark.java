@@ -0,0 +1,57 @@
+package com.example.session.bench;
+
+import com.example.session.Ja4FingerprintExtractor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingerprintExtractionBenchmark {
+    private StubHttpServletRequest headerRequest;
+    private StubHttpServletRequest tlsRequest;
+    private StubHttpServletRequest keepAliveRequest;
+
+    @Setup
+    public void setUp() {
+        headerRequest = new StubHttpServletRequest("/api/profile", "198.51.100.7")
+                .header("X-JA4-Fingerprint", "t13d1516h2_8daaf6152771_02713d6af862")
+                .header("User-Agent", BenchmarkFixtures.USER_AGENT);
+        tlsRequest = new StubHttpServletRequest("/api/profile", "198.51.100.7")
+                .header("X-Forwarded-For", "203.0.113.10, 10.0.0.2")
+                .header("User-Agent", BenchmarkFixtures.USER_AGENT)
+                .attribute("jakarta.servlet.request.ssl_session", new StubSslSession(BenchmarkFixtures.TLS_SESSION_ID));
+        keepAliveRequest = new StubHttpServletRequest("/api/profile", "198.51.100.7")
+                .header("X-Forwarded-For", "203.0.113.10, 10.0.0.2")
+                .header("User-Agent", BenchmarkFixtures.USER_AGENT)
+                .attribute("jakarta.servlet.request.ssl_session",
+                        new StubSslSession(BenchmarkFixtures.TLS_SESSION_ID, true));
+    }
+
+    @Benchmark
+    public String headerFingerprint() {
+        return Ja4FingerprintExtractor.extract(headerRequest);
+    }
+
+    @Benchmark
+    public String tlsFallbackFingerprint() {
+        return Ja4FingerprintExtractor.extract(tlsRequest);
+    }
+
+    @Benchmark
+    public String tlsKeepAliveFingerprint() {
+        return Ja4FingerprintExtractor.extract(keepAliveRequest);
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.session.bench;
+
+import com.example.session.FingerprintValidationFilter;
+import com.example.session.InMemorySessionStore;
+import com.example.session.LoginServlet;
+import com.example.session.ProfileServlet;
+import com.example.session.RedisManager;
+import com.example.session.RedisSessionStore;
+import com.example.session.SessionMetrics;
+import com.example.session.SessionSecurityRepository;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-loop replay of the login / profile / mismatch / hijack request shapes captured in the
+// login.*, profile.* and mismatch.* fixtures, driven straight through LoginServlet,
+// FingerprintValidationFilter and ProfileServlet without a container.
+//
+//   java -cp target/session-ja4-benchmarks.jar com.example.session.bench.ReplayHarness \
+//       --store memory --threads 8 --rate 20000 --duration 30 --warmup 5 \
+//       --mix login=5,profile=80,mismatch=10,hijack=5 [--traffic traffic.jsonl]
+//
+// With --rate each thread follows a fixed schedule and latency is measured from the intended
+// start time, so queueing behind a slow request is counted instead of hidden. --traffic replays
+// an NDJSON file of {"kind": "login|profile|mismatch|hijack"} lines in order instead of the mix.
+public final class ReplayHarness {
+    private static final Gson GSON = new Gson();
+    private static final String LOGIN_PATH = "/api/login";
+    private static final String PROFILE_PATH = "/api/profile";
+    private static final String[] USERS = {"admin", "analyst", "viewer"};
+    private static final String[] PASSWORDS = {"admin123", "risk4c$", "viewer"};
+    private static final String[] USER_AGENTS = {
+            BenchmarkFixtures.USER_AGENT,
+            "curl/8.14.1",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 14_4) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Safari/605.1.15"
+    };
+    private static final String ATTACKER_JA4 = "t13d1715h2_5b57614c22b0_3d5424432f57";
+    private static final String ATTACKER_USER_AGENT = "python-requests/2.31.0";
+
+    private ReplayHarness() {
+    }
+
+    enum Kind {
+        LOGIN(200),
+        PROFILE(200),
+        MISMATCH(403),
+        HIJACK(200);
+
+        private final int expectedStatus;
+
+        Kind(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // per-request WARN lines for every mismatch and hijack would dominate the measurement
+        if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+            System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "error");
+        }
+        Settings settings = Settings.parse(args);
+        if ("redis".equals(settings.store)) {
+            if (!RedisManager.isEnabled()) {
+                throw new IllegalStateException("Redis is not configured; set REDIS_HOST/REDIS_PORT");
+            }
+            SessionSecurityRepository.configure(new RedisSessionStore());
+        } else {
+            SessionSecurityRepository.configure(new InMemorySessionStore());
+        }
+
+        Kind[] schedule = settings.trafficFile != null ? readTraffic(settings.trafficFile) : buildSchedule(settings.mix);
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+        long intervalNanos = settings.rate > 0 ? (long) (1e9 * settings.threads / settings.rate) : 0;
+
+        List<Worker> workers = new ArrayList<>(settings.threads);
+        CountDownLatch done = new CountDownLatch(settings.threads);
+        for (int i = 0; i < settings.threads; i++) {
+            Worker worker = new Worker(i, settings.sessionsPerThread, schedule, startNanos, measureFromNanos, endNanos,
+                    intervalNanos, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "replay-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        LockSupport.parkNanos(measureFromNanos - System.nanoTime());
+        long redisCallsBefore = SessionMetrics.REDIS_COMMAND.count();
+        done.await();
+        long redisCalls = SessionMetrics.REDIS_COMMAND.count() - redisCallsBefore;
+
+        report(settings, workers, redisCalls);
+        SessionSecurityRepository.getStore().close();
+        RedisManager.closePool();
+    }
+
+    private static Kind[] buildSchedule(Map<Kind, Integer> mix) {
+        List<Kind> kinds = new ArrayList<>();
+        for (Map.Entry<Kind, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                kinds.add(entry.getKey());
+            }
+        }
+        if (kinds.isEmpty()) {
+            throw new IllegalArgumentException("--mix must contain at least one positive weight");
+        }
+        Collections.shuffle(kinds, new Random(42));
+        return kinds.toArray(new Kind[0]);
+    }
+
+    private static Kind[] readTraffic(Path file) throws IOException {
+        List<Kind> kinds = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                JsonObject json = GSON.fromJson(line, JsonObject.class);
+                if (json != null && json.has("kind")) {
+                    kinds.add(Kind.valueOf(json.get("kind").getAsString().toUpperCase(Locale.ROOT)));
+                }
+            } catch (JsonParseException | IllegalArgumentException ex) {
+                // not a traffic line; skip it
+            }
+        }
+        if (kinds.isEmpty()) {
+            throw new IllegalArgumentException("no {\"kind\": ...} lines found in " + file);
+        }
+        return kinds.toArray(new Kind[0]);
+    }
+
+    private static void report(Settings settings, List<Worker> workers, long redisCalls) {
+        long total = 0;
+        long[] all;
+        int size = 0;
+        for (Worker worker : workers) {
+            size += worker.latencyCount;
+        }
+        all = new long[size];
+        int offset = 0;
+        Map<Kind, long[]> perKind = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            perKind.put(kind, new long[2]);
+        }
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, all, offset, worker.latencyCount);
+            offset += worker.latencyCount;
+            total += worker.latencyCount;
+            for (Kind kind : Kind.values()) {
+                perKind.get(kind)[0] += worker.requests[kind.ordinal()];
+                perKind.get(kind)[1] += worker.unexpected[kind.ordinal()];
+            }
+        }
+        Arrays.sort(all);
+
+        System.out.printf(Locale.ROOT, "store=%s threads=%d rate=%s duration=%ds warmup=%ds%n",
+                settings.store, settings.threads, settings.rate > 0 ? settings.rate + "/s" : "unthrottled",
+                settings.durationSeconds, settings.warmupSeconds);
+        System.out.printf(Locale.ROOT, "requests=%d throughput=%.0f req/s%n",
+                total, total / (double) settings.durationSeconds);
+        System.out.printf(Locale.ROOT, "latency p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0.0 : all[all.length - 1] / 1000.0);
+        System.out.printf(Locale.ROOT, "redis calls/request=%.2f%n", total == 0 ? 0.0 : redisCalls / (double) total);
+        for (Kind kind : Kind.values()) {
+            long[] counts = perKind.get(kind);
+            System.out.printf(Locale.ROOT, "  %-8s requests=%d unexpected-status=%d%n",
+                    kind.name().toLowerCase(Locale.ROOT), counts[0], counts[1]);
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    private static final class Worker implements Runnable {
+        private final Client[] clients;
+        private final Kind[] schedule;
+        private final long startNanos;
+        private final long measureFromNanos;
+        private final long endNanos;
+        private final long intervalNanos;
+        private final CountDownLatch done;
+        private final Random random;
+        private final LoginServlet loginServlet = new LoginServlet();
+        private final ProfileServlet profileServlet = new ProfileServlet();
+        private final FingerprintValidationFilter filter = new FingerprintValidationFilter();
+        private final FilterChain profileChain = (request, response) -> profileServlet.service(request, response);
+        private final long[] requests = new long[Kind.values().length];
+        private final long[] unexpected = new long[Kind.values().length];
+        private long[] latencies = new long[1 << 16];
+        private int latencyCount;
+
+        private Worker(int index,
+                       int sessions,
+                       Kind[] schedule,
+                       long startNanos,
+                       long measureFromNanos,
+                       long endNanos,
+                       long intervalNanos,
+                       CountDownLatch done) {
+            this.random = new Random(index);
+            this.clients = new Client[sessions];
+            for (int i = 0; i < sessions; i++) {
+                clients[i] = new Client(index, i, random);
+            }
+            this.schedule = schedule;
+            this.startNanos = startNanos;
+            this.measureFromNanos = measureFromNanos;
+            this.endNanos = endNanos;
+            this.intervalNanos = intervalNanos;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int position = random.nextInt(schedule.length);
+                for (long n = 0; ; n++) {
+                    long intended = intervalNanos > 0 ? startNanos + n * intervalNanos : System.nanoTime();
+                    if (intended >= endNanos) {
+                        return;
+                    }
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    Kind kind = schedule[position];
+                    position = position + 1 == schedule.length ? 0 : position + 1;
+                    Client client = clients[random.nextInt(clients.length)];
+                    Kind executed = execute(kind, client);
+                    long latency = System.nanoTime() - intended;
+                    if (intended >= measureFromNanos) {
+                        record(executed, latency);
+                    }
+                }
+            } catch (IOException | ServletException ex) {
+                throw new IllegalStateException(ex);
+            } finally {
+                done.countDown();
+            }
+        }
+
+        // Requests that need a session fall back to a login when the client has none yet or was
+        // challenged and logged out by an earlier mismatch.
+        private Kind execute(Kind kind, Client client) throws IOException, ServletException {
+            if (kind != Kind.LOGIN && !client.hasSession()) {
+                kind = Kind.LOGIN;
+            }
+            StubHttpServletResponse response = new StubHttpServletResponse();
+            switch (kind) {
+                case LOGIN: {
+                    StubHttpServletRequest request = new StubHttpServletRequest(LOGIN_PATH, client.ip)
+                            .header("X-JA4-Fingerprint", client.ja4)
+                            .header("User-Agent", client.userAgent)
+                            .post(client.loginBody);
+                    loginServlet.service(request, response);
+                    client.session = (StubHttpSession) request.getSession(false);
+                    break;
+                }
+                case MISMATCH: {
+                    StubHttpServletRequest request = new StubHttpServletRequest(PROFILE_PATH, client.ip)
+                            .header("X-JA4-Fingerprint", ATTACKER_JA4)
+                            .header("User-Agent", client.userAgent)
+                            .session(client.session);
+                    filter.doFilter(request, response, profileChain);
+                    break;
+                }
+                case HIJACK: {
+                    // a stolen cookie replayed with a spoofed JA4 header from another network and client
+                    StubHttpServletRequest request = new StubHttpServletRequest(PROFILE_PATH, "203.0.113.66")
+                            .header("X-JA4-Fingerprint", client.ja4)
+                            .header("User-Agent", ATTACKER_USER_AGENT)
+                            .session(client.session);
+                    filter.doFilter(request, response, profileChain);
+                    break;
+                }
+                default: {
+                    StubHttpServletRequest request = new StubHttpServletRequest(PROFILE_PATH, client.ip)
+                            .header("X-JA4-Fingerprint", client.ja4)
+                            .header("User-Agent", client.userAgent)
+                            .session(client.session);
+                    filter.doFilter(request, response, profileChain);
+                    break;
+                }
+            }
+            if (response.getStatusCode() != kind.expectedStatus) {
+                unexpected[kind.ordinal()]++;
+            }
+            return kind;
+        }
+
+        private void record(Kind kind, long latencyNanos) {
+            requests[kind.ordinal()]++;
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[latencyCount++] = latencyNanos;
+        }
+    }
+
+    private static final class Client {
+        private final String ja4;
+        private final String ip;
+        private final String userAgent;
+        private final String loginBody;
+        private StubHttpSession session;
+
+        private Client(int worker, int index, Random random) {
+            this.ja4 = String.format("t13d1516h2_8daaf6152771_%012x", (long) worker << 24 | index);
+            this.ip = "198.51." + (100 + worker % 100) + "." + (index % 250 + 1);
+            this.userAgent = USER_AGENTS[random.nextInt(USER_AGENTS.length)];
+            int user = random.nextInt(USERS.length);
+            // same shape as login-body.json
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("username", USERS[user]);
+            body.put("password", PASSWORDS[user]);
+            body.put("clientFingerprint", "demo-client-fp-" + worker + "-" + index);
+            body.put("clientSignals", BenchmarkFixtures.CLIENT_SIGNALS);
+            this.loginBody = GSON.toJson(body);
+        }
+
+        private boolean hasSession() {
+            return session != null && session.isValid();
+        }
+    }
+
+    private static final class Settings {
+        private String store = "memory";
+        private int threads = 8;
+        private int rate;
+        private int durationSeconds = 30;
+        private int warmupSeconds = 5;
+        private int sessionsPerThread = 256;
+        private Path trafficFile;
+        private final Map<Kind, Integer> mix = new EnumMap<>(Kind.class);
+
+        private static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            settings.mix.put(Kind.LOGIN, 5);
+            settings.mix.put(Kind.PROFILE, 80);
+            settings.mix.put(Kind.MISMATCH, 10);
+            settings.mix.put(Kind.HIJACK, 5);
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--store":
+                        settings.store = value;
+                        break;
+                    case "--threads":
+                        settings.threads = Integer.parseInt(value);
+                        break;
+                    case "--rate":
+                        settings.rate = Integer.parseInt(value);
+                        break;
+                    case "--duration":
+                        settings.durationSeconds = Integer.parseInt(value);
+                        break;
+                    case "--warmup":
+                        settings.warmupSeconds = Integer.parseInt(value);
+                        break;
+                    case "--sessions":
+                        settings.sessionsPerThread = Integer.parseInt(value);
+                        break;
+                    case "--traffic":
+                        settings.trafficFile = Paths.get(value);
+                        break;
+                    case "--mix":
+                        settings.mix.clear();
+                        for (String part : value.split(",")) {
+                            String[] pair = part.split("=");
+                            settings.mix.put(Kind.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)),
+                                    Integer.parseInt(pair[1].trim()));
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+            return settings;
+        }
+    }
+}
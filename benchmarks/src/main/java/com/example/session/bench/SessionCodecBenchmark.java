@@ -0,0 +1,69 @@
+package com.example.session.bench;
+
+import com.example.session.BinarySessionCodec;
+import com.example.session.JsonSessionCodec;
+import com.example.session.RiskEvent;
+import com.example.session.RiskEventType;
+import com.example.session.SessionCodec;
+import com.example.session.SessionRecord;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionCodecBenchmark {
+    @Param({"json", "binary"})
+    public String codec;
+
+    private SessionCodec sessionCodec;
+    private SessionRecord record;
+    private RiskEvent event;
+    private byte[] encodedRecord;
+    private byte[] encodedEvent;
+
+    @Setup
+    public void setUp() {
+        sessionCodec = "binary".equals(codec) ? new BinarySessionCodec() : new JsonSessionCodec();
+        record = BenchmarkFixtures.sessionRecord("B3C1F0A6D2E94C7A8F5B1E0D9C8A7B6F");
+        event = RiskEvent.create(RiskEventType.CLIENT_ATTRIBUTE_CHANGE, record, "203.0.113.10",
+                BenchmarkFixtures.USER_AGENT, "Client IP changed during session",
+                Map.of("previousIp", "198.51.100.7", "currentIp", "203.0.113.10"));
+        encodedRecord = sessionCodec.encodeSession(record);
+        encodedEvent = sessionCodec.encodeEvent(event);
+    }
+
+    @Benchmark
+    public byte[] encodeSession() {
+        return sessionCodec.encodeSession(record);
+    }
+
+    @Benchmark
+    public SessionRecord decodeSession() {
+        return sessionCodec.decodeSession(encodedRecord);
+    }
+
+    @Benchmark
+    public byte[] encodeEvent() {
+        return sessionCodec.encodeEvent(event);
+    }
+
+    @Benchmark
+    public RiskEvent decodeEvent() {
+        return sessionCodec.decodeEvent(encodedEvent);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.session.bench;
+
+import com.example.session.InMemorySessionStore;
+import com.example.session.SessionRecord;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.util.Locale;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.vm.VM;
+
+// Per-session memory of InMemorySessionStore, measured rather than estimated:
+//
+//   java -cp target/session-ja4-benchmarks.jar com.example.session.bench.StoreFootprint [--sessions 200000]
+//
+// Prints the JOL layout of the map entry that doubles as the timing wheel node, then the retained
+// heap per session as a GC'd heap delta over a full store. Records are created up front and kept
+// reachable, so the delta is what the store itself adds: map node, entry, the record copy it
+// takes on save and the per-user index.
+public final class StoreFootprint {
+    private static final int GC_ROUNDS = 5;
+
+    private StoreFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = 200_000;
+        for (int i = 0; i < args.length; i++) {
+            if ("--sessions".equals(args[i]) && i + 1 < args.length) {
+                sessions = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        System.out.println(VM.current().details());
+        Class<?> entry = Class.forName("com.example.session.InMemorySessionStore$Entry");
+        System.out.println(ClassLayout.parseClass(entry).toPrintable());
+        long entrySize = ClassLayout.parseClass(entry).instanceSize();
+        long recordSize = ClassLayout.parseClass(SessionRecord.class).instanceSize();
+
+        SessionRecord[] records = new SessionRecord[sessions];
+        for (int i = 0; i < sessions; i++) {
+            records[i] = BenchmarkFixtures.sessionRecord(String.format(Locale.ROOT, "%032x", i));
+        }
+        InMemorySessionStore store = new InMemorySessionStore(Duration.ofHours(1), 200);
+        try {
+            long before = usedHeap();
+            for (SessionRecord record : records) {
+                store.save(record);
+            }
+            long after = usedHeap();
+            double perSession = (double) (after - before) / sessions;
+            System.out.printf(Locale.ROOT, "sessions            %d (wheel holds %d)%n", sessions,
+                    store.scheduledExpiries());
+            System.out.printf(Locale.ROOT, "entry / wheel node  %d bytes%n", entrySize);
+            System.out.printf(Locale.ROOT, "record copy         %d bytes%n", recordSize);
+            System.out.printf(Locale.ROOT, "heap per session    %.1f bytes%n", perSession);
+            System.out.printf(Locale.ROOT, "store overhead      %.1f bytes (excluding the record copy)%n",
+                    perSession - recordSize);
+            Reference.reachabilityFence(store);
+        } finally {
+            store.close();
+        }
+        Reference.reachabilityFence(records);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.session.bench;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpSession;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+final class StubHttpServletRequest extends HttpServletRequestWrapper {
+    private static final ServletContext CONTEXT = Unsupported.of(ServletContext.class);
+
+    private final Map<String, String> headers = new HashMap<>();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final String servletPath;
+    private final String remoteAddr;
+    private HttpSession session;
+    private String method = "GET";
+    private String body = "";
+
+    StubHttpServletRequest(String servletPath, String remoteAddr) {
+        super(Unsupported.of(HttpServletRequest.class));
+        this.servletPath = servletPath;
+        this.remoteAddr = remoteAddr;
+    }
+
+    StubHttpServletRequest header(String name, String value) {
+        headers.put(name.toLowerCase(), value);
+        return this;
+    }
+
+    StubHttpServletRequest attribute(String name, Object value) {
+        attributes.put(name, value);
+        return this;
+    }
+
+    StubHttpServletRequest session(HttpSession session) {
+        this.session = session;
+        return this;
+    }
+
+    StubHttpServletRequest post(String body) {
+        this.method = "POST";
+        this.body = body;
+        return this;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new StringReader(body));
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (session == null && create) {
+            session = new StubHttpSession(UUID.randomUUID().toString());
+        }
+        return session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return session;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return CONTEXT;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public String getServletPath() {
+        return servletPath;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return servletPath;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+}
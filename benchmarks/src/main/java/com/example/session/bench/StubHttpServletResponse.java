@@ -0,0 +1,57 @@
+package com.example.session.bench;
+
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+final class StubHttpServletResponse extends HttpServletResponseWrapper {
+    private static final PrintWriter DISCARD = new PrintWriter(Writer.nullWriter());
+
+    private int status = SC_OK;
+
+    StubHttpServletResponse() {
+        super(Unsupported.of(HttpServletResponse.class));
+    }
+
+    int getStatusCode() {
+        return status;
+    }
+
+    void reset(int initialStatus) {
+        status = initialStatus;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        status = sc;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        status = sc;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+    }
+
+    @Override
+    public void setContentType(String type) {
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return DISCARD;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.session.bench;
+
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+final class StubSslSession implements SSLSession {
+    private final byte[] id;
+    private final Map<String, Object> values;
+
+    // Without retained values every request looks like the first one on a fresh handshake.
+    StubSslSession(byte[] id) {
+        this(id, false);
+    }
+
+    StubSslSession(byte[] id, boolean retainValues) {
+        this.id = id;
+        this.values = retainValues ? new HashMap<>() : null;
+    }
+
+    @Override
+    public byte[] getId() {
+        return id.clone();
+    }
+
+    @Override
+    public SSLSessionContext getSessionContext() {
+        return null;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return 0;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return 0;
+    }
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    @Override
+    public void putValue(String name, Object value) {
+        if (values != null) {
+            values.put(name, value);
+        }
+    }
+
+    @Override
+    public Object getValue(String name) {
+        return values != null ? values.get(name) : null;
+    }
+
+    @Override
+    public void removeValue(String name) {
+        if (values != null) {
+            values.remove(name);
+        }
+    }
+
+    @Override
+    public String[] getValueNames() {
+        return values != null ? values.keySet().toArray(new String[0]) : new String[0];
+    }
+
+    @Override
+    public Certificate[] getPeerCertificates() throws SSLPeerUnverifiedException {
+        throw new SSLPeerUnverifiedException("no peer certificates");
+    }
+
+    @Override
+    public Certificate[] getLocalCertificates() {
+        return null;
+    }
+
+    @Override
+    public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+        throw new SSLPeerUnverifiedException("no peer principal");
+    }
+
+    @Override
+    public Principal getLocalPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getCipherSuite() {
+        return "TLS_AES_128_GCM_SHA256";
+    }
+
+    @Override
+    public String getProtocol() {
+        return "TLSv1.3";
+    }
+
+    @Override
+    public String getPeerHost() {
+        return "198.51.100.7";
+    }
+
+    @Override
+    public int getPeerPort() {
+        return 51514;
+    }
+
+    @Override
+    public int getPacketBufferSize() {
+        return 16709;
+    }
+
+    @Override
+    public int getApplicationBufferSize() {
+        return 16384;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.session.bench;
+
+import java.lang.reflect.Proxy;
+
+final class Unsupported {
+    private Unsupported() {
+    }
+
+    // Stand-in for servlet APIs the SDK never calls on the benchmarked paths; any call fails loudly.
+    static <T> T of(Class<T> type) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            if (method.getName().equals("getAttribute")) {
+                return null;
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.session;
+
+public enum AbuseDecision {
+    ALLOW,
+    // the request mismatched with a fingerprint already seen failing against many sessions
+    CHALLENGE,
+    // the client IP exceeded its failure budget for the window
+    BLOCK
+}
@@ -0,0 +1,92 @@
+package com.example.session;
+
+import java.time.Duration;
+
+// Tracks JA4 mismatches and login failures per client IP, received fingerprint and user so that
+// floods are turned away before the filter or LoginServlet touch the session store. A threshold
+// of 0 disables that dimension. The username is client-supplied, so login failures are counted
+// per user and peer IP: guessing at an account only locks that account out for the guessing IP.
+public final class AbuseDetector {
+    private final SlidingWindowCounter ipFailures;
+    private final SlidingWindowCounter fingerprintMismatches;
+    private final SlidingWindowCounter userFailures;
+    private final int ipThreshold;
+    private final int fingerprintThreshold;
+    private final int userThreshold;
+    private final Duration window;
+
+    public AbuseDetector(Duration window,
+                         int maxTrackedKeys,
+                         int ipThreshold,
+                         int fingerprintThreshold,
+                         int userThreshold) {
+        this.window = window;
+        this.ipFailures = new SlidingWindowCounter(maxTrackedKeys, window);
+        this.fingerprintMismatches = new SlidingWindowCounter(maxTrackedKeys, window);
+        this.userFailures = new SlidingWindowCounter(maxTrackedKeys, window);
+        this.ipThreshold = ipThreshold;
+        this.fingerprintThreshold = fingerprintThreshold;
+        this.userThreshold = userThreshold;
+    }
+
+    // Only reads in-process counters; safe to call on every request.
+    public AbuseDecision evaluate(String ip, String storedFingerprint, String currentFingerprint) {
+        if (over(ipFailures, ipThreshold, ip)) {
+            return AbuseDecision.BLOCK;
+        }
+        boolean mismatched = currentFingerprint != null
+                && storedFingerprint != currentFingerprint
+                && !currentFingerprint.equals(storedFingerprint);
+        // a matching request is never challenged, however many other sessions its JA4 failed against
+        if (mismatched && over(fingerprintMismatches, fingerprintThreshold, currentFingerprint)) {
+            return AbuseDecision.CHALLENGE;
+        }
+        return AbuseDecision.ALLOW;
+    }
+
+    public boolean isLoginBlocked(String ip, String user) {
+        return over(ipFailures, ipThreshold, ip) || over(userFailures, userThreshold, userKey(ip, user));
+    }
+
+    public void recordMismatch(String ip, String fingerprint) {
+        track(ipFailures, ipThreshold, ip, "ip", ip, ip);
+        track(fingerprintMismatches, fingerprintThreshold, fingerprint, "fingerprint", fingerprint, ip);
+    }
+
+    public void recordLoginFailure(String ip, String user) {
+        track(ipFailures, ipThreshold, ip, "ip", ip, ip);
+        track(userFailures, userThreshold, userKey(ip, user), "user", user, ip);
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, window.getSeconds());
+    }
+
+    public long getEvictionCount() {
+        return ipFailures.getEvictionCount() + fingerprintMismatches.getEvictionCount()
+                + userFailures.getEvictionCount();
+    }
+
+    private static String userKey(String ip, String user) {
+        return user == null || ip == null ? null : ip + "/" + user;
+    }
+
+    private static boolean over(SlidingWindowCounter counter, int threshold, String key) {
+        return threshold > 0 && key != null && counter.count(key) >= threshold;
+    }
+
+    private void track(SlidingWindowCounter counter,
+                       int threshold,
+                       String key,
+                       String dimension,
+                       String value,
+                       String ip) {
+        if (threshold <= 0 || key == null) {
+            return;
+        }
+        // one event per key each time it crosses the threshold, not one per shed request
+        if (counter.increment(key) == threshold) {
+            SessionSecurityRepository.recordAbuseThreshold(dimension, value, ip, threshold, window);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.session;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Decides whether a request may use an administrative endpoint. The SDK refuses to register
+// such an endpoint without one.
+@FunctionalInterface
+public interface AdminAuthorizer {
+    boolean isAuthorized(HttpServletRequest request);
+
+    // Container-managed security: the caller must be authenticated and hold the role.
+    static AdminAuthorizer role(String role) {
+        if (role == null || role.isBlank()) {
+            throw new IllegalArgumentException("role must not be blank");
+        }
+        return request -> request.getUserPrincipal() != null && request.isUserInRole(role);
+    }
+}
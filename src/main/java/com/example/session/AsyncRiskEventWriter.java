@@ -0,0 +1,209 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class AsyncRiskEventWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRiskEventWriter.class);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final ConcurrentLinkedQueue<RiskEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final RiskEventOverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final Consumer<List<RiskEvent>> sink;
+    private final String threadName;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    private volatile Thread flusher;
+    private volatile boolean running;
+
+    public AsyncRiskEventWriter(int capacity,
+                                int batchSize,
+                                Duration flushInterval,
+                                RiskEventOverflowPolicy overflowPolicy,
+                                Duration blockTimeout,
+                                Consumer<List<RiskEvent>> sink) {
+        this(capacity, batchSize, flushInterval, overflowPolicy, blockTimeout, sink, "ja4-risk-event-writer");
+    }
+
+    public AsyncRiskEventWriter(int capacity,
+                                int batchSize,
+                                Duration flushInterval,
+                                RiskEventOverflowPolicy overflowPolicy,
+                                Duration blockTimeout,
+                                Consumer<List<RiskEvent>> sink,
+                                String threadName) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = Math.max(1, flushInterval.toNanos());
+        this.overflowPolicy = overflowPolicy == null ? RiskEventOverflowPolicy.DROP : overflowPolicy;
+        this.blockTimeoutNanos = blockTimeout == null ? 0 : blockTimeout.toNanos();
+        this.sink = sink;
+        this.threadName = threadName;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runFlusher, threadName);
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    public boolean submit(RiskEvent event) {
+        if (event == null) {
+            return false;
+        }
+        if (!reserveSlot()) {
+            dropped.increment();
+            return false;
+        }
+        queue.offer(event);
+        submitted.increment();
+        if (depth.get() >= batchSize) {
+            wakeFlusher();
+        }
+        return true;
+    }
+
+    public synchronized void stop(Duration timeout) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = flusher;
+        flusher = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(timeout.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // anything the flusher did not get to before the deadline is written from the caller
+        drain();
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    private boolean reserveSlot() {
+        if (tryReserve()) {
+            return true;
+        }
+        if (overflowPolicy != RiskEventOverflowPolicy.BLOCK || blockTimeoutNanos <= 0) {
+            return false;
+        }
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        do {
+            wakeFlusher();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (tryReserve()) {
+                return true;
+            }
+        } while (System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = depth.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!depth.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void wakeFlusher() {
+        Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            if (flushBatch() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    private void drain() {
+        int flushed;
+        do {
+            flushed = flushBatch();
+        } while (flushed > 0);
+    }
+
+    private int flushBatch() {
+        List<RiskEvent> batch = null;
+        RiskEvent event;
+        while ((batch == null || batch.size() < batchSize) && (event = queue.poll()) != null) {
+            if (batch == null) {
+                batch = new ArrayList<>(Math.min(batchSize, depth.get() + 1));
+            }
+            batch.add(event);
+        }
+        if (batch == null) {
+            return 0;
+        }
+        depth.addAndGet(-batch.size());
+        try {
+            sink.accept(batch);
+            written.add(batch.size());
+        } catch (Exception ex) {
+            failedBatches.increment();
+            dropped.add(batch.size());
+            LOGGER.warn("Failed to write {} risk events: {}", batch.size(), ex.getMessage());
+        }
+        return batch.size();
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.session;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BinarySessionCodec implements SessionCodec {
+    static final byte FORMAT_VERSION = 1;
+    static final byte DICTIONARY_FORMAT_VERSION = 2;
+    private static final byte JSON_MARKER = '{';
+    private static final SessionStatus[] STATUSES = SessionStatus.values();
+    private static final RiskEventType[] EVENT_TYPES = RiskEventType.values();
+
+    private final JsonSessionCodec legacy = new JsonSessionCodec();
+    private final FingerprintDictionary dictionary;
+
+    public BinarySessionCodec() {
+        this(null);
+    }
+
+    // With a shared dictionary (normally RedisFingerprintDictionary) fingerprints are written as
+    // small integer ids; version 1 payloads remain readable either way.
+    public BinarySessionCodec(FingerprintDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public FingerprintDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public byte[] encodeSession(SessionRecord record) {
+        Writer out = new Writer(128);
+        out.writeByte(dictionary == null ? FORMAT_VERSION : DICTIONARY_FORMAT_VERSION);
+        out.writeString(record.getSessionId());
+        out.writeString(record.getUser());
+        String ja4Fingerprint = record.getJa4Fingerprint();
+        String clientFingerprint = record.getClientFingerprint();
+        int ja4Id = dictionary == null || ja4Fingerprint == null ? FingerprintDictionary.NO_ID
+                : dictionary.idOf(ja4Fingerprint);
+        writeFingerprint(out, ja4Fingerprint, ja4Id);
+        // the client fingerprint comes from the login request, so it may share the server-derived
+        // value's id but never adds an entry of its own
+        writeFingerprint(out, clientFingerprint, clientFingerprint != null && clientFingerprint.equals(ja4Fingerprint)
+                ? ja4Id : FingerprintDictionary.NO_ID);
+        out.writeString(record.getUserAgent());
+        out.writeString(record.getIpAddress());
+        out.writeMap(record.getClientSignals());
+        long createdAt = record.getCreatedAt().toEpochMilli();
+        out.writeVarLong(createdAt);
+        out.writeVarLong(zigZag(record.getLastSeenAt().toEpochMilli() - createdAt));
+        out.writeByte(record.getStatus() == null ? 0 : record.getStatus().ordinal() + 1);
+        return out.toByteArray();
+    }
+
+    @Override
+    public SessionRecord decodeSession(byte[] payload) {
+        if (payload.length > 0 && payload[0] == JSON_MARKER) {
+            return legacy.decodeSession(payload);
+        }
+        Reader in = new Reader(payload);
+        boolean ids = in.readVersion();
+        String sessionId = in.readString();
+        String user = in.readString();
+        String ja4Fingerprint = readFingerprint(in, ids);
+        String clientFingerprint = readFingerprint(in, ids);
+        String userAgent = in.readString();
+        String ipAddress = in.readString();
+        Map<String, String> clientSignals = in.readMap();
+        long createdAt = in.readVarLong();
+        long lastSeenAt = createdAt + unZigZag(in.readVarLong());
+        int status = in.readByte();
+        return SessionRecord.restore(sessionId, user, ja4Fingerprint, clientFingerprint, userAgent, ipAddress,
+                clientSignals, createdAt, lastSeenAt, status == 0 ? null : STATUSES[status - 1]);
+    }
+
+    @Override
+    public byte[] encodeEvent(RiskEvent event) {
+        Writer out = new Writer(160);
+        out.writeByte(dictionary == null ? FORMAT_VERSION : DICTIONARY_FORMAT_VERSION);
+        out.writeByte(event.getType() == null ? 0 : event.getType().ordinal() + 1);
+        out.writeString(event.getSessionId());
+        out.writeString(event.getUser());
+        // events can outlive idle dictionary entries, so their fingerprints are always inline
+        writeFingerprint(out, event.getJa4Fingerprint(), FingerprintDictionary.NO_ID);
+        writeFingerprint(out, event.getClientFingerprint(), FingerprintDictionary.NO_ID);
+        out.writeString(event.getIpAddress());
+        out.writeString(event.getUserAgent());
+        out.writeString(event.getMessage());
+        out.writeMap(event.getDetails());
+        out.writeVarLong(event.getTimestamp().toEpochMilli());
+        return out.toByteArray();
+    }
+
+    @Override
+    public RiskEvent decodeEvent(byte[] payload) {
+        if (payload.length > 0 && payload[0] == JSON_MARKER) {
+            return legacy.decodeEvent(payload);
+        }
+        Reader in = new Reader(payload);
+        boolean ids = in.readVersion();
+        int type = in.readByte();
+        String sessionId = in.readString();
+        String user = in.readString();
+        String ja4Fingerprint = readFingerprint(in, ids);
+        String clientFingerprint = readFingerprint(in, ids);
+        String ipAddress = in.readString();
+        String userAgent = in.readString();
+        String message = in.readString();
+        Map<String, String> details = in.readMap();
+        long timestamp = in.readVarLong();
+        return RiskEvent.restore(type == 0 ? null : EVENT_TYPES[type - 1], sessionId, user, ja4Fingerprint,
+                clientFingerprint, ipAddress, userAgent, message, details, timestamp);
+    }
+
+    // 0 = null, 1 = inline string follows, n >= 2 = dictionary id n - 2
+    private void writeFingerprint(Writer out, String fingerprint, int id) {
+        if (dictionary == null) {
+            out.writeString(fingerprint);
+            return;
+        }
+        if (fingerprint == null) {
+            out.writeVarLong(0);
+            return;
+        }
+        if (id == FingerprintDictionary.NO_ID) {
+            out.writeVarLong(1);
+            out.writeString(fingerprint);
+        } else {
+            out.writeVarLong(id + 2L);
+        }
+    }
+
+    private String readFingerprint(Reader in, boolean ids) {
+        if (!ids) {
+            return in.readString();
+        }
+        long tag = in.readVarLong();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag == 1) {
+            return in.readString();
+        }
+        if (dictionary == null) {
+            throw new IllegalArgumentException("Payload uses fingerprint ids but no dictionary is configured");
+        }
+        if (tag - 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid fingerprint id " + (tag - 2));
+        }
+        String value = dictionary.lookup((int) (tag - 2));
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown fingerprint id " + (tag - 2));
+        }
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        private void ensureCapacity(int additional) {
+            if (position + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        // lengths are stored +1 so that 0 can represent null
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeMap(Map<String, String> map) {
+            if (map == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(map.size() + 1L);
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private boolean readVersion() {
+            int version = readByte();
+            if (version != FORMAT_VERSION && version != DICTIONARY_FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported payload version " + version);
+            }
+            return version == DICTIONARY_FORMAT_VERSION;
+        }
+
+        private int readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated payload");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position + 1L) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        private String readString() {
+            int length = readLength();
+            if (length == 0) {
+                return null;
+            }
+            int size = length - 1;
+            String value = new String(buffer, position, size, StandardCharsets.UTF_8);
+            position += size;
+            return value;
+        }
+
+        private Map<String, String> readMap() {
+            long count = readVarLong();
+            if (count == 0) {
+                return null;
+            }
+            if (count == 1) {
+                return Collections.emptyMap();
+            }
+            if (count - 1 > buffer.length - position) {
+                throw new IllegalArgumentException("Invalid map size " + (count - 1));
+            }
+            int size = (int) (count - 1);
+            Map<String, String> map = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.session;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+
+// Per-window credential-sharing signals in fixed memory: a HyperLogLog per user (distinct JA4s and
+// IPs) and per fingerprint (distinct users), plus count-min sketches of logins and mismatches per
+// fingerprint. Sketches are updated in process and merged with Redis on a timer, so request
+// threads never wait on Redis for them. Windows are tumbling: every sketch starts empty when the
+// window rolls over.
+public final class CardinalitySketches {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CardinalitySketches.class);
+    private static final int SEGMENT_COUNT = 16;
+    private static final int FREQUENCY_WIDTH = 2048;
+    private static final String KEY_PREFIX = "ja4:sketch:";
+    // KEYS: sketch key; ARGV: local registers, ttl millis. Returns the merged registers.
+    private static final byte[] MERGE_SCRIPT = """
+            local incoming = ARGV[1]
+            local current = redis.call('GET', KEYS[1])
+            if current and #current == #incoming then
+              local merged = {}
+              for i = 1, #incoming do
+                merged[i] = string.char(math.max(string.byte(current, i), string.byte(incoming, i)))
+              end
+              incoming = table.concat(merged)
+            end
+            redis.call('SET', KEYS[1], incoming, 'PX', ARGV[2])
+            return incoming
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final HllTable fingerprintsPerUser;
+    private final HllTable ipsPerUser;
+    private final HllTable usersPerFingerprint;
+    private final CountMinSketch loginsPerFingerprint = new CountMinSketch(FREQUENCY_WIDTH);
+    private final CountMinSketch mismatchesPerFingerprint = new CountMinSketch(FREQUENCY_WIDTH);
+    private final long windowMillis;
+    private final LongAdder mergeFailures = new LongAdder();
+    private volatile long window;
+    private ScheduledExecutorService merger;
+
+    public CardinalitySketches(int maxKeysPerDimension, Duration window) {
+        if (maxKeysPerDimension <= 0) {
+            throw new IllegalArgumentException("maxKeysPerDimension must be positive");
+        }
+        if (window == null || window.toMillis() <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.windowMillis = window.toMillis();
+        this.window = System.currentTimeMillis() / windowMillis;
+        this.fingerprintsPerUser = new HllTable("fingerprints-per-user", maxKeysPerDimension);
+        this.ipsPerUser = new HllTable("ips-per-user", maxKeysPerDimension);
+        this.usersPerFingerprint = new HllTable("users-per-fingerprint", maxKeysPerDimension);
+    }
+
+    public void recordLogin(String user, String fingerprint, String ip) {
+        rollWindow();
+        fingerprintsPerUser.add(user, fingerprint);
+        ipsPerUser.add(user, ip);
+        usersPerFingerprint.add(fingerprint, user);
+        if (fingerprint != null) {
+            loginsPerFingerprint.add(Hashing.hash64(fingerprint), 1);
+        }
+    }
+
+    // The received fingerprint counts as presented by the session's user: a stolen cookie replayed
+    // from a bot shows up as one more JA4 for the victim and one more user for the bot's JA4.
+    public void recordMismatch(String user, String receivedFingerprint, String ip) {
+        rollWindow();
+        fingerprintsPerUser.add(user, receivedFingerprint);
+        ipsPerUser.add(user, ip);
+        usersPerFingerprint.add(receivedFingerprint, user);
+        if (receivedFingerprint != null) {
+            mismatchesPerFingerprint.add(Hashing.hash64(receivedFingerprint), 1);
+        }
+    }
+
+    public RiskSignals signals(String user, String fingerprint) {
+        long fingerprintHash = fingerprint == null ? 0 : Hashing.hash64(fingerprint);
+        return new RiskSignals(
+                fingerprintsPerUser.estimate(user),
+                ipsPerUser.estimate(user),
+                usersPerFingerprint.estimate(fingerprint),
+                fingerprint == null ? 0 : loginsPerFingerprint.estimate(fingerprintHash),
+                fingerprint == null ? 0 : mismatchesPerFingerprint.estimate(fingerprintHash));
+    }
+
+    public synchronized void startMerging(Duration interval) {
+        if (merger != null) {
+            return;
+        }
+        merger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ja4-sketch-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, interval.toMillis());
+        merger.scheduleWithFixedDelay(this::mergeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Pushes what is still pending before the Redis pool goes away.
+    public synchronized void stop() {
+        if (merger == null) {
+            return;
+        }
+        merger.shutdownNow();
+        merger = null;
+        mergeQuietly();
+    }
+
+    // One round trip: every HyperLogLog touched since the last merge is max-merged server side and
+    // read back, and the frequency sketches push their deltas and reload the cluster-wide counts
+    // (also when this node added nothing, so that quiet nodes still see the others' traffic).
+    public void merge() {
+        rollWindow();
+        long current = window;
+        long ttlMillis = windowMillis * 2;
+        List<Dirty> dirty = new ArrayList<>();
+        fingerprintsPerUser.takeDirty(dirty);
+        ipsPerUser.takeDirty(dirty);
+        usersPerFingerprint.takeDirty(dirty);
+        long[] loginDeltas = drain(loginsPerFingerprint);
+        long[] mismatchDeltas = drain(mismatchesPerFingerprint);
+        byte[] ttl = Long.toString(ttlMillis).getBytes(StandardCharsets.UTF_8);
+        try {
+            RedisManager.execute(jedis -> {
+                List<Response<Object>> merged = new ArrayList<>(dirty.size());
+                Response<Map<String, String>> logins;
+                Response<Map<String, String>> mismatches;
+                try (AbstractPipeline pipeline = jedis.pipelined()) {
+                    for (Dirty entry : dirty) {
+                        byte[] key = (KEY_PREFIX + entry.table.name + ":" + current + ":" + entry.key)
+                                .getBytes(StandardCharsets.UTF_8);
+                        merged.add(pipeline.eval(MERGE_SCRIPT, List.of(key), List.of(entry.registers, ttl)));
+                    }
+                    logins = push(pipeline, "logins-per-fingerprint:" + current, loginDeltas, ttlMillis);
+                    mismatches = push(pipeline, "mismatches-per-fingerprint:" + current, mismatchDeltas, ttlMillis);
+                    pipeline.sync();
+                }
+                for (int i = 0; i < dirty.size(); i++) {
+                    Object registers = merged.get(i).get();
+                    if (registers instanceof byte[]) {
+                        dirty.get(i).table.applyMerged(dirty.get(i).key, (byte[]) registers);
+                    }
+                }
+                if (window == current) {
+                    applyMerged(loginsPerFingerprint, logins.get());
+                    applyMerged(mismatchesPerFingerprint, mismatches.get());
+                }
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            // put everything back so the next round retries it
+            for (Dirty entry : dirty) {
+                entry.table.markDirty(entry.key);
+            }
+            restore(loginsPerFingerprint, loginDeltas);
+            restore(mismatchesPerFingerprint, mismatchDeltas);
+            throw ex;
+        }
+    }
+
+    public int getTrackedKeys() {
+        return fingerprintsPerUser.size() + ipsPerUser.size() + usersPerFingerprint.size();
+    }
+
+    public long getMergeFailureCount() {
+        return mergeFailures.sum();
+    }
+
+    private void mergeQuietly() {
+        try {
+            merge();
+        } catch (RuntimeException ex) {
+            mergeFailures.increment();
+            LOGGER.warn("Sketch merge failed: {}", ex.getMessage());
+        }
+    }
+
+    private void rollWindow() {
+        long now = System.currentTimeMillis() / windowMillis;
+        if (now == window) {
+            return;
+        }
+        synchronized (this) {
+            if (now == window) {
+                return;
+            }
+            fingerprintsPerUser.clear();
+            ipsPerUser.clear();
+            usersPerFingerprint.clear();
+            loginsPerFingerprint.clear();
+            mismatchesPerFingerprint.clear();
+            window = now;
+        }
+    }
+
+    private static long[] drain(CountMinSketch sketch) {
+        long[] deltas = null;
+        for (int cell = 0; cell < sketch.getCellCount(); cell++) {
+            long delta = sketch.drainPending(cell);
+            if (delta != 0) {
+                if (deltas == null) {
+                    deltas = new long[sketch.getCellCount()];
+                }
+                deltas[cell] = delta;
+            }
+        }
+        return deltas;
+    }
+
+    private static void restore(CountMinSketch sketch, long[] deltas) {
+        if (deltas == null) {
+            return;
+        }
+        for (int cell = 0; cell < deltas.length; cell++) {
+            if (deltas[cell] != 0) {
+                sketch.restorePending(cell, deltas[cell]);
+            }
+        }
+    }
+
+    private static Response<Map<String, String>> push(AbstractPipeline pipeline,
+                                                      String name,
+                                                      long[] deltas,
+                                                      long ttlMillis) {
+        String key = KEY_PREFIX + name;
+        if (deltas != null) {
+            for (int cell = 0; cell < deltas.length; cell++) {
+                if (deltas[cell] != 0) {
+                    pipeline.hincrBy(key, Integer.toString(cell), deltas[cell]);
+                }
+            }
+            pipeline.pexpire(key, ttlMillis);
+        }
+        return pipeline.hgetAll(key);
+    }
+
+    private static void applyMerged(CountMinSketch sketch, Map<String, String> cells) {
+        long[] merged = new long[sketch.getCellCount()];
+        for (Map.Entry<String, String> cell : cells.entrySet()) {
+            try {
+                int index = Integer.parseInt(cell.getKey());
+                if (index >= 0 && index < merged.length) {
+                    merged[index] = Long.parseLong(cell.getValue());
+                }
+            } catch (NumberFormatException ex) {
+                // not ours; ignore
+            }
+        }
+        for (int cell = 0; cell < merged.length; cell++) {
+            sketch.applyMerged(cell, merged[cell]);
+        }
+    }
+
+    private static final class Dirty {
+        private final HllTable table;
+        private final String key;
+        private final byte[] registers;
+
+        private Dirty(HllTable table, String key, byte[] registers) {
+            this.table = table;
+            this.key = key;
+            this.registers = registers;
+        }
+    }
+
+    private static final class Entry {
+        private final HyperLogLog sketch = new HyperLogLog();
+        private long estimate;
+        private boolean dirty;
+    }
+
+    // Least recently used keys are dropped once a segment is full, so memory per dimension is
+    // bounded by maxKeys sketches of HyperLogLog.REGISTERS bytes each.
+    private static final class HllTable {
+        private final String name;
+        private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+        private HllTable(String name, int maxKeys) {
+            this.name = name;
+            int perSegment = Math.max(1, (maxKeys + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+            for (int i = 0; i < SEGMENT_COUNT; i++) {
+                segments[i] = new Segment(perSegment);
+            }
+        }
+
+        private void add(String key, String item) {
+            if (key == null || item == null) {
+                return;
+            }
+            long hash = Hashing.hash64(item);
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                Entry entry = segment.map.get(key);
+                if (entry == null) {
+                    entry = new Entry();
+                    segment.map.put(key, entry);
+                }
+                if (entry.sketch.add(hash)) {
+                    entry.estimate = entry.sketch.estimate();
+                    entry.dirty = true;
+                }
+            }
+        }
+
+        private long estimate(String key) {
+            if (key == null) {
+                return 0;
+            }
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                Entry entry = segment.map.get(key);
+                return entry == null ? 0 : entry.estimate;
+            }
+        }
+
+        private void takeDirty(List<Dirty> out) {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    for (Map.Entry<String, Entry> entry : segment.map.entrySet()) {
+                        if (entry.getValue().dirty) {
+                            entry.getValue().dirty = false;
+                            out.add(new Dirty(this, entry.getKey(), entry.getValue().sketch.toByteArray()));
+                        }
+                    }
+                }
+            }
+        }
+
+        private void markDirty(String key) {
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                Entry entry = segment.map.get(key);
+                if (entry != null) {
+                    entry.dirty = true;
+                }
+            }
+        }
+
+        private void applyMerged(String key, byte[] registers) {
+            Segment segment = segmentFor(key);
+            synchronized (segment) {
+                Entry entry = segment.map.get(key);
+                if (entry != null && entry.sketch.merge(registers)) {
+                    entry.estimate = entry.sketch.estimate();
+                }
+            }
+        }
+
+        private void clear() {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    segment.map.clear();
+                }
+            }
+        }
+
+        private int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.map.size();
+                }
+            }
+            return size;
+        }
+
+        private Segment segmentFor(String key) {
+            return segments[(int) (Hashing.hash64(key) >>> 60)];
+        }
+    }
+
+    private static final class Segment {
+        private final LinkedHashMap<String, Entry> map;
+
+        private Segment(int maxEntries) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class CircuitBreakerSessionStore implements SessionStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakerSessionStore.class);
+    private static final int REJECTED = 0;
+    private static final int PERMITTED = 1;
+    private static final int TRIAL = 2;
+
+    private final SessionStore delegate;
+    private final long callBudgetNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final StoreDegradedPolicy policy;
+    private final SessionRecordCache snapshot;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private volatile long openedAtNanos;
+    private volatile long openedAtMillis;
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder rejectedSinceOpen = new LongAdder();
+    private final LongAdder openTransitions = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    public CircuitBreakerSessionStore(SessionStore delegate,
+                                      Duration callBudget,
+                                      int failureThreshold,
+                                      Duration openDuration,
+                                      StoreDegradedPolicy policy,
+                                      int snapshotMaxEntries,
+                                      Duration snapshotTtl) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        this.delegate = delegate;
+        this.callBudgetNanos = callBudget == null || callBudget.isZero() ? Long.MAX_VALUE : callBudget.toNanos();
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.policy = policy == null ? StoreDegradedPolicy.FAIL_OPEN : policy;
+        this.snapshot = this.policy == StoreDegradedPolicy.LOCAL_SNAPSHOT
+                ? new SessionRecordCache(snapshotMaxEntries, snapshotTtl)
+                : null;
+    }
+
+    public SessionStore getDelegate() {
+        return delegate;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public StoreDegradedPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getFailedCalls() {
+        return failedCalls.sum();
+    }
+
+    public long getSlowCalls() {
+        return slowCalls.sum();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.sum();
+    }
+
+    public long getOpenTransitions() {
+        return openTransitions.sum();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    @Override
+    public void save(SessionRecord record) {
+        if (record == null) {
+            return;
+        }
+        call(() -> {
+            delegate.save(record);
+            return Boolean.TRUE;
+        }, () -> {
+            if (snapshot == null) {
+                return degraded(null, "save");
+            }
+            return Boolean.TRUE;
+        });
+        remember(record);
+    }
+
+    @Override
+    public SessionRecord load(String sessionId) {
+        SessionRecord record = call(() -> delegate.load(sessionId), () -> {
+            if (snapshot != null) {
+                SessionRecord cached = snapshot.get(sessionId);
+                return cached != null ? cached : degraded(null, "load");
+            }
+            return degraded(null, "load");
+        });
+        remember(record);
+        return record;
+    }
+
+    @Override
+    public void refresh(SessionRecord record) {
+        if (record == null) {
+            return;
+        }
+        call(() -> {
+            delegate.refresh(record);
+            return Boolean.TRUE;
+        }, () -> {
+            if (snapshot == null) {
+                return degraded(null, "refresh");
+            }
+            return Boolean.TRUE;
+        });
+        remember(record);
+    }
+
+    @Override
+    public SessionValidationResult validateAndTouch(String sessionId,
+                                                    String currentIp,
+                                                    String currentUserAgent,
+                                                    Instant now) {
+        return validateAndTouch(sessionId, null, currentIp, currentUserAgent, now);
+    }
+
+    @Override
+    public SessionValidationResult validateAndTouch(String sessionId,
+                                                    String expectedUser,
+                                                    String currentIp,
+                                                    String currentUserAgent,
+                                                    Instant now) {
+        SessionValidationResult result = call(
+                () -> delegate.validateAndTouch(sessionId, expectedUser, currentIp, currentUserAgent, now),
+                () -> {
+                    if (snapshot != null) {
+                        SessionRecord cached = snapshot.get(sessionId);
+                        if (cached == null) {
+                            throw new SessionStoreUnavailableException(
+                                    "Session store unavailable and no local snapshot for session");
+                        }
+                        cached.touch(now, currentIp, currentUserAgent);
+                        snapshot.put(cached);
+                        return SessionValidationResult.of(cached, false);
+                    }
+                    return degraded(SessionValidationResult.unknown(), "validateAndTouch");
+                });
+        if (result.isPresent()) {
+            remember(result.getRecord());
+        }
+        return result;
+    }
+
+    @Override
+    public SessionValidationResult peek(String sessionId) {
+        SessionValidationResult result = call(() -> delegate.peek(sessionId), () -> {
+            if (snapshot != null) {
+                SessionRecord cached = snapshot.get(sessionId);
+                if (cached == null) {
+                    throw new SessionStoreUnavailableException(
+                            "Session store unavailable and no local snapshot for session");
+                }
+                return SessionValidationResult.of(cached, false);
+            }
+            return degraded(SessionValidationResult.unknown(), "peek");
+        });
+        if (result.isPresent()) {
+            remember(result.getRecord());
+        }
+        return result;
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        if (snapshot != null) {
+            snapshot.invalidate(sessionId);
+        }
+        call(() -> {
+            delegate.delete(sessionId);
+            return Boolean.TRUE;
+        }, () -> degraded(Boolean.TRUE, "delete"));
+    }
+
+    // While degraded the session is kept as a plain save would be and the cap is not enforced.
+    @Override
+    public List<String> create(SessionRecord record, int maxSessionsPerUser) {
+        if (record == null) {
+            return List.of();
+        }
+        List<String> evicted = call(() -> delegate.create(record, maxSessionsPerUser), () -> {
+            if (snapshot == null) {
+                return degraded(List.of(), "create");
+            }
+            return List.of();
+        });
+        remember(record);
+        return evicted;
+    }
+
+    // Risk events are never allowed to fail a request; while degraded they are counted and dropped.
+    @Override
+    public void appendEvents(List<RiskEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        call(() -> {
+            delegate.appendEvents(events);
+            return Boolean.TRUE;
+        }, () -> {
+            droppedEvents.add(events.size());
+            return Boolean.FALSE;
+        });
+    }
+
+    // Analyst queries bypass the breaker's accounting so that a large page cannot trip it, but
+    // they are refused outright while the store is known to be unhealthy.
+    @Override
+    public RiskEventPage queryEvents(RiskEventQuery query) {
+        if (state.get() != State.CLOSED) {
+            throw new SessionStoreUnavailableException("Session store unavailable (queryEvents)");
+        }
+        return delegate.queryEvents(query);
+    }
+
+    // Bulk admin operations are refused while unhealthy for the same reason as queries.
+    @Override
+    public List<String> findUserSessions(String user) {
+        if (state.get() != State.CLOSED) {
+            throw new SessionStoreUnavailableException("Session store unavailable (findUserSessions)");
+        }
+        return delegate.findUserSessions(user);
+    }
+
+    @Override
+    public List<String> deleteUserSessions(String user) {
+        if (state.get() != State.CLOSED) {
+            throw new SessionStoreUnavailableException("Session store unavailable (deleteUserSessions)");
+        }
+        List<String> deleted = delegate.deleteUserSessions(user);
+        if (snapshot != null) {
+            for (String sessionId : deleted) {
+                snapshot.invalidate(sessionId);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        if (snapshot != null) {
+            snapshot.clear();
+        }
+    }
+
+    private <T> T call(Supplier<T> operation, Supplier<T> fallback) {
+        int permit = acquire();
+        if (permit == REJECTED) {
+            rejectedCalls.increment();
+            rejectedSinceOpen.increment();
+            return fallback.get();
+        }
+        long start = System.nanoTime();
+        T result;
+        boolean completed = false;
+        try {
+            result = operation.get();
+            completed = true;
+        } catch (RuntimeException ex) {
+            LOGGER.debug("Session store call failed: {}", ex.getMessage());
+            return fallback.get();
+        } finally {
+            // also runs when an Error escapes, so a trial permit is always handed back
+            if (!completed) {
+                failedCalls.increment();
+                onFailure(permit);
+            }
+        }
+        if (System.nanoTime() - start > callBudgetNanos) {
+            // the caller already paid for the slow call, so hand back its result but count it against the breaker
+            slowCalls.increment();
+            onFailure(permit);
+        } else {
+            onSuccess(permit);
+        }
+        return result;
+    }
+
+    private int acquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return PERMITTED;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return REJECTED;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                LOGGER.info("Session store circuit half-open; probing with a trial call");
+            }
+        }
+        return trialInFlight.compareAndSet(false, true) ? TRIAL : REJECTED;
+    }
+
+    private void onSuccess(int permit) {
+        consecutiveFailures.set(0);
+        if (permit == TRIAL) {
+            trialInFlight.set(false);
+            if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                long outageMillis = System.currentTimeMillis() - openedAtMillis;
+                long rejected = rejectedSinceOpen.sumThenReset();
+                LOGGER.info("Session store circuit closed after {} ms ({} calls degraded)", outageMillis, rejected);
+                SessionSecurityRepository.recordStoreOutage(outageMillis, rejected, policy);
+            }
+        }
+    }
+
+    private void onFailure(int permit) {
+        if (permit == TRIAL) {
+            trialInFlight.set(false);
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                openedAtNanos = System.nanoTime();
+                LOGGER.warn("Session store trial call failed; circuit re-opened");
+            }
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAtNanos = System.nanoTime();
+            openedAtMillis = System.currentTimeMillis();
+            rejectedSinceOpen.reset();
+            openTransitions.increment();
+            LOGGER.warn("Session store circuit opened after {} consecutive failures; degraded policy {}",
+                    failureThreshold, policy);
+        }
+    }
+
+    private <T> T degraded(T failOpenValue, String operation) {
+        if (policy == StoreDegradedPolicy.FAIL_OPEN) {
+            return failOpenValue;
+        }
+        throw new SessionStoreUnavailableException("Session store unavailable (" + operation + ")");
+    }
+
+    private void remember(SessionRecord record) {
+        if (snapshot != null && record != null) {
+            snapshot.put(record);
+        }
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.session;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Frequency estimate per key in depth x width counters; never under-counts and over-counts by at
+// most about total/width with high probability. Local increments are also kept as pending deltas
+// so a merge can push only what this node added since the last one.
+public final class CountMinSketch {
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray pending;
+
+    public CountMinSketch(int width) {
+        if (width <= 0 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a positive power of two");
+        }
+        this.width = width;
+        this.counts = new AtomicLongArray(DEPTH * width);
+        this.pending = new AtomicLongArray(DEPTH * width);
+    }
+
+    public void add(long hash, long count) {
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = cell(row, hash);
+            counts.addAndGet(cell, count);
+            pending.addAndGet(cell, count);
+        }
+    }
+
+    public long estimate(long hash) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counts.get(cell(row, hash)));
+        }
+        return min;
+    }
+
+    public int getCellCount() {
+        return counts.length();
+    }
+
+    // Takes the deltas added since the previous drain.
+    long drainPending(int cell) {
+        return pending.getAndSet(cell, 0);
+    }
+
+    void restorePending(int cell, long delta) {
+        pending.addAndGet(cell, delta);
+    }
+
+    // Replaces a cell with the cluster-wide value, keeping local adds that have not been pushed yet.
+    void applyMerged(int cell, long mergedValue) {
+        counts.set(cell, mergedValue + pending.get(cell));
+    }
+
+    void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+            pending.set(i, 0);
+        }
+    }
+
+    // Kirsch-Mitzenmacher: the rows index with h1 + row * h2 taken from the two halves of one hash
+    private int cell(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+}
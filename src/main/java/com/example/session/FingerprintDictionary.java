@@ -0,0 +1,39 @@
+package com.example.session;
+
+public interface FingerprintDictionary {
+    int NO_ID = -1;
+
+    // Assigns an id if the fingerprint is new; returns NO_ID once the dictionary is full.
+    int idOf(String fingerprint);
+
+    // Looks up an existing id without assigning one.
+    int find(String fingerprint);
+
+    String lookup(int id);
+
+    default String intern(String fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        int id = idOf(fingerprint);
+        if (id == NO_ID) {
+            return fingerprint;
+        }
+        String canonical = lookup(id);
+        return canonical != null ? canonical : fingerprint;
+    }
+
+    // Like intern, but never grows the dictionary; used for unauthenticated request input.
+    default String canonical(String fingerprint) {
+        int id = find(fingerprint);
+        if (id == NO_ID) {
+            return fingerprint;
+        }
+        String canonical = lookup(id);
+        return canonical != null ? canonical : fingerprint;
+    }
+
+    static FingerprintDictionary local() {
+        return LocalFingerprintDictionary.SHARED;
+    }
+}
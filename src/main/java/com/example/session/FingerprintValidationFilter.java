@@ -1,5 +1,7 @@
 package com.example.session;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,102 +12,350 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class FingerprintValidationFilter implements Filter {
     private static final Logger LOGGER = LoggerFactory.getLogger(FingerprintValidationFilter.class);
 
+    private final Executor asyncExecutor;
+    private final long asyncTimeoutMillis;
+    private volatile RoutePolicyTable routes;
+
+    public FingerprintValidationFilter() {
+        this(null, 0);
+    }
+
+    public FingerprintValidationFilter(Executor asyncExecutor, long asyncTimeoutMillis) {
+        this(asyncExecutor, asyncTimeoutMillis, null);
+    }
+
+    // Without a route table only the login path configured on the context is skipped.
+    public FingerprintValidationFilter(Executor asyncExecutor, long asyncTimeoutMillis, RoutePolicyTable routes) {
+        this.asyncExecutor = asyncExecutor;
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
+        this.routes = routes;
+    }
+
     @Override
     public void doFilter(jakarta.servlet.ServletRequest req, jakarta.servlet.ServletResponse res, FilterChain chain)
             throws IOException, ServletException {
         HttpServletRequest request = (HttpServletRequest) req;
         HttpServletResponse response = (HttpServletResponse) res;
 
-        String loginPath = Optional.ofNullable((String) request.getServletContext().getAttribute(SessionConstants.CONTEXT_LOGIN_PATH))
-                .orElse("/api/login");
+        // async dispatches only happen after the initial REQUEST dispatch was validated
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            chain.doFilter(request, response);
+            return;
+        }
 
-        if (matchesRequestPath(request, loginPath)) {
+        RoutePolicy policy = routes(request).lookup(request.getServletPath(), request.getPathInfo());
+        if (policy == RoutePolicy.SKIP) {
+            SessionMetrics.ROUTE_SKIP.increment();
             chain.doFilter(request, response);
             return;
         }
 
+        long startNanos = System.nanoTime();
         HttpSession session = request.getSession(false);
+        if (policy == RoutePolicy.MONITOR) {
+            SessionMetrics.ROUTE_MONITOR.increment();
+            monitor(request, session, startNanos);
+            chain.doFilter(request, response);
+            return;
+        }
         if (session == null) {
             LOGGER.debug("Rejecting request without session for {}", request.getRequestURI());
+            SessionMetrics.REJECTED_NO_SESSION.increment();
             SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_UNAUTHORIZED,
                     "No active session", Map.of("action", "LOGIN"));
             return;
         }
 
+        RevokedSessionFilter revokedSessions = SessionSecurityRepository.getRevokedSessions();
+        if (revokedSessions != null && revokedSessions.mightContain(session.getId())) {
+            LOGGER.debug("Rejecting revoked session {}", session.getId());
+            SessionMetrics.REJECTED_REVOKED.increment();
+            session.invalidate();
+            SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_UNAUTHORIZED,
+                    "Session revoked", Map.of("action", "LOGIN"));
+            return;
+        }
+
         String storedFingerprint = (String) session.getAttribute(SessionConstants.SESSION_FINGERPRINT_ATTR);
         if (storedFingerprint == null) {
             LOGGER.warn("Session {} missing fingerprint binding", session.getId());
+            SessionMetrics.REJECTED_UNBOUND.increment();
             session.invalidate();
             SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_UNAUTHORIZED,
                     "Fingerprint not bound to session", Map.of("action", "LOGIN"));
             return;
         }
 
-        String currentFingerprint = Ja4FingerprintExtractor.extract(request);
+        String currentFingerprint = FingerprintDictionary.local().canonical(Ja4FingerprintExtractor.extract(request));
         String currentIp = HttpRequestUtils.resolveClientIp(request);
         String currentUserAgent = HttpRequestUtils.resolveUserAgent(request);
+        SessionMetrics.PHASE_EXTRACT.recordSince(startNanos);
 
-        Optional<SessionRecord> recordOptional = SessionSecurityRepository.getSession(session.getId());
-        SessionRecord record = recordOptional.orElse(null);
+        AbuseDetector abuseDetector = SessionSecurityRepository.getAbuseDetector();
+        if (abuseDetector != null && shed(abuseDetector, response, session, storedFingerprint, currentFingerprint,
+                HttpRequestUtils.resolvePeerIp(request), startNanos)) {
+            return;
+        }
 
-        if (!storedFingerprint.equals(currentFingerprint)) {
-            LOGGER.warn("Fingerprint mismatch for session {}. Expected {}, received {}.",
-                    session.getId(), storedFingerprint, currentFingerprint);
-            SessionSecurityRepository.handleJa4Mismatch(record, currentFingerprint, currentIp, currentUserAgent);
-            session.invalidate();
-            response.setHeader("X-Session-Challenge", "VERIFY_JA4");
-            Map<String, Object> detail = new HashMap<>();
-            detail.put("error", "Fingerprint mismatch");
-            detail.put("action", "VERIFY_JA4");
-            SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_FORBIDDEN,
-                    "JA4 verification required", detail);
+        // a skip-refresh route still reads the record's status, but never extends its TTL
+        boolean refresh = policy != RoutePolicy.SKIP_REFRESH;
+        if (!refresh) {
+            SessionMetrics.ROUTE_SKIP_REFRESH.increment();
+        }
+        if (asyncExecutor != null && request.isAsyncSupported()) {
+            AsyncContext async = request.startAsync(request, response);
+            if (asyncTimeoutMillis > 0) {
+                async.setTimeout(asyncTimeoutMillis);
+            }
+            try {
+                asyncExecutor.execute(() -> verifyAsync(async, request, response, session,
+                        storedFingerprint, currentFingerprint, currentIp, currentUserAgent, refresh, startNanos));
+                return;
+            } catch (RejectedExecutionException ex) {
+                // saturated: validate on the container thread, with the same 503 and complete() on failure
+                LOGGER.debug("Async validation rejected for session {}, validating inline", session.getId());
+            }
+            verifyAsync(async, request, response, session, storedFingerprint, currentFingerprint, currentIp,
+                    currentUserAgent, refresh, startNanos);
             return;
         }
 
-        if (record != null) {
-            boolean attributeChanged = false;
-            if (record.isDifferentIp(currentIp)) {
-                attributeChanged = true;
-                SessionSecurityRepository.recordAttributeChange(record,
-                        RiskEventType.CLIENT_ATTRIBUTE_CHANGE,
-                        "Client IP changed during session",
-                        Map.of("previousIp", Optional.ofNullable(record.getIpAddress()).orElse("unknown"),
-                                "currentIp", currentIp),
-                        currentIp,
-                        currentUserAgent);
+        if (verify(request, response, session, storedFingerprint, currentFingerprint, currentIp, currentUserAgent,
+                refresh, startNanos)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private RoutePolicyTable routes(HttpServletRequest request) {
+        RoutePolicyTable current = routes;
+        if (current == null) {
+            String loginPath = Optional.ofNullable(
+                    (String) request.getServletContext().getAttribute(SessionConstants.CONTEXT_LOGIN_PATH))
+                    .orElse("/api/login");
+            current = RoutePolicyTable.compile(Map.of(loginPath, RoutePolicy.SKIP));
+            routes = current;
+        }
+        return current;
+    }
+
+    // Monitor-only routes compare the fingerprint in process and let every request through; a
+    // mismatch is recorded without a store read or any change to the session.
+    private void monitor(HttpServletRequest request, HttpSession session, long startNanos) {
+        if (session == null) {
+            return;
+        }
+        String storedFingerprint = (String) session.getAttribute(SessionConstants.SESSION_FINGERPRINT_ATTR);
+        if (storedFingerprint == null) {
+            return;
+        }
+        String currentFingerprint = FingerprintDictionary.local().canonical(Ja4FingerprintExtractor.extract(request));
+        if (storedFingerprint == currentFingerprint || storedFingerprint.equals(currentFingerprint)) {
+            SessionMetrics.FILTER.recordSince(startNanos);
+            return;
+        }
+        SessionMetrics.MISMATCHES.increment();
+        LOGGER.info("Fingerprint mismatch for session {} on monitored route {}. Expected {}, received {}.",
+                session.getId(), request.getRequestURI(), storedFingerprint, currentFingerprint);
+        SessionSecurityRepository.recordMonitoredMismatch(session.getId(),
+                (String) session.getAttribute(SessionConstants.SESSION_USER_ATTR), storedFingerprint,
+                currentFingerprint, HttpRequestUtils.resolveClientIp(request),
+                HttpRequestUtils.resolveUserAgent(request));
+        SessionMetrics.FILTER.recordSince(startNanos);
+    }
+
+    private void verifyAsync(AsyncContext async,
+                             HttpServletRequest request,
+                             HttpServletResponse response,
+                             HttpSession session,
+                             String storedFingerprint,
+                             String currentFingerprint,
+                             String currentIp,
+                             String currentUserAgent,
+                             boolean refresh,
+                             long startNanos) {
+        try {
+            if (verify(request, response, session, storedFingerprint, currentFingerprint, currentIp, currentUserAgent,
+                    refresh, startNanos)) {
+                async.dispatch();
+                return;
             }
-            if (record.isDifferentUserAgent(currentUserAgent)) {
-                attributeChanged = true;
-                SessionSecurityRepository.recordAttributeChange(record,
-                        RiskEventType.CLIENT_ATTRIBUTE_CHANGE,
-                        "User-Agent changed during session",
-                        Map.of("previousUserAgent", Optional.ofNullable(record.getUserAgent()).orElse("unknown"),
-                                "currentUserAgent", currentUserAgent),
-                        currentIp,
-                        currentUserAgent);
+        } catch (Exception ex) {
+            if (!isAsyncActive(request)) {
+                // the async context timed out or the client went away while we were waiting on the store
+                LOGGER.debug("Async validation for {} finished after the request completed", request.getRequestURI());
+                return;
             }
+            LOGGER.warn("Async session validation failed for {}: {}", request.getRequestURI(), ex.getMessage());
+            if (!response.isCommitted()) {
+                try {
+                    response.setHeader("Retry-After", "1");
+                    SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                            "Session validation unavailable", Map.of("action", "RETRY"));
+                } catch (IOException | IllegalStateException ignored) {
+                    // the client went away while the error was written
+                }
+            }
+        }
+        try {
+            async.complete();
+        } catch (IllegalStateException ignored) {
+            // completed by a timeout in the meantime
+        }
+    }
 
-            if (attributeChanged) {
-                LOGGER.warn("Session {} attributes changed (IP/UA)", session.getId());
+    private static boolean isAsyncActive(HttpServletRequest request) {
+        try {
+            return request.isAsyncStarted();
+        } catch (IllegalStateException ex) {
+            // some containers refuse to answer once the request has been recycled
+            return false;
+        }
+    }
+
+    private boolean verify(HttpServletRequest request,
+                           HttpServletResponse response,
+                           HttpSession session,
+                           String storedFingerprint,
+                           String currentFingerprint,
+                           String currentIp,
+                           String currentUserAgent,
+                           boolean refresh,
+                           long startNanos) throws IOException {
+        long compareStart = System.nanoTime();
+        // both sides are canonical dictionary instances in the common case, so this is a reference check
+        boolean matches = storedFingerprint == currentFingerprint || storedFingerprint.equals(currentFingerprint);
+        SessionMetrics.PHASE_COMPARE.recordSince(compareStart);
+        if (!matches) {
+            SessionMetrics.MISMATCHES.increment();
+            SessionMetrics.REJECTED_MISMATCH.increment();
+            AbuseDetector abuseDetector = SessionSecurityRepository.getAbuseDetector();
+            if (abuseDetector != null) {
+                abuseDetector.recordMismatch(HttpRequestUtils.resolvePeerIp(request), currentFingerprint);
+            }
+            LOGGER.warn("Fingerprint mismatch for session {}. Expected {}, received {}.",
+                    session.getId(), storedFingerprint, currentFingerprint);
+            try {
+                long readStart = System.nanoTime();
+                SessionRecord record = SessionSecurityRepository.getSession(session.getId()).orElse(null);
+                long writeStart = System.nanoTime();
+                SessionMetrics.PHASE_STORE_READ.recordNanos(writeStart - readStart);
+                if (record == null) {
+                    // handleJa4Mismatch only revokes sessions it has a record for
+                    SessionSecurityRepository.revokeSession(session.getId());
+                }
+                SessionSecurityRepository.handleJa4Mismatch(record, currentFingerprint, currentIp, currentUserAgent);
+                SessionMetrics.PHASE_EVENT_WRITE.recordSince(writeStart);
+            } catch (SessionStoreUnavailableException ex) {
+                // the request is rejected either way; only the stored status update is lost
+                LOGGER.warn("Could not record JA4 mismatch for session {}: {}", session.getId(), ex.getMessage());
             }
-            SessionSecurityRepository.refreshSession(record, currentIp, currentUserAgent);
+            session.invalidate();
+            writeChallenge(response);
+            SessionMetrics.FILTER.recordSince(startNanos);
+            return false;
         }
 
-        chain.doFilter(request, response);
+        SessionValidationResult validation;
+        long validateStart = System.nanoTime();
+        try {
+            validation = refresh
+                    ? SessionSecurityRepository.validateAndTouch(session.getId(),
+                            (String) session.getAttribute(SessionConstants.SESSION_USER_ATTR), currentIp,
+                            currentUserAgent)
+                    : SessionSecurityRepository.peekSession(session.getId());
+        } catch (SessionStoreUnavailableException ex) {
+            LOGGER.warn("Rejecting request for session {}: {}", session.getId(), ex.getMessage());
+            SessionMetrics.REJECTED_STORE_UNAVAILABLE.increment();
+            response.setHeader("Retry-After", "1");
+            SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Session validation unavailable", Map.of("action", "RETRY"));
+            SessionMetrics.FILTER.recordSince(startNanos);
+            return false;
+        }
+        long validateEnd = System.nanoTime();
+        if (refresh) {
+            SessionMetrics.PHASE_STORE_VALIDATE.recordNanos(validateEnd - validateStart);
+        } else {
+            SessionMetrics.PHASE_STORE_READ.recordNanos(validateEnd - validateStart);
+        }
+        // evicted by the session cap, bulk-invalidated, expired or flagged: the container session
+        // outlives the store record, so its absence is what actually logs the client out
+        if (!validation.isUnknown() && (!validation.isPresent()
+                || validation.getRecord().getStatus() == SessionStatus.INVALIDATED)) {
+            LOGGER.debug("Rejecting session {} with no active store record", session.getId());
+            SessionMetrics.REJECTED_EXPIRED.increment();
+            session.invalidate();
+            SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_UNAUTHORIZED,
+                    "Session expired", Map.of("action", "LOGIN"));
+            SessionMetrics.FILTER.recordNanos(validateEnd - startNanos);
+            return false;
+        }
+        if (validation.isAttributesChanged()) {
+            SessionMetrics.ATTRIBUTE_CHANGES.increment();
+            LOGGER.warn("Session {} attributes changed (IP/UA)", session.getId());
+        }
+        setRiskSignals(request, session, currentFingerprint);
+        SessionMetrics.FILTER.recordNanos(validateEnd - startNanos);
+        return true;
     }
 
-    private boolean matchesRequestPath(HttpServletRequest request, String configuredPath) {
-        String servletPath = request.getServletPath();
-        if (configuredPath.endsWith("/*")) {
-            String prefix = configuredPath.substring(0, configuredPath.length() - 1);
-            return servletPath.startsWith(prefix);
+    private static void setRiskSignals(HttpServletRequest request, HttpSession session, String currentFingerprint) {
+        CardinalitySketches sketches = SessionSecurityRepository.getSketches();
+        if (sketches != null) {
+            request.setAttribute(SessionConstants.REQUEST_RISK_SIGNALS_ATTR, sketches.signals(
+                    (String) session.getAttribute(SessionConstants.SESSION_USER_ATTR), currentFingerprint));
         }
-        return servletPath.equals(configuredPath);
+    }
+
+    // Runs before any store call: a flagged IP or a mismatch with an already flagged fingerprint is
+    // answered from in-process counters instead of paying for the session lookup and event write.
+    private boolean shed(AbuseDetector abuseDetector,
+                         HttpServletResponse response,
+                         HttpSession session,
+                         String storedFingerprint,
+                         String currentFingerprint,
+                         String peerIp,
+                         long startNanos) throws IOException {
+        AbuseDecision decision = abuseDetector.evaluate(peerIp, storedFingerprint, currentFingerprint);
+        if (decision == AbuseDecision.ALLOW) {
+            return false;
+        }
+        SessionMetrics.REJECTED_ABUSE.increment();
+        if (decision == AbuseDecision.BLOCK) {
+            LOGGER.debug("Shedding request for session {} from {}", session.getId(), peerIp);
+            response.setHeader("Retry-After", Long.toString(abuseDetector.getRetryAfterSeconds()));
+            SecurityResponseWriter.writeJson(response, 429, "Too many failed verifications",
+                    Map.of("action", "RETRY"));
+        } else {
+            LOGGER.debug("Challenging session {} with flagged fingerprint {}", session.getId(), currentFingerprint);
+            SessionMetrics.MISMATCHES.increment();
+            abuseDetector.recordMismatch(peerIp, currentFingerprint);
+            RevokedSessionFilter revokedSessions = SessionSecurityRepository.getRevokedSessions();
+            if (revokedSessions != null) {
+                // local only: this path stays off Redis
+                revokedSessions.add(session.getId());
+            }
+            session.invalidate();
+            writeChallenge(response);
+        }
+        SessionMetrics.FILTER.recordSince(startNanos);
+        return true;
+    }
+
+    private static void writeChallenge(HttpServletResponse response) throws IOException {
+        response.setHeader("X-Session-Challenge", "VERIFY_JA4");
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("error", "Fingerprint mismatch");
+        detail.put("action", "VERIFY_JA4");
+        SecurityResponseWriter.writeJson(response, HttpServletResponse.SC_FORBIDDEN,
+                "JA4 verification required", detail);
     }
 }
@@ -0,0 +1,201 @@
+package com.example.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class HierarchicalTimingWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final ExpiryHandler handler;
+    private final Timeout[] buckets = new Timeout[SLOTS * LEVELS];
+    private long currentTick;
+    private int size;
+    private ScheduledExecutorService ticker;
+
+    public HierarchicalTimingWheel(long tickMillis, long startMillis, ExpiryHandler handler) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.handler = handler;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ja4-session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                advance(System.currentTimeMillis());
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Session expiry tick failed: {}", ex.getMessage());
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    public synchronized void schedule(Timeout timeout, long deadlineMillis) {
+        if (timeout.bucket >= 0) {
+            unlink(timeout);
+        } else {
+            size++;
+        }
+        timeout.deadline = deadlineMillis;
+        insert(timeout, currentTick + 1);
+    }
+
+    // Later deadlines are picked up lazily when the current bucket fires, so the common
+    // "session touched" case is a single volatile write with no locking.
+    public void extend(Timeout timeout, long deadlineMillis) {
+        if (deadlineMillis >= timeout.deadline) {
+            timeout.deadline = deadlineMillis;
+        } else {
+            schedule(timeout, deadlineMillis);
+        }
+    }
+
+    public synchronized void cancel(Timeout timeout) {
+        if (timeout.bucket >= 0) {
+            unlink(timeout);
+            size--;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int advance(long nowMillis) {
+        List<Timeout> expired = null;
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                int index = (int) (currentTick & SLOT_MASK);
+                Timeout node = detach(index);
+                while (node != null) {
+                    Timeout next = node.next;
+                    node.next = null;
+                    node.prev = null;
+                    if (node.deadline / tickMillis > currentTick) {
+                        insert(node, currentTick + 1);
+                    } else {
+                        size--;
+                        if (expired == null) {
+                            expired = new ArrayList<>();
+                        }
+                        expired.add(node);
+                    }
+                    node = next;
+                }
+            }
+        }
+        if (expired == null) {
+            return 0;
+        }
+        for (Timeout timeout : expired) {
+            handler.expired(timeout);
+        }
+        return expired.size();
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >> (SLOT_BITS * level - SLOT_BITS)) & SLOT_MASK) != 0) {
+                return;
+            }
+            int index = level * SLOTS + (int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK);
+            Timeout node = detach(index);
+            while (node != null) {
+                Timeout next = node.next;
+                node.next = null;
+                node.prev = null;
+                // the current level-0 slot is drained right after this, so a node due now still fires now
+                insert(node, currentTick);
+                node = next;
+            }
+        }
+    }
+
+    private void insert(Timeout timeout, long earliestTick) {
+        long deadlineTick = Math.max(timeout.deadline / tickMillis, earliestTick);
+        long delta = Math.min(deadlineTick - currentTick, MAX_DELTA);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        long slotTick = delta == MAX_DELTA ? currentTick + MAX_DELTA : deadlineTick;
+        int index = level * SLOTS + (int) ((slotTick >> (SLOT_BITS * level)) & SLOT_MASK);
+        Timeout head = buckets[index];
+        timeout.bucket = index;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[index] = timeout;
+    }
+
+    private Timeout detach(int index) {
+        Timeout head = buckets[index];
+        buckets[index] = null;
+        for (Timeout node = head; node != null; node = node.next) {
+            node.bucket = -1;
+        }
+        return head;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        void expired(Timeout timeout);
+    }
+
+    public abstract static class Timeout {
+        private volatile long deadline;
+        private Timeout prev;
+        private Timeout next;
+        private int bucket = -1;
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
@@ -1,15 +1,50 @@
 package com.example.session;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 public final class HttpRequestUtils {
     private static final String HEADER_FORWARDED_FOR = "X-Forwarded-For";
     private static final String HEADER_REAL_IP = "X-Real-IP";
 
+    private static volatile Set<String> trustedProxies = Set.of();
+
     private HttpRequestUtils() {
     }
 
+    public static void setTrustedProxies(Collection<String> proxies) {
+        trustedProxies = proxies == null ? Set.of() : Set.copyOf(proxies);
+    }
+
+    // The address of the nearest peer not in the trusted proxy list: X-Forwarded-For is only read
+    // when the connection comes from a trusted proxy, and then right to left, so a client cannot
+    // pick the address it is counted under. Use this for anything that throttles or blocks.
+    public static String resolvePeerIp(HttpServletRequest request) {
+        String peer = request.getRemoteAddr();
+        Set<String> trusted = trustedProxies;
+        if (trusted.isEmpty() || !trusted.contains(peer)) {
+            return peer;
+        }
+        String forwarded = extractHeader(request, HEADER_FORWARDED_FOR);
+        if (forwarded == null) {
+            return peer;
+        }
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                break;
+            }
+            peer = hop;
+            if (!trusted.contains(hop)) {
+                break;
+            }
+        }
+        return peer;
+    }
+
     public static String resolveClientIp(HttpServletRequest request) {
         return Optional.ofNullable(extractHeader(request, HEADER_FORWARDED_FOR))
                 .map(value -> value.split(",", 2)[0].trim())
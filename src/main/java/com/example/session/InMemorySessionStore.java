@@ -0,0 +1,341 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemorySessionStore implements SessionStore {
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(3600);
+    private static final Duration DEFAULT_EXPIRY_TICK = Duration.ofSeconds(1);
+    private static final int DEFAULT_EVENT_HISTORY_LIMIT = 200;
+
+    private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+    // user -> active session ids; the sets are only touched inside compute for their user
+    private final ConcurrentHashMap<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final ArrayDeque<StoredEvent> events = new ArrayDeque<>();
+    private final HierarchicalTimingWheel expiryWheel;
+    private final SessionExpiryListener expiryListener;
+    private final long ttlMillis;
+    private final int eventHistoryLimit;
+
+    public InMemorySessionStore() {
+        this(DEFAULT_TTL, DEFAULT_EVENT_HISTORY_LIMIT);
+    }
+
+    public InMemorySessionStore(Duration ttl, int eventHistoryLimit) {
+        this(ttl, DEFAULT_EXPIRY_TICK, eventHistoryLimit, null);
+    }
+
+    public InMemorySessionStore(Duration ttl,
+                                Duration expiryTick,
+                                int eventHistoryLimit,
+                                SessionExpiryListener expiryListener) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.eventHistoryLimit = Math.max(1, eventHistoryLimit);
+        this.expiryListener = expiryListener;
+        this.expiryWheel = new HierarchicalTimingWheel(expiryTick.toMillis(), System.currentTimeMillis(), this::expire);
+        this.expiryWheel.start();
+    }
+
+    @Override
+    public void save(SessionRecord record) {
+        if (record == null || record.getSessionId() == null) {
+            return;
+        }
+        record.markPersisted();
+        SessionRecord snapshot = record.copy();
+        long deadline = System.currentTimeMillis() + ttlMillis;
+        sessions.compute(record.getSessionId(), (id, current) -> {
+            if (current == null) {
+                Entry entry = new Entry(snapshot);
+                expiryWheel.schedule(entry, deadline);
+                return entry;
+            }
+            current.record = snapshot;
+            expiryWheel.extend(current, deadline);
+            return current;
+        });
+        if (snapshot.getStatus() == SessionStatus.ACTIVE) {
+            index(snapshot.getUser(), snapshot.getSessionId());
+        } else {
+            unindex(snapshot.getUser(), snapshot.getSessionId());
+        }
+    }
+
+    @Override
+    public List<String> create(SessionRecord record, int maxSessionsPerUser) {
+        save(record);
+        String user = record == null ? null : record.getUser();
+        if (user == null || maxSessionsPerUser <= 0) {
+            return List.of();
+        }
+        List<String> evicted = new ArrayList<>(0);
+        userSessions.computeIfPresent(user, (key, ids) -> {
+            int excess = ids.size() - maxSessionsPerUser;
+            if (excess <= 0) {
+                return ids;
+            }
+            ids.stream()
+                    .filter(id -> !id.equals(record.getSessionId()))
+                    .sorted(Comparator.comparingLong(this::lastSeenMillis))
+                    .limit(excess)
+                    .forEach(evicted::add);
+            evicted.forEach(ids::remove);
+            return ids;
+        });
+        for (String sessionId : evicted) {
+            Entry removed = sessions.remove(sessionId);
+            if (removed != null) {
+                expiryWheel.cancel(removed);
+            }
+        }
+        return evicted;
+    }
+
+    @Override
+    public List<String> findUserSessions(String user) {
+        if (user == null) {
+            return List.of();
+        }
+        List<String> found = new ArrayList<>(0);
+        userSessions.computeIfPresent(user, (key, ids) -> {
+            found.addAll(ids);
+            return ids;
+        });
+        found.sort(Comparator.comparingLong(this::lastSeenMillis).reversed());
+        return found;
+    }
+
+    @Override
+    public List<String> deleteUserSessions(String user) {
+        if (user == null) {
+            return List.of();
+        }
+        Set<String> ids = userSessions.remove(user);
+        if (ids == null) {
+            return List.of();
+        }
+        List<String> deleted = new ArrayList<>(ids.size());
+        for (String sessionId : ids) {
+            Entry removed = sessions.remove(sessionId);
+            if (removed != null) {
+                expiryWheel.cancel(removed);
+                deleted.add(sessionId);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public SessionRecord load(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Entry entry = sessions.get(sessionId);
+        if (entry == null || entry.getDeadline() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.record.copy();
+    }
+
+    @Override
+    public void refresh(SessionRecord record) {
+        save(record);
+    }
+
+    @Override
+    public SessionValidationResult validateAndTouch(String sessionId,
+                                                    String currentIp,
+                                                    String currentUserAgent,
+                                                    Instant now) {
+        if (sessionId == null) {
+            return SessionValidationResult.missing();
+        }
+        long nowMillis = now.toEpochMilli();
+        List<RiskEvent> changes = new ArrayList<>(0);
+        SessionRecord[] touched = new SessionRecord[1];
+        sessions.computeIfPresent(sessionId, (id, entry) -> {
+            if (entry.getDeadline() <= nowMillis) {
+                return entry;
+            }
+            SessionRecord record = entry.record.copy();
+            changes.addAll(SessionSecurityRepository.attributeChangeEvents(record, currentIp, currentUserAgent));
+            record.touch(now, currentIp, currentUserAgent);
+            record.markPersisted();
+            entry.record = record;
+            expiryWheel.extend(entry, nowMillis + ttlMillis);
+            touched[0] = record;
+            return entry;
+        });
+        if (touched[0] == null) {
+            return SessionValidationResult.missing();
+        }
+        appendEvents(changes);
+        SessionSecurityRepository.journalEvents(changes);
+        return SessionValidationResult.of(touched[0].copy(), !changes.isEmpty());
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Entry removed = sessions.remove(sessionId);
+        if (removed != null) {
+            expiryWheel.cancel(removed);
+            unindex(removed.record.getUser(), sessionId);
+        }
+    }
+
+    @Override
+    public void appendEvents(List<RiskEvent> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        synchronized (events) {
+            for (RiskEvent event : batch) {
+                events.addFirst(new StoredEvent(RiskEventIds.next(event.getTimestamp().toEpochMilli()), event));
+            }
+            while (events.size() > eventHistoryLimit) {
+                events.removeLast();
+            }
+        }
+    }
+
+    public List<RiskEvent> recentEvents(int limit) {
+        synchronized (events) {
+            List<RiskEvent> result = new ArrayList<>(Math.min(limit, events.size()));
+            Iterator<StoredEvent> iterator = events.iterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                result.add(iterator.next().event);
+            }
+            return result;
+        }
+    }
+
+    // The local history is bounded by eventHistoryLimit, so a filtered walk is cheap enough here.
+    @Override
+    public RiskEventPage queryEvents(RiskEventQuery query) {
+        if (query == null) {
+            return RiskEventPage.empty();
+        }
+        int limit = query.getLimit();
+        List<String> ids = new ArrayList<>();
+        List<RiskEvent> matched = new ArrayList<>();
+        boolean more = false;
+        synchronized (events) {
+            for (StoredEvent stored : events) {
+                if (!query.matches(stored.id, stored.event)) {
+                    continue;
+                }
+                if (matched.size() == limit) {
+                    more = true;
+                    break;
+                }
+                ids.add(stored.id);
+                matched.add(stored.event);
+            }
+        }
+        return new RiskEventPage(ids, matched, more ? ids.get(ids.size() - 1) : null);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public int scheduledExpiries() {
+        return expiryWheel.size();
+    }
+
+    @Override
+    public void close() {
+        expiryWheel.stop();
+        sessions.clear();
+        userSessions.clear();
+        synchronized (events) {
+            events.clear();
+        }
+    }
+
+    private void expire(HierarchicalTimingWheel.Timeout timeout) {
+        Entry entry = (Entry) timeout;
+        long now = System.currentTimeMillis();
+        boolean[] expired = new boolean[1];
+        sessions.computeIfPresent(entry.record.getSessionId(), (id, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            if (entry.getDeadline() > now) {
+                // touched concurrently with the tick that fired it
+                expiryWheel.schedule(entry, entry.getDeadline());
+                return entry;
+            }
+            expired[0] = true;
+            return null;
+        });
+        if (!expired[0]) {
+            return;
+        }
+        unindex(entry.record.getUser(), entry.record.getSessionId());
+        if (expiryListener != null) {
+            expiryListener.sessionExpired(entry.record.copy());
+        }
+    }
+
+    private void index(String user, String sessionId) {
+        if (user == null) {
+            return;
+        }
+        userSessions.compute(user, (key, ids) -> {
+            Set<String> updated = ids == null ? new HashSet<>() : ids;
+            updated.add(sessionId);
+            return updated;
+        });
+    }
+
+    private void unindex(String user, String sessionId) {
+        if (user == null) {
+            return;
+        }
+        userSessions.computeIfPresent(user, (key, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private long lastSeenMillis(String sessionId) {
+        Entry entry = sessions.get(sessionId);
+        if (entry == null || entry.record.getLastSeenAt() == null) {
+            return Long.MIN_VALUE;
+        }
+        return entry.record.getLastSeenAt().toEpochMilli();
+    }
+
+    private static final class StoredEvent {
+        private final String id;
+        private final RiskEvent event;
+
+        private StoredEvent(String id, RiskEvent event) {
+            this.id = id;
+            this.event = event;
+        }
+    }
+
+    private static final class Entry extends HierarchicalTimingWheel.Timeout {
+        private volatile SessionRecord record;
+
+        private Entry(SessionRecord record) {
+            this.record = record;
+        }
+    }
+}
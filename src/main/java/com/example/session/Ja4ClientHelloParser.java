@@ -0,0 +1,329 @@
+package com.example.session;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// Computes JA4 from ClientHello bytes handed over through SessionConstants.REQUEST_CLIENT_HELLO_ATTR;
+// capturing those bytes in the connector is up to the integrator.
+public final class Ja4ClientHelloParser {
+    private static final int CONTENT_TYPE_HANDSHAKE = 0x16;
+    private static final int HANDSHAKE_CLIENT_HELLO = 0x01;
+    private static final int EXT_SERVER_NAME = 0x0000;
+    private static final int EXT_SIGNATURE_ALGORITHMS = 0x000d;
+    private static final int EXT_ALPN = 0x0010;
+    private static final int EXT_SUPPORTED_VERSIONS = 0x002b;
+    private static final int HASH_CHARS = 12;
+    private static final int JA4_LENGTH = 10 + 1 + HASH_CHARS + 1 + HASH_CHARS;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private Ja4ClientHelloParser() {
+    }
+
+    public static String compute(ByteBuffer clientHello) {
+        return compute(clientHello, 't');
+    }
+
+    // Reads the buffer with absolute gets only, so its position and limit are left untouched.
+    // Accepts either a TLS record or a bare handshake message; returns null if the bytes are
+    // not a complete ClientHello.
+    public static String compute(ByteBuffer clientHello, char transport) {
+        if (clientHello == null) {
+            return null;
+        }
+        Scratch scratch = SCRATCH.get();
+        try {
+            if (!scratch.parse(clientHello)) {
+                return null;
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            return null;
+        }
+        return scratch.format(transport);
+    }
+
+    static boolean isGrease(int value) {
+        return (value & 0x0f0f) == 0x0a0a && (value >> 8) == (value & 0xff);
+    }
+
+    private static final class Scratch {
+        private final MessageDigest digest;
+        private final byte[] hash = new byte[32];
+        private final char[] out = new char[JA4_LENGTH];
+        private byte[] hashInput = new byte[512];
+        private int[] ciphers = new int[64];
+        private int[] extensions = new int[32];
+        private int[] signatureAlgorithms = new int[32];
+        private int cipherCount;
+        private int extensionCount;
+        private int hashedExtensionCount;
+        private int signatureAlgorithmCount;
+        private int legacyVersion;
+        private int supportedVersion;
+        private boolean sni;
+        private int alpnFirst;
+        private int alpnLast;
+        private boolean alpn;
+
+        private Scratch() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        private boolean parse(ByteBuffer buffer) {
+            cipherCount = 0;
+            extensionCount = 0;
+            hashedExtensionCount = 0;
+            signatureAlgorithmCount = 0;
+            supportedVersion = 0;
+            sni = false;
+            alpn = false;
+
+            int p = buffer.position();
+            int end = buffer.limit();
+            if (end - p < 4) {
+                return false;
+            }
+            if (u8(buffer, p) == CONTENT_TYPE_HANDSHAKE) {
+                int recordLength = u16(buffer, p + 3);
+                p += 5;
+                end = Math.min(end, p + recordLength);
+            }
+            if (u8(buffer, p) != HANDSHAKE_CLIENT_HELLO) {
+                return false;
+            }
+            int handshakeLength = u24(buffer, p + 1);
+            p += 4;
+            if (p + handshakeLength > end) {
+                return false;
+            }
+            end = p + handshakeLength;
+
+            legacyVersion = u16(buffer, p);
+            p += 2 + 32;
+            p += 1 + u8(buffer, p);
+
+            int cipherEnd = p + 2 + u16(buffer, p);
+            if (cipherEnd > end) {
+                return false;
+            }
+            for (p += 2; p + 1 < cipherEnd; p += 2) {
+                int cipher = u16(buffer, p);
+                if (!isGrease(cipher)) {
+                    ciphers = append(ciphers, cipherCount++, cipher);
+                }
+            }
+            p = cipherEnd;
+            p += 1 + u8(buffer, p);
+            if (p + 2 > end) {
+                return p <= end;
+            }
+
+            int extensionsEnd = Math.min(end, p + 2 + u16(buffer, p));
+            for (p += 2; p + 4 <= extensionsEnd; ) {
+                int type = u16(buffer, p);
+                int length = u16(buffer, p + 2);
+                p += 4;
+                if (p + length > extensionsEnd) {
+                    return false;
+                }
+                if (!isGrease(type)) {
+                    extensionCount++;
+                    if (type != EXT_SERVER_NAME && type != EXT_ALPN) {
+                        extensions = append(extensions, hashedExtensionCount++, type);
+                    }
+                }
+                switch (type) {
+                    case EXT_SERVER_NAME:
+                        sni = true;
+                        break;
+                    case EXT_ALPN:
+                        readAlpn(buffer, p, length);
+                        break;
+                    case EXT_SIGNATURE_ALGORITHMS:
+                        readSignatureAlgorithms(buffer, p, length);
+                        break;
+                    case EXT_SUPPORTED_VERSIONS:
+                        readSupportedVersions(buffer, p, length);
+                        break;
+                    default:
+                        break;
+                }
+                p += length;
+            }
+            return true;
+        }
+
+        private void readAlpn(ByteBuffer buffer, int p, int length) {
+            if (length < 3) {
+                return;
+            }
+            int first = u8(buffer, p + 2);
+            if (first == 0 || 3 + first > length) {
+                return;
+            }
+            alpn = true;
+            alpnFirst = u8(buffer, p + 3);
+            alpnLast = u8(buffer, p + 2 + first);
+        }
+
+        private void readSignatureAlgorithms(ByteBuffer buffer, int p, int length) {
+            if (length < 2) {
+                return;
+            }
+            int listEnd = p + 2 + Math.min(length - 2, u16(buffer, p));
+            for (int i = p + 2; i + 1 < listEnd; i += 2) {
+                int algorithm = u16(buffer, i);
+                if (!isGrease(algorithm)) {
+                    signatureAlgorithms = append(signatureAlgorithms, signatureAlgorithmCount++, algorithm);
+                }
+            }
+        }
+
+        private void readSupportedVersions(ByteBuffer buffer, int p, int length) {
+            if (length < 1) {
+                return;
+            }
+            int listEnd = p + 1 + Math.min(length - 1, u8(buffer, p));
+            for (int i = p + 1; i + 1 < listEnd; i += 2) {
+                int version = u16(buffer, i);
+                if (!isGrease(version) && version > supportedVersion) {
+                    supportedVersion = version;
+                }
+            }
+        }
+
+        private String format(char transport) {
+            int i = 0;
+            out[i++] = transport;
+            i = writeVersion(supportedVersion != 0 ? supportedVersion : legacyVersion, i);
+            out[i++] = sni ? 'd' : 'i';
+            i = writeCount(cipherCount, i);
+            i = writeCount(extensionCount, i);
+            if (alpn) {
+                if (isAlphanumeric(alpnFirst) && isAlphanumeric(alpnLast)) {
+                    out[i++] = (char) alpnFirst;
+                    out[i++] = (char) alpnLast;
+                } else {
+                    out[i++] = HEX[alpnFirst >> 4];
+                    out[i++] = HEX[alpnLast & 0x0f];
+                }
+            } else {
+                out[i++] = '0';
+                out[i++] = '0';
+            }
+            out[i++] = '_';
+
+            Arrays.sort(ciphers, 0, cipherCount);
+            int length = writeHexList(ciphers, cipherCount, 0);
+            i = writeTruncatedHash(cipherCount == 0 ? -1 : length, i);
+            out[i++] = '_';
+
+            Arrays.sort(extensions, 0, hashedExtensionCount);
+            length = writeHexList(extensions, hashedExtensionCount, 0);
+            if (signatureAlgorithmCount > 0) {
+                ensureCapacity(length + 1);
+                hashInput[length++] = '_';
+                length = writeHexList(signatureAlgorithms, signatureAlgorithmCount, length);
+            }
+            i = writeTruncatedHash(hashedExtensionCount == 0 ? -1 : length, i);
+            return new String(out, 0, i);
+        }
+
+        private int writeVersion(int version, int i) {
+            String code;
+            switch (version) {
+                case 0x0304: code = "13"; break;
+                case 0x0303: code = "12"; break;
+                case 0x0302: code = "11"; break;
+                case 0x0301: code = "10"; break;
+                case 0x0300: code = "s3"; break;
+                case 0x0002: code = "s2"; break;
+                case 0xfeff: code = "d1"; break;
+                case 0xfefd: code = "d2"; break;
+                case 0xfefc: code = "d3"; break;
+                default: code = "00"; break;
+            }
+            out[i++] = code.charAt(0);
+            out[i++] = code.charAt(1);
+            return i;
+        }
+
+        private int writeCount(int count, int i) {
+            int capped = Math.min(count, 99);
+            out[i++] = (char) ('0' + capped / 10);
+            out[i++] = (char) ('0' + capped % 10);
+            return i;
+        }
+
+        private int writeHexList(int[] values, int count, int length) {
+            ensureCapacity(length + count * 5);
+            for (int j = 0; j < count; j++) {
+                if (j > 0) {
+                    hashInput[length++] = ',';
+                }
+                int value = values[j];
+                hashInput[length++] = (byte) HEX[(value >> 12) & 0x0f];
+                hashInput[length++] = (byte) HEX[(value >> 8) & 0x0f];
+                hashInput[length++] = (byte) HEX[(value >> 4) & 0x0f];
+                hashInput[length++] = (byte) HEX[value & 0x0f];
+            }
+            return length;
+        }
+
+        private int writeTruncatedHash(int length, int i) {
+            if (length < 0) {
+                Arrays.fill(out, i, i + HASH_CHARS, '0');
+                return i + HASH_CHARS;
+            }
+            digest.reset();
+            digest.update(hashInput, 0, length);
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("SHA-256 digest failed", e);
+            }
+            for (int j = 0; j < HASH_CHARS / 2; j++) {
+                out[i++] = HEX[(hash[j] >> 4) & 0x0f];
+                out[i++] = HEX[hash[j] & 0x0f];
+            }
+            return i;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > hashInput.length) {
+                hashInput = Arrays.copyOf(hashInput, Math.max(hashInput.length * 2, required));
+            }
+        }
+
+        private static int[] append(int[] values, int index, int value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[index] = value;
+            return values;
+        }
+
+        private static boolean isAlphanumeric(int c) {
+            return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+        }
+
+        private static int u8(ByteBuffer buffer, int index) {
+            return buffer.get(index) & 0xff;
+        }
+
+        private static int u16(ByteBuffer buffer, int index) {
+            return (u8(buffer, index) << 8) | u8(buffer, index + 1);
+        }
+
+        private static int u24(ByteBuffer buffer, int index) {
+            return (u8(buffer, index) << 16) | u16(buffer, index + 1);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.session;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -19,53 +21,127 @@ public final class Ja4FingerprintExtractor {
             "X-Client-JA4",
             "Ja4-Fingerprint"
     };
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int SHA256_LENGTH = 32;
+    private static final String SSL_SESSION_CACHE_KEY = "ja4.fallbackFingerprint";
+    private static final ThreadLocal<FallbackScratch> SCRATCH = ThreadLocal.withInitial(FallbackScratch::new);
 
     private Ja4FingerprintExtractor() {
     }
 
     public static Optional<String> readHeaderFingerprint(HttpServletRequest request) {
-        return Arrays.stream(HEADER_CANDIDATES)
-                .map(request::getHeader)
-                .filter(Objects::nonNull)
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .findFirst();
+        return Optional.ofNullable(probeHeaders(request));
     }
 
     public static String extract(HttpServletRequest request) {
-        Optional<String> provided = readHeaderFingerprint(request);
-        if (provided.isPresent()) {
-            return provided.get();
+        String connector = readConnectorFingerprint(request);
+        if (connector != null) {
+            return connector;
+        }
+        String provided = probeHeaders(request);
+        if (provided != null) {
+            return provided;
         }
         String fallback = computeFallbackFingerprint(request);
         LOGGER.debug("Falling back to locally-derived fingerprint {}", fallback);
         return fallback;
     }
 
+    // Connector-supplied handshake data wins over headers: it comes from the TLS peer itself rather
+    // than from anything the client can set. The computed value is cached on the request.
+    private static String readConnectorFingerprint(HttpServletRequest request) {
+        Object computed = request.getAttribute(SessionConstants.REQUEST_JA4_ATTR);
+        if (computed instanceof String) {
+            return (String) computed;
+        }
+        Object clientHello = request.getAttribute(SessionConstants.REQUEST_CLIENT_HELLO_ATTR);
+        ByteBuffer buffer;
+        if (clientHello instanceof ByteBuffer) {
+            buffer = (ByteBuffer) clientHello;
+        } else if (clientHello instanceof byte[]) {
+            buffer = ByteBuffer.wrap((byte[]) clientHello);
+        } else {
+            return null;
+        }
+        String fingerprint = Ja4ClientHelloParser.compute(buffer);
+        if (fingerprint == null) {
+            LOGGER.debug("Ignoring unparseable ClientHello attribute for {}", request.getRequestURI());
+            return null;
+        }
+        request.setAttribute(SessionConstants.REQUEST_JA4_ATTR, fingerprint);
+        return fingerprint;
+    }
+
+    private static String probeHeaders(HttpServletRequest request) {
+        for (String name : HEADER_CANDIDATES) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                value = value.trim();
+                if (!value.isEmpty()) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
     private static String computeFallbackFingerprint(HttpServletRequest request) {
         SSLSession session = (SSLSession) request.getAttribute("jakarta.servlet.request.ssl_session");
         if (session == null) {
             session = (SSLSession) request.getAttribute("javax.servlet.request.ssl_session");
         }
 
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        String remoteAddr = forwardedFor == null ? request.getRemoteAddr() : null;
+        String userAgent = request.getHeader("User-Agent");
+
+        // Protocol, cipher and TLS session id are fixed for the lifetime of the SSLSession, so a
+        // keep-alive client only pays for the digest again when its address or User-Agent changes.
+        if (session != null) {
+            Object cached = session.getValue(SSL_SESSION_CACHE_KEY);
+            if (cached instanceof CachedFingerprint
+                    && ((CachedFingerprint) cached).matches(forwardedFor, remoteAddr, userAgent)) {
+                return ((CachedFingerprint) cached).fingerprint;
+            }
+        }
+
         String protocol = session != null ? session.getProtocol() : request.getProtocol();
         String cipherSuite = session != null ? session.getCipherSuite() : readCipherAttribute(request);
-        String tlsSessionId = session != null ? bytesToHex(session.getId()) : "no-session";
-        String remoteAddress = Optional.ofNullable(request.getHeader("X-Forwarded-For"))
-                .map(value -> value.split(",", 2)[0].trim())
-                .filter(s -> !s.isEmpty())
-                .orElseGet(request::getRemoteAddr);
-        String userAgent = Optional.ofNullable(request.getHeader("User-Agent")).orElse("unknown-agent");
-
-        String canonical = String.join("|",
-                "proto=" + protocol,
-                "cipher=" + cipherSuite,
-                "tlsId=" + tlsSessionId,
-                "addr=" + remoteAddress,
-                "ua=" + userAgent
-        );
-        LOGGER.debug("Derived fallback canonical string for fingerprint: {}", canonical);
-        return sha256Hex(canonical);
+        byte[] tlsSessionId = session != null ? session.getId() : null;
+
+        // Builds the UTF-8 bytes of "proto=..|cipher=..|tlsId=..|addr=..|ua=.." straight into a
+        // per-thread buffer so the digest input matches the historical canonical string exactly.
+        FallbackScratch scratch = SCRATCH.get();
+        scratch.reset();
+        scratch.append("proto=").append(String.valueOf(protocol));
+        scratch.append("|cipher=").append(String.valueOf(cipherSuite));
+        scratch.append("|tlsId=");
+        if (tlsSessionId != null) {
+            scratch.appendHex(tlsSessionId);
+        } else {
+            scratch.append("no-session");
+        }
+        scratch.append("|addr=");
+        if (!scratch.appendFirstForwarded(forwardedFor)) {
+            scratch.append(String.valueOf(remoteAddr != null ? remoteAddr : request.getRemoteAddr()));
+        }
+        scratch.append("|ua=").append(userAgent != null ? userAgent : "unknown-agent");
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Derived fallback canonical string for fingerprint: {}",
+                    new String(scratch.input, 0, scratch.length, StandardCharsets.UTF_8));
+        }
+        String fingerprint = scratch.sha256Hex();
+        if (session != null) {
+            try {
+                session.putValue(SSL_SESSION_CACHE_KEY,
+                        new CachedFingerprint(forwardedFor, remoteAddr, userAgent, fingerprint));
+            } catch (RuntimeException ex) {
+                // some SSLSession implementations are read-only views; caching is best effort
+                LOGGER.debug("Could not cache fallback fingerprint on TLS session: {}", ex.getMessage());
+            }
+        }
+        return fingerprint;
     }
 
     private static String readCipherAttribute(HttpServletRequest request) {
@@ -76,21 +152,118 @@ public final class Ja4FingerprintExtractor {
         return cipher != null ? cipher.toString() : "unknown-cipher";
     }
 
-    private static String sha256Hex(String canonical) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(canonical.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("SHA-256 not available", e);
+    private static final class CachedFingerprint {
+        private final String forwardedFor;
+        private final String remoteAddr;
+        private final String userAgent;
+        private final String fingerprint;
+
+        private CachedFingerprint(String forwardedFor, String remoteAddr, String userAgent, String fingerprint) {
+            this.forwardedFor = forwardedFor;
+            this.remoteAddr = remoteAddr;
+            this.userAgent = userAgent;
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean matches(String forwardedFor, String remoteAddr, String userAgent) {
+            return Objects.equals(this.forwardedFor, forwardedFor)
+                    && Objects.equals(this.remoteAddr, remoteAddr)
+                    && Objects.equals(this.userAgent, userAgent);
         }
     }
 
-    private static String bytesToHex(byte[] data) {
-        StringBuilder sb = new StringBuilder(data.length * 2);
-        for (byte b : data) {
-            sb.append(String.format("%02x", b));
+    private static final class FallbackScratch {
+        private final MessageDigest digest;
+        private final byte[] hash = new byte[SHA256_LENGTH];
+        private final char[] hex = new char[SHA256_LENGTH * 2];
+        private byte[] input = new byte[512];
+        private int length;
+
+        private FallbackScratch() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        private void reset() {
+            length = 0;
+        }
+
+        private FallbackScratch append(String value) {
+            return append(value, 0, value.length());
+        }
+
+        private FallbackScratch append(String value, int start, int end) {
+            ensureCapacity(end - start);
+            for (int i = start; i < end; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    appendUtf8(value.substring(i, end));
+                    return this;
+                }
+                input[length++] = (byte) c;
+            }
+            return this;
+        }
+
+        private void appendUtf8(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, input, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void appendHex(byte[] data) {
+            ensureCapacity(data.length * 2);
+            for (byte b : data) {
+                input[length++] = (byte) HEX[(b >> 4) & 0x0F];
+                input[length++] = (byte) HEX[b & 0x0F];
+            }
+        }
+
+        private boolean appendFirstForwarded(String forwardedFor) {
+            if (forwardedFor == null) {
+                return false;
+            }
+            int end = forwardedFor.indexOf(',');
+            if (end < 0) {
+                end = forwardedFor.length();
+            }
+            int start = 0;
+            while (start < end && forwardedFor.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && forwardedFor.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                return false;
+            }
+            append(forwardedFor, start, end);
+            return true;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > input.length) {
+                input = Arrays.copyOf(input, Math.max(input.length * 2, length + additional));
+            }
+        }
+
+        private String sha256Hex() {
+            digest.reset();
+            digest.update(input, 0, length);
+            try {
+                digest.digest(hash, 0, SHA256_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException("SHA-256 digest failed", e);
+            }
+            for (int i = 0; i < SHA256_LENGTH; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0x0F];
+                hex[i * 2 + 1] = HEX[hash[i] & 0x0F];
+            }
+            return new String(hex);
         }
-        return sb.toString();
     }
 }
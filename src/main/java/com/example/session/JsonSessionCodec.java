@@ -0,0 +1,29 @@
+package com.example.session;
+
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+
+public class JsonSessionCodec implements SessionCodec {
+    private static final Gson GSON = new Gson();
+
+    @Override
+    public byte[] encodeSession(SessionRecord record) {
+        return GSON.toJson(record).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public SessionRecord decodeSession(byte[] payload) {
+        SessionRecord record = GSON.fromJson(new String(payload, StandardCharsets.UTF_8), SessionRecord.class);
+        return record == null ? null : record.internFingerprints();
+    }
+
+    @Override
+    public byte[] encodeEvent(RiskEvent event) {
+        return GSON.toJson(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public RiskEvent decodeEvent(byte[] payload) {
+        return GSON.fromJson(new String(payload, StandardCharsets.UTF_8), RiskEvent.class);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.session;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LocalFingerprintDictionary implements FingerprintDictionary {
+    static final LocalFingerprintDictionary SHARED = new LocalFingerprintDictionary(65_536);
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private volatile String[] values = new String[256];
+    private int size;
+
+    // Fingerprints come from client-controlled headers, so the dictionary is bounded; anything past
+    // the limit simply stays a plain string.
+    public LocalFingerprintDictionary(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    @Override
+    public int idOf(String fingerprint) {
+        if (fingerprint == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(fingerprint);
+        if (id != null) {
+            return id;
+        }
+        return assign(fingerprint);
+    }
+
+    @Override
+    public int find(String fingerprint) {
+        if (fingerprint == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(fingerprint);
+        return id == null ? NO_ID : id;
+    }
+
+    @Override
+    public String lookup(int id) {
+        String[] current = values;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized int assign(String fingerprint) {
+        Integer existing = ids.get(fingerprint);
+        if (existing != null) {
+            return existing;
+        }
+        if (size >= maxEntries) {
+            return NO_ID;
+        }
+        int id = size;
+        String[] current = values;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.min(maxEntries, current.length * 2));
+        }
+        current[id] = fingerprint;
+        // publish the value before the id so a reader that finds the id always sees its string
+        values = current;
+        ids.put(fingerprint, id);
+        size++;
+        return id;
+    }
+}
@@ -23,6 +23,15 @@ public class LoginServlet extends HttpServlet {
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            login(request, response);
+        } finally {
+            SessionMetrics.LOGIN.recordSince(start);
+        }
+    }
+
+    private void login(HttpServletRequest request, HttpServletResponse response) throws IOException {
         LoginRequest loginRequest;
         try {
             loginRequest = GSON.fromJson(request.getReader(), LoginRequest.class);
@@ -37,19 +46,39 @@ public class LoginServlet extends HttpServlet {
             return;
         }
 
+        String clientIp = HttpRequestUtils.resolveClientIp(request);
+        AbuseDetector abuseDetector = SessionSecurityRepository.getAbuseDetector();
+        String peerIp = abuseDetector == null ? null : HttpRequestUtils.resolvePeerIp(request);
+        if (abuseDetector != null && abuseDetector.isLoginBlocked(peerIp, loginRequest.getUsername())) {
+            SessionMetrics.LOGIN_THROTTLED.increment();
+            response.setHeader("Retry-After", Long.toString(abuseDetector.getRetryAfterSeconds()));
+            response.sendError(429, "Too many failed login attempts");
+            return;
+        }
+
         boolean authenticated = AuthService.authenticate(loginRequest.getUsername(), loginRequest.getPassword());
         if (!authenticated) {
+            SessionMetrics.LOGIN_FAILURE.increment();
+            if (abuseDetector != null) {
+                abuseDetector.recordLoginFailure(peerIp, loginRequest.getUsername());
+            }
             response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid username or password");
             return;
         }
 
-        String ja4Fingerprint = Ja4FingerprintExtractor.extract(request);
+        SessionMetrics.LOGIN_SUCCESS.increment();
+        String ja4Fingerprint = FingerprintDictionary.local().intern(Ja4FingerprintExtractor.extract(request));
+        RevokedSessionFilter revokedSessions = SessionSecurityRepository.getRevokedSessions();
+        HttpSession existing = request.getSession(false);
+        if (existing != null && revokedSessions != null && revokedSessions.mightContain(existing.getId())) {
+            // never bind a fresh login to an id the filter will reject
+            existing.invalidate();
+        }
         HttpSession session = request.getSession(true);
         session.setAttribute(SessionConstants.SESSION_USER_ATTR, loginRequest.getUsername());
         session.setAttribute(SessionConstants.SESSION_FINGERPRINT_ATTR, ja4Fingerprint);
         session.setMaxInactiveInterval(900); // 15 minutes
 
-        String clientIp = HttpRequestUtils.resolveClientIp(request);
         String userAgent = HttpRequestUtils.resolveUserAgent(request);
         Map<String, String> clientSignals = Optional.ofNullable(loginRequest.getClientSignals()).orElse(Collections.emptyMap());
         String clientFingerprint = Optional.ofNullable(loginRequest.getClientFingerprint()).orElse(ja4Fingerprint);
@@ -62,7 +91,18 @@ public class LoginServlet extends HttpServlet {
                 userAgent,
                 clientIp,
                 clientSignals);
-        SessionSecurityRepository.persistSession(record);
+        try {
+            SessionSecurityRepository.createSession(record);
+        } catch (SessionStoreUnavailableException ex) {
+            LOGGER.warn("Login for {} rejected: {}", loginRequest.getUsername(), ex.getMessage());
+            session.invalidate();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Session store unavailable");
+            return;
+        }
+        CardinalitySketches sketches = SessionSecurityRepository.getSketches();
+        if (sketches != null) {
+            sketches.recordLogin(record.getUser(), ja4Fingerprint, clientIp);
+        }
 
         Map<String, Object> payload = new HashMap<>();
         payload.put("status", "success");
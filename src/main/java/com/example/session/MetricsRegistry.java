@@ -0,0 +1,226 @@
+package com.example.session;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+public class MetricsRegistry {
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        Counter counter = new Counter(name, help, labelString(labels));
+        metrics.add(counter);
+        return counter;
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        Histogram histogram = new Histogram(name, help, labelString(labels));
+        metrics.add(histogram);
+        return histogram;
+    }
+
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        metrics.add(new FunctionMetric("gauge", name, help, labelString(labels), supplier));
+    }
+
+    public void functionCounter(String name, String help, DoubleSupplier supplier, String... labels) {
+        metrics.add(new FunctionMetric("counter", name, help, labelString(labels), supplier));
+    }
+
+    public void removeFunctionMetrics() {
+        metrics.removeIf(metric -> metric instanceof FunctionMetric);
+    }
+
+    public void writePrometheus(StringBuilder out) {
+        Map<String, List<Metric>> families = new LinkedHashMap<>();
+        for (Metric metric : metrics) {
+            families.computeIfAbsent(metric.name, name -> new ArrayList<>()).add(metric);
+        }
+        for (List<Metric> family : families.values()) {
+            Metric first = family.get(0);
+            out.append("# HELP ").append(first.name).append(' ').append(first.help).append('\n');
+            out.append("# TYPE ").append(first.name).append(' ').append(first.type()).append('\n');
+            for (Metric metric : family) {
+                metric.write(out);
+            }
+        }
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels must be name/value pairs");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(labels[i + 1].replace("\"", "\\\"")).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private abstract static class Metric {
+        final String name;
+        final String help;
+        final String labels;
+
+        Metric(String name, String help, String labels) {
+            this.name = name;
+            this.help = help;
+            this.labels = labels;
+        }
+
+        abstract String type();
+
+        abstract void write(StringBuilder out);
+
+        void sample(StringBuilder out, String suffix, String extraLabel, String value) {
+            out.append(name).append(suffix);
+            if (!labels.isEmpty() || extraLabel != null) {
+                out.append('{').append(labels);
+                if (extraLabel != null) {
+                    if (!labels.isEmpty()) {
+                        out.append(',');
+                    }
+                    out.append(extraLabel);
+                }
+                out.append('}');
+            }
+            out.append(' ').append(value).append('\n');
+        }
+    }
+
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help, String labels) {
+            super(name, help, labels);
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        String type() {
+            return "counter";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            sample(out, "", null, Long.toString(value.sum()));
+        }
+    }
+
+    // Power-of-two nanosecond buckets from ~1us to ~34s. Recording is a leading-zero count and
+    // two LongAdder increments, so it stays cheap and uncontended on the request path.
+    public static final class Histogram extends Metric {
+        private static final int MIN_SHIFT = 10;
+        private static final int BUCKETS = 26;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram(String name, String help, String labels) {
+            super(name, help, labels);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void recordNanos(long nanos) {
+            if (nanos <= 0) {
+                buckets[0].increment();
+                return;
+            }
+            int index = 64 - Long.numberOfLeadingZeros((nanos - 1) >>> MIN_SHIFT);
+            buckets[Math.min(index, BUCKETS)].increment();
+            sumNanos.add(nanos);
+        }
+
+        public void recordSince(long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            long total = 0;
+            for (LongAdder bucket : buckets) {
+                total += bucket.sum();
+            }
+            return total;
+        }
+
+        @Override
+        String type() {
+            return "histogram";
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += buckets[i].sum();
+                double upperSeconds = (double) (1L << (MIN_SHIFT + i)) / TimeUnit.SECONDS.toNanos(1);
+                sample(out, "_bucket", "le=\"" + format(upperSeconds) + "\"", Long.toString(cumulative));
+            }
+            cumulative += buckets[BUCKETS].sum();
+            sample(out, "_bucket", "le=\"+Inf\"", Long.toString(cumulative));
+            sample(out, "_sum", null, format((double) sumNanos.sum() / TimeUnit.SECONDS.toNanos(1)));
+            sample(out, "_count", null, Long.toString(cumulative));
+        }
+    }
+
+    private static final class FunctionMetric extends Metric {
+        private final String type;
+        private final DoubleSupplier supplier;
+
+        private FunctionMetric(String type, String name, String help, String labels, DoubleSupplier supplier) {
+            super(name, help, labels);
+            this.type = type;
+            this.supplier = supplier;
+        }
+
+        @Override
+        String type() {
+            return type;
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            double value;
+            try {
+                value = supplier.getAsDouble();
+            } catch (RuntimeException ex) {
+                return;
+            }
+            if (Double.isNaN(value)) {
+                return;
+            }
+            sample(out, "", null, format(value));
+        }
+    }
+}
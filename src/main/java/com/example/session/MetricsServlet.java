@@ -0,0 +1,22 @@
+package com.example.session;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+public class MetricsServlet extends HttpServlet {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        StringBuilder body = new StringBuilder(8192);
+        SessionMetrics.registry().writePrometheus(body);
+        resp.setContentType(CONTENT_TYPE);
+        try (PrintWriter writer = resp.getWriter()) {
+            writer.write(body.toString());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+public class RedisConfig {
+    private static final String DEFAULT_HOST = "redis";
+    private static final int DEFAULT_PORT = 6379;
+
+    private RedisTopology topology = RedisTopology.STANDALONE;
+    private List<String> nodes = new ArrayList<>(List.of(DEFAULT_HOST + ":" + DEFAULT_PORT));
+    private String sentinelMasterName = "mymaster";
+    private String user;
+    private String password;
+    private int poolMaxTotal = 16;
+    private int poolMaxIdle = 8;
+    private int poolMinIdle = 1;
+    private Duration poolMaxWait = Duration.ofSeconds(5);
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration socketTimeout = Duration.ofSeconds(5);
+    private int clusterMaxAttempts = 5;
+
+    public static RedisConfig fromEnvironment() {
+        RedisConfig config = new RedisConfig();
+        Optional.ofNullable(System.getenv("REDIS_TOPOLOGY"))
+                .map(value -> RedisTopology.valueOf(value.trim().toUpperCase(Locale.ROOT)))
+                .ifPresent(config::setTopology);
+        String nodes = System.getenv("REDIS_NODES");
+        if (nodes != null && !nodes.isBlank()) {
+            config.setNodes(List.of(nodes.split("\\s*,\\s*")));
+        } else {
+            String host = Optional.ofNullable(System.getenv("REDIS_HOST")).orElse(DEFAULT_HOST);
+            int port = Optional.ofNullable(System.getenv("REDIS_PORT"))
+                    .map(Integer::parseInt)
+                    .orElse(DEFAULT_PORT);
+            config.setNodes(List.of(host + ":" + port));
+        }
+        Optional.ofNullable(System.getenv("REDIS_SENTINEL_MASTER")).ifPresent(config::setSentinelMasterName);
+        Optional.ofNullable(System.getenv("REDIS_USER")).ifPresent(config::setUser);
+        Optional.ofNullable(System.getenv("REDIS_PASSWORD")).ifPresent(config::setPassword);
+        Optional.ofNullable(System.getenv("REDIS_POOL_MAX_TOTAL"))
+                .map(Integer::parseInt)
+                .ifPresent(config::setPoolMaxTotal);
+        return config;
+    }
+
+    public RedisTopology getTopology() {
+        return topology;
+    }
+
+    public RedisConfig setTopology(RedisTopology topology) {
+        this.topology = topology;
+        return this;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public RedisConfig setNodes(List<String> nodes) {
+        this.nodes = new ArrayList<>(nodes);
+        return this;
+    }
+
+    public String getSentinelMasterName() {
+        return sentinelMasterName;
+    }
+
+    public RedisConfig setSentinelMasterName(String sentinelMasterName) {
+        this.sentinelMasterName = sentinelMasterName;
+        return this;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public RedisConfig setUser(String user) {
+        this.user = user;
+        return this;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public RedisConfig setPassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    public int getPoolMaxTotal() {
+        return poolMaxTotal;
+    }
+
+    public RedisConfig setPoolMaxTotal(int poolMaxTotal) {
+        this.poolMaxTotal = poolMaxTotal;
+        return this;
+    }
+
+    public int getPoolMaxIdle() {
+        return poolMaxIdle;
+    }
+
+    public RedisConfig setPoolMaxIdle(int poolMaxIdle) {
+        this.poolMaxIdle = poolMaxIdle;
+        return this;
+    }
+
+    public int getPoolMinIdle() {
+        return poolMinIdle;
+    }
+
+    public RedisConfig setPoolMinIdle(int poolMinIdle) {
+        this.poolMinIdle = poolMinIdle;
+        return this;
+    }
+
+    public Duration getPoolMaxWait() {
+        return poolMaxWait;
+    }
+
+    public RedisConfig setPoolMaxWait(Duration poolMaxWait) {
+        this.poolMaxWait = poolMaxWait;
+        return this;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public RedisConfig setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public Duration getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public RedisConfig setSocketTimeout(Duration socketTimeout) {
+        this.socketTimeout = socketTimeout;
+        return this;
+    }
+
+    public int getClusterMaxAttempts() {
+        return clusterMaxAttempts;
+    }
+
+    public RedisConfig setClusterMaxAttempts(int clusterMaxAttempts) {
+        this.clusterMaxAttempts = clusterMaxAttempts;
+        return this;
+    }
+}
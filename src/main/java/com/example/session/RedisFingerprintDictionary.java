@@ -0,0 +1,184 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.params.ZAddParams;
+
+// Ids come from a sequence that is never reset, so an id always names the same value and the
+// process caches never go stale. Entries unused for longer than the idle TTL are evicted; each
+// process re-marks the ids it writes at least every quarter of the TTL, so an evicted id can no
+// longer be referenced by any live session payload as long as the TTL exceeds the session TTL.
+public class RedisFingerprintDictionary implements FingerprintDictionary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisFingerprintDictionary.class);
+    // one hash tag for all the keys so the assign script stays on a single cluster slot
+    private static final String IDS_KEY = "ja4:{fingerprints}:ids";
+    private static final String VALUES_KEY = "ja4:{fingerprints}:values";
+    private static final String SEQUENCE_KEY = "ja4:{fingerprints}:seq";
+    private static final String USED_KEY = "ja4:{fingerprints}:used";
+    private static final List<String> KEYS = List.of(IDS_KEY, VALUES_KEY, SEQUENCE_KEY, USED_KEY);
+    public static final int DEFAULT_MAX_ENTRIES = 65_536;
+    public static final Duration DEFAULT_IDLE_TTL = Duration.ofDays(1);
+    // ARGV: value, max entries, now (epoch millis), idle ttl millis
+    private static final String ASSIGN_SCRIPT = """
+            local now = tonumber(ARGV[3])
+            local id = redis.call('HGET', KEYS[1], ARGV[1])
+            if id then
+              redis.call('ZADD', KEYS[4], now, id)
+              return tonumber(id)
+            end
+            local idle = redis.call('ZRANGEBYSCORE', KEYS[4], '-inf', now - tonumber(ARGV[4]), 'LIMIT', 0, 100)
+            for _, old in ipairs(idle) do
+              local value = redis.call('HGET', KEYS[2], old)
+              if value then
+                redis.call('HDEL', KEYS[1], value)
+              end
+              redis.call('HDEL', KEYS[2], old)
+              redis.call('ZREM', KEYS[4], old)
+            end
+            if redis.call('ZCARD', KEYS[4]) >= tonumber(ARGV[2]) then
+              return -1
+            end
+            id = redis.call('INCR', KEYS[3]) - 1
+            redis.call('HSET', KEYS[1], ARGV[1], id)
+            redis.call('HSET', KEYS[2], id, ARGV[1])
+            redis.call('ZADD', KEYS[4], now, id)
+            return id
+            """;
+
+    private final ConcurrentHashMap<String, Entry> ids = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> values = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long idleTtlMillis;
+    private final long touchIntervalMillis;
+    private volatile String sha;
+
+    public RedisFingerprintDictionary() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_IDLE_TTL);
+    }
+
+    public RedisFingerprintDictionary(int maxEntries, Duration idleTtl) {
+        if (idleTtl == null || idleTtl.isNegative() || idleTtl.isZero()) {
+            throw new IllegalArgumentException("idleTtl must be positive");
+        }
+        this.maxEntries = Math.max(1, maxEntries);
+        this.idleTtlMillis = idleTtl.toMillis();
+        this.touchIntervalMillis = Math.max(1, idleTtlMillis / 4);
+    }
+
+    // Only pass server-derived fingerprints: every new value takes a slot in the shared dictionary.
+    @Override
+    public int idOf(String fingerprint) {
+        if (fingerprint == null) {
+            return NO_ID;
+        }
+        long now = System.currentTimeMillis();
+        Entry cached = ids.get(fingerprint);
+        if (cached != null) {
+            if (now - cached.touchedAt < touchIntervalMillis) {
+                return cached.id;
+            }
+            cached.touchedAt = now;
+            Boolean live;
+            try {
+                live = RedisManager.execute(jedis -> touch(jedis, cached.id, now));
+            } catch (Exception ex) {
+                LOGGER.warn("Fingerprint dictionary unavailable: {}", ex.getMessage());
+                return NO_ID;
+            }
+            if (live == null) {
+                return NO_ID;
+            }
+            if (live) {
+                return cached.id;
+            }
+            // evicted elsewhere after going idle; the id is retired for good, so assign a new one
+            ids.remove(fingerprint, cached);
+        }
+        Long assigned;
+        try {
+            assigned = RedisManager.execute(jedis -> assign(jedis, fingerprint, now));
+        } catch (Exception ex) {
+            LOGGER.warn("Fingerprint dictionary unavailable: {}", ex.getMessage());
+            return NO_ID;
+        }
+        if (assigned == null || assigned < 0 || assigned > Integer.MAX_VALUE) {
+            return NO_ID;
+        }
+        int id = assigned.intValue();
+        remember(fingerprint, id, now);
+        return id;
+    }
+
+    @Override
+    public int find(String fingerprint) {
+        Entry cached = fingerprint == null ? null : ids.get(fingerprint);
+        return cached == null ? NO_ID : cached.id;
+    }
+
+    // Ids are never reassigned, so a value fetched once can be cached for the life of the process.
+    @Override
+    public String lookup(int id) {
+        if (id < 0) {
+            return null;
+        }
+        String cached = values.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        String value = RedisManager.execute(jedis -> jedis.hget(VALUES_KEY, Integer.toString(id)));
+        if (value != null) {
+            remember(value, id, 0);
+        }
+        return value;
+    }
+
+    private static boolean touch(UnifiedJedis jedis, int id, long now) {
+        // XX never resurrects an evicted id; CH makes the reply say whether the id was still there
+        return jedis.zadd(USED_KEY, now, Integer.toString(id), ZAddParams.zAddParams().xx().ch()) == 1;
+    }
+
+    private Long assign(UnifiedJedis jedis, String fingerprint, long now) {
+        List<String> args = List.of(fingerprint, Integer.toString(maxEntries), Long.toString(now),
+                Long.toString(idleTtlMillis));
+        String current = sha;
+        if (current == null) {
+            current = load(jedis);
+        }
+        try {
+            return (Long) jedis.evalsha(current, KEYS, args);
+        } catch (JedisNoScriptException ex) {
+            return (Long) jedis.evalsha(load(jedis), KEYS, args);
+        }
+    }
+
+    private String load(UnifiedJedis jedis) {
+        String loaded = jedis.scriptLoad(ASSIGN_SCRIPT, IDS_KEY);
+        sha = loaded;
+        return loaded;
+    }
+
+    private void remember(String fingerprint, int id, long touchedAt) {
+        if (values.size() >= maxEntries) {
+            // only a cache: ids stay valid, so starting over just costs a few round trips
+            values.clear();
+            ids.clear();
+        }
+        String canonical = values.computeIfAbsent(id, key -> fingerprint);
+        ids.putIfAbsent(canonical, new Entry(id, touchedAt));
+    }
+
+    private static final class Entry {
+        private final int id;
+        private volatile long touchedAt;
+
+        private Entry(int id, long touchedAt) {
+            this.id = id;
+            this.touchedAt = touchedAt;
+        }
+    }
+}
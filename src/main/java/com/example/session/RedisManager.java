@@ -1,76 +1,179 @@
 package com.example.session;
 
-import java.time.Duration;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.ConnectionPoolConfig;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.JedisSentineled;
+import redis.clients.jedis.UnifiedJedis;
 
 public final class RedisManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(RedisManager.class);
-    private static final String DEFAULT_HOST = "redis";
-    private static final int DEFAULT_PORT = 6379;
-    private static final int DEFAULT_TIMEOUT = 5000;
 
-    private static final JedisPool POOL;
-    private static final boolean ENABLED;
+    private static RedisConfig config;
+    private static volatile UnifiedJedis client;
+    private static volatile RedisTopology topology = RedisTopology.STANDALONE;
+    private static volatile boolean initialized;
+    // set by closePool so a late caller cannot lazily build a pool nobody will close
+    private static volatile boolean closed;
 
-    static {
-        JedisPool pool = null;
-        boolean enabled = false;
-        try {
-            String host = Optional.ofNullable(System.getenv("REDIS_HOST")).orElse(DEFAULT_HOST);
-            int port = Optional.ofNullable(System.getenv("REDIS_PORT"))
-                    .map(Integer::parseInt)
-                    .orElse(DEFAULT_PORT);
-            String password = System.getenv("REDIS_PASSWORD");
-
-            JedisPoolConfig config = new JedisPoolConfig();
-            config.setMaxTotal(16);
-            config.setMaxIdle(8);
-            config.setMinIdle(1);
-            config.setMaxWait(Duration.ofSeconds(5));
-
-            if (password != null && !password.isBlank()) {
-                pool = new JedisPool(config, host, port, DEFAULT_TIMEOUT, password);
-            } else {
-                pool = new JedisPool(config, host, port, DEFAULT_TIMEOUT);
-            }
-            enabled = true;
-            LOGGER.info("Redis support enabled (host={}, port={})", host, port);
-        } catch (Exception ex) {
-            LOGGER.warn("Redis disabled: {}", ex.getMessage());
-        }
-        POOL = pool;
-        ENABLED = enabled;
+    private RedisManager() {
     }
 
-    private RedisManager() {
+    public static synchronized void configure(RedisConfig redisConfig) {
+        closePool();
+        config = redisConfig;
+        closed = false;
+    }
+
+    // Allows the pool to be built again after closePool, with the current configuration.
+    public static synchronized void reopen() {
+        closed = false;
     }
 
     public static boolean isEnabled() {
-        return ENABLED;
+        return client() != null;
+    }
+
+    public static boolean isClustered() {
+        return client() != null && topology == RedisTopology.CLUSTER;
     }
 
-    public static void closePool() {
-        if (POOL != null) {
-            POOL.close();
+    public static synchronized void closePool() {
+        closed = true;
+        UnifiedJedis current = client;
+        client = null;
+        initialized = false;
+        if (current != null) {
+            current.close();
         }
     }
 
     public static <T> T execute(RedisCallback<T> callback) {
-        if (!ENABLED || POOL == null) {
+        UnifiedJedis current = client();
+        if (current == null) {
             return null;
         }
-        try (Jedis jedis = POOL.getResource()) {
-            return callback.doInRedis(jedis);
+        long start = System.nanoTime();
+        try {
+            return callback.doInRedis(current);
+        } finally {
+            SessionMetrics.REDIS_COMMAND.recordSince(start);
+        }
+    }
+
+    public static void subscribe(JedisPubSub pubSub, String... channels) {
+        UnifiedJedis current = client();
+        if (current == null) {
+            return;
+        }
+        current.subscribe(pubSub, channels);
+    }
+
+    // Sentinel-managed pools are not reachable through the Jedis API, so only standalone and
+    // cluster deployments report pool statistics.
+    public static RedisPoolStats poolStats() {
+        UnifiedJedis current = client;
+        List<GenericObjectPool<Connection>> pools = new ArrayList<>();
+        if (current instanceof JedisPooled) {
+            pools.add(((JedisPooled) current).getPool());
+        } else if (current instanceof JedisCluster) {
+            pools.addAll(((JedisCluster) current).getClusterNodes().values());
+        }
+        if (pools.isEmpty()) {
+            return RedisPoolStats.EMPTY;
+        }
+        int active = 0;
+        int idle = 0;
+        int waiters = 0;
+        long meanWait = 0;
+        long maxWait = 0;
+        for (GenericObjectPool<Connection> pool : pools) {
+            active += pool.getNumActive();
+            idle += pool.getNumIdle();
+            waiters += pool.getNumWaiters();
+            meanWait = Math.max(meanWait, pool.getMeanBorrowWaitDuration().toMillis());
+            maxWait = Math.max(maxWait, pool.getMaxBorrowWaitDuration().toMillis());
+        }
+        return new RedisPoolStats(pools.size(), active, idle, waiters, meanWait, maxWait);
+    }
+
+    private static UnifiedJedis client() {
+        if (!initialized && !closed) {
+            initialize();
+        }
+        return client;
+    }
+
+    private static synchronized void initialize() {
+        if (initialized || closed) {
+            return;
+        }
+        RedisConfig settings = config != null ? config : RedisConfig.fromEnvironment();
+        try {
+            client = createClient(settings);
+            topology = settings.getTopology();
+            LOGGER.info("Redis support enabled (topology={}, nodes={}, poolMaxTotal={})",
+                    settings.getTopology(), settings.getNodes(), settings.getPoolMaxTotal());
+        } catch (Exception ex) {
+            LOGGER.warn("Redis disabled: {}", ex.getMessage());
+        }
+        initialized = true;
+    }
+
+    private static UnifiedJedis createClient(RedisConfig settings) {
+        ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
+        poolConfig.setMaxTotal(settings.getPoolMaxTotal());
+        poolConfig.setMaxIdle(settings.getPoolMaxIdle());
+        poolConfig.setMinIdle(settings.getPoolMinIdle());
+        poolConfig.setMaxWait(settings.getPoolMaxWait());
+
+        DefaultJedisClientConfig.Builder builder = DefaultJedisClientConfig.builder()
+                .connectionTimeoutMillis((int) settings.getConnectTimeout().toMillis())
+                .socketTimeoutMillis((int) settings.getSocketTimeout().toMillis());
+        if (settings.getUser() != null && !settings.getUser().isBlank()) {
+            builder.user(settings.getUser());
+        }
+        if (settings.getPassword() != null && !settings.getPassword().isBlank()) {
+            builder.password(settings.getPassword());
+        }
+        JedisClientConfig clientConfig = builder.build();
+
+        Set<HostAndPort> nodes = new LinkedHashSet<>();
+        for (String node : settings.getNodes()) {
+            nodes.add(HostAndPort.from(node.trim()));
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("no Redis nodes configured");
+        }
+        switch (settings.getTopology()) {
+            case CLUSTER:
+                return new JedisCluster(nodes, clientConfig, settings.getClusterMaxAttempts(), poolConfig);
+            case SENTINEL:
+                JedisClientConfig sentinelConfig = DefaultJedisClientConfig.builder()
+                        .connectionTimeoutMillis((int) settings.getConnectTimeout().toMillis())
+                        .socketTimeoutMillis((int) settings.getSocketTimeout().toMillis())
+                        .build();
+                return new JedisSentineled(settings.getSentinelMasterName(), clientConfig, poolConfig, nodes,
+                        sentinelConfig);
+            default:
+                return new JedisPooled(poolConfig, nodes.iterator().next(), clientConfig);
         }
     }
 
     @FunctionalInterface
     public interface RedisCallback<T> {
-        T doInRedis(Jedis jedis);
+        T doInRedis(UnifiedJedis jedis);
     }
 }
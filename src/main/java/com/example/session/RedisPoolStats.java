@@ -0,0 +1,45 @@
+package com.example.session;
+
+public final class RedisPoolStats {
+    static final RedisPoolStats EMPTY = new RedisPoolStats(0, 0, 0, 0, 0, 0);
+
+    private final int pools;
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final long meanBorrowWaitMillis;
+    private final long maxBorrowWaitMillis;
+
+    RedisPoolStats(int pools, int active, int idle, int waiters, long meanBorrowWaitMillis, long maxBorrowWaitMillis) {
+        this.pools = pools;
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.meanBorrowWaitMillis = meanBorrowWaitMillis;
+        this.maxBorrowWaitMillis = maxBorrowWaitMillis;
+    }
+
+    public boolean isAvailable() {
+        return pools > 0;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public long getMeanBorrowWaitMillis() {
+        return meanBorrowWaitMillis;
+    }
+
+    public long getMaxBorrowWaitMillis() {
+        return maxBorrowWaitMillis;
+    }
+}
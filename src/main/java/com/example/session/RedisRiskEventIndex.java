@@ -0,0 +1,154 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.util.SafeEncoder;
+
+// Each event body is stored once under ja4:risk-event:<id> with the retention as TTL. Every
+// dimension keeps a sorted set of ids (all scores 0, so members order lexicographically, which
+// for these ids means by time) trimmed by age and by count on every write. Every event is in the
+// by-time index, so deleting the bodies trimmed from it caps the bodies at maxEntriesPerKey; ids
+// left in other indexes after that are dropped as dangling when a query reaches them.
+public class RedisRiskEventIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisRiskEventIndex.class);
+    private static final String EVENT_KEY_PREFIX = "ja4:risk-event:";
+    private static final String INDEX_KEY_PREFIX = "ja4:risk-events:by-";
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(7);
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final long retentionMillis;
+    private final long retentionSeconds;
+    private final int maxEntriesPerKey;
+
+    public RedisRiskEventIndex() {
+        this(DEFAULT_RETENTION, DEFAULT_MAX_ENTRIES);
+    }
+
+    public RedisRiskEventIndex(Duration retention, int maxEntriesPerKey) {
+        if (retention == null || retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("retention must be positive");
+        }
+        this.retentionMillis = retention.toMillis();
+        this.retentionSeconds = Math.max(1, retention.getSeconds());
+        this.maxEntriesPerKey = Math.max(1, maxEntriesPerKey);
+    }
+
+    static String eventKey(String id) {
+        return EVENT_KEY_PREFIX + id;
+    }
+
+    static String indexKey(RiskEventDimension dimension, String value) {
+        if (dimension == RiskEventDimension.ALL) {
+            return INDEX_KEY_PREFIX + dimension.getKey();
+        }
+        return INDEX_KEY_PREFIX + dimension.getKey() + ":" + value;
+    }
+
+    // Returns the ids about to be trimmed from the by-time index by count; once the pipeline has
+    // been synced, hand the responses to deleteTrimmed so their bodies go with them.
+    Response<List<String>> index(AbstractPipeline pipeline, RiskEvent event, byte[] payload, long nowMillis) {
+        String id = RiskEventIds.next(event.getTimestamp().toEpochMilli());
+        pipeline.setex(SafeEncoder.encode(eventKey(id)), retentionSeconds, payload);
+        String expired = "(" + RiskEventIds.prefix(nowMillis - retentionMillis);
+        Response<List<String>> trimmed = null;
+        for (RiskEventDimension dimension : RiskEventDimension.values()) {
+            for (String value : dimension.valuesOf(event)) {
+                String key = indexKey(dimension, value);
+                pipeline.zadd(key, 0, id);
+                pipeline.zremrangeByLex(key, "-", expired);
+                if (dimension == RiskEventDimension.ALL) {
+                    trimmed = pipeline.zrange(key, 0, -(maxEntriesPerKey + 1));
+                }
+                pipeline.zremrangeByRank(key, 0, -(maxEntriesPerKey + 1));
+                pipeline.expire(key, retentionSeconds);
+            }
+        }
+        return trimmed;
+    }
+
+    void deleteTrimmed(UnifiedJedis jedis, List<Response<List<String>>> trimmed) {
+        List<String> keys = null;
+        for (Response<List<String>> response : trimmed) {
+            if (response == null) {
+                continue;
+            }
+            for (String id : response.get()) {
+                if (keys == null) {
+                    keys = new ArrayList<>();
+                }
+                keys.add(eventKey(id));
+            }
+        }
+        if (keys != null) {
+            jedis.del(keys.toArray(new String[0]));
+        }
+    }
+
+    RiskEventPage query(UnifiedJedis jedis, RiskEventQuery query, SessionCodec codec) {
+        if (query.getDimension() != RiskEventDimension.ALL
+                && (query.getValue() == null || query.getValue().isEmpty())) {
+            return RiskEventPage.empty();
+        }
+        String key = indexKey(query.getDimension(), query.getValue());
+        String max;
+        if (query.getCursor() != null) {
+            max = "(" + query.getCursor();
+        } else if (query.getTo() != null) {
+            max = "(" + RiskEventIds.prefix(query.getTo().toEpochMilli() + 1);
+        } else {
+            max = "+";
+        }
+        String min = query.getFrom() != null ? "[" + RiskEventIds.prefix(query.getFrom().toEpochMilli()) : "-";
+        int limit = query.getLimit();
+        List<String> ids = jedis.zrevrangeByLex(key, max, min, 0, limit + 1);
+        if (ids.isEmpty()) {
+            return RiskEventPage.empty();
+        }
+        boolean more = ids.size() > limit;
+        if (more) {
+            ids = ids.subList(0, limit);
+        }
+
+        List<Response<byte[]>> bodies = new ArrayList<>(ids.size());
+        try (AbstractPipeline pipeline = jedis.pipelined()) {
+            for (String id : ids) {
+                bodies.add(pipeline.get(SafeEncoder.encode(eventKey(id))));
+            }
+            pipeline.sync();
+        }
+        List<String> foundIds = new ArrayList<>(ids.size());
+        List<RiskEvent> events = new ArrayList<>(ids.size());
+        List<String> dangling = null;
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] body = bodies.get(i).get();
+            RiskEvent event = null;
+            if (body != null) {
+                try {
+                    event = codec.decodeEvent(body);
+                } catch (Exception ex) {
+                    LOGGER.warn("Failed to deserialize risk event {}: {}", ids.get(i), ex.getMessage());
+                }
+            }
+            if (event == null) {
+                if (dangling == null) {
+                    dangling = new ArrayList<>();
+                }
+                dangling.add(ids.get(i));
+                continue;
+            }
+            foundIds.add(ids.get(i));
+            events.add(event);
+        }
+        if (dangling != null) {
+            // bodies expire on their own TTL; drop the ids that outlived them
+            jedis.zrem(key, dangling.toArray(new String[0]));
+        }
+        return new RiskEventPage(foundIds, events, more ? ids.get(ids.size() - 1) : null);
+    }
+}
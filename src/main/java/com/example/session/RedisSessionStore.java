@@ -0,0 +1,675 @@
+package com.example.session;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+public class RedisSessionStore implements SessionStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisSessionStore.class);
+    private static final String SESSION_KEY_PREFIX = "ja4:session:";
+    // user -> session ids scored by last write; members older than the session TTL are dead
+    static final String USER_SESSIONS_KEY_PREFIX = "ja4:user-sessions:";
+    private static final String RISK_EVENTS_KEY = "ja4:risk-events";
+    private static final byte[] RISK_EVENTS_KEY_BYTES = SafeEncoder.encode(RISK_EVENTS_KEY);
+    private static final int SESSION_TTL_SECONDS = 3600;
+    private static final int EVENTS_HISTORY_LIMIT = 200;
+    private static final int BULK_CHUNK = 500;
+    // KEYS: user index; ARGV: session id, now millis, ttl seconds, max sessions
+    // Indexes the new session and removes the least recently written ones beyond the cap, never the
+    // new one itself. Returns the removed ids.
+    private static final String CREATE_SCRIPT = """
+            local now, ttl = tonumber(ARGV[2]), tonumber(ARGV[3])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - ttl * 1000)
+            redis.call('ZADD', KEYS[1], now, ARGV[1])
+            redis.call('EXPIRE', KEYS[1], ttl)
+            local excess = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[4])
+            if excess <= 0 then
+              return {}
+            end
+            local evicted = {}
+            for _, id in ipairs(redis.call('ZRANGE', KEYS[1], 0, excess)) do
+              if id ~= ARGV[1] and #evicted < excess then
+                evicted[#evicted + 1] = id
+              end
+            end
+            for i = 1, #evicted, 500 do
+              redis.call('ZREM', KEYS[1], unpack(evicted, i, math.min(i + 499, #evicted)))
+            end
+            return evicted
+            """;
+    // KEYS: session hash; ARGV: ttl seconds, 1 to replace the record or 0 to update it, then
+    // field/value pairs. An update is dropped when the session is gone, so a late write cannot
+    // leave a fragment behind; a replace also clears a blob written before the layout switch.
+    private static final String WRITE_FIELDS_SCRIPT = """
+            if ARGV[2] == '1' then
+              redis.call('DEL', KEYS[1])
+            elseif redis.call('EXISTS', KEYS[1]) == 0 then
+              return 0
+            end
+            if #ARGV > 2 then
+              redis.call('HSET', KEYS[1], unpack(ARGV, 3))
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """;
+
+    private final SessionCodec codec;
+    private final SessionRecordCache nearCache;
+    private final long touchCoalesceWindowMillis;
+    private final RedisRiskEventIndex eventIndex;
+    private final SessionLayout layout;
+    private final boolean scriptReadsEvents;
+    private final LongAdder coalescedTouches = new LongAdder();
+    private final LongAdder pipelineValidations = new LongAdder();
+    private final AtomicBoolean pipelineFallbackLogged = new AtomicBoolean();
+
+    public RedisSessionStore() {
+        this(new JsonSessionCodec(), null, Duration.ZERO, null);
+    }
+
+    public RedisSessionStore(SessionCodec codec, SessionRecordCache nearCache, Duration touchCoalesceWindow) {
+        this(codec, nearCache, touchCoalesceWindow, null);
+    }
+
+    // The risk event index is opt-in: pass null to skip it.
+
+    public RedisSessionStore(SessionCodec codec,
+                             SessionRecordCache nearCache,
+                             Duration touchCoalesceWindow,
+                             RedisRiskEventIndex eventIndex) {
+        this(codec, nearCache, touchCoalesceWindow, eventIndex, SessionLayout.BLOB);
+    }
+
+    // With the hash layout the codec only encodes risk events.
+    public RedisSessionStore(SessionCodec codec,
+                             SessionRecordCache nearCache,
+                             Duration touchCoalesceWindow,
+                             RedisRiskEventIndex eventIndex,
+                             SessionLayout layout) {
+        this.codec = codec == null ? new JsonSessionCodec() : codec;
+        this.nearCache = nearCache;
+        this.touchCoalesceWindowMillis = touchCoalesceWindow == null ? 0 : Math.max(0, touchCoalesceWindow.toMillis());
+        this.eventIndex = eventIndex;
+        this.layout = layout == null ? SessionLayout.BLOB : layout;
+        // the script pushes its events as JSON; the binary codec reads those through its legacy path,
+        // and with the hash layout it never has to decode the record itself
+        this.scriptReadsEvents = this.codec instanceof JsonSessionCodec
+                || (this.layout == SessionLayout.HASH && this.codec instanceof BinarySessionCodec);
+    }
+
+    public SessionLayout getLayout() {
+        return layout;
+    }
+
+    public SessionCodec getCodec() {
+        return codec;
+    }
+
+    public SessionRecordCache getNearCache() {
+        return nearCache;
+    }
+
+    public long getCoalescedTouchCount() {
+        return coalescedTouches.sum();
+    }
+
+    public long getPipelineValidationCount() {
+        return pipelineValidations.sum();
+    }
+
+    // In cluster mode the session id is wrapped in a hash tag so that every per-session key
+    // lands in the same slot as the session itself.
+    private static String sessionKey(String sessionId) {
+        if (RedisManager.isClustered()) {
+            return SESSION_KEY_PREFIX + "{" + sessionId + "}";
+        }
+        return SESSION_KEY_PREFIX + sessionId;
+    }
+
+    private static byte[] sessionKeyBytes(String sessionId) {
+        return SafeEncoder.encode(sessionKey(sessionId));
+    }
+
+    private static String userSessionsKey(String user) {
+        return USER_SESSIONS_KEY_PREFIX + user;
+    }
+
+    private static double liveSince(long nowMillis) {
+        return nowMillis - SESSION_TTL_SECONDS * 1000L;
+    }
+
+    // Keeps the index in step with a session write: active sessions are (re)scored, anything else
+    // no longer counts against the user.
+    private static void indexSession(AbstractPipeline pipeline, SessionRecord record, long nowMillis) {
+        if (record.getUser() == null) {
+            return;
+        }
+        String key = userSessionsKey(record.getUser());
+        if (record.getStatus() == SessionStatus.ACTIVE) {
+            pipeline.zadd(key, nowMillis, record.getSessionId());
+            pipeline.expire(key, SESSION_TTL_SECONDS);
+        } else {
+            pipeline.zrem(key, record.getSessionId());
+        }
+    }
+
+    // A blob is always rewritten whole; a hash gets only the fields changed since the record was
+    // read, or everything for a record that was never persisted.
+    private void writeSession(AbstractPipeline pipeline, SessionRecord record) {
+        if (layout == SessionLayout.BLOB) {
+            pipeline.setex(sessionKeyBytes(record.getSessionId()), SESSION_TTL_SECONDS, codec.encodeSession(record));
+            return;
+        }
+        pipeline.eval(WRITE_FIELDS_SCRIPT, List.of(sessionKey(record.getSessionId())), writeFieldsArgs(record));
+    }
+
+    // ARGV for WRITE_FIELDS_SCRIPT. A partial record never replaces, since the replace path
+    // deletes the hash first, and never writes the fields it was read without.
+    static List<String> writeFieldsArgs(SessionRecord record) {
+        boolean replace = record.getDirtyFields() == SessionRecord.ALL_FIELDS && !record.isPartial();
+        int fields = replace ? SessionRecord.ALL_FIELDS : record.getDirtyFields();
+        if (record.isPartial()) {
+            fields &= ~SessionHashLayout.UNLOADED_FIELDS;
+        }
+        List<String> args = new ArrayList<>(20);
+        args.add(Integer.toString(SESSION_TTL_SECONDS));
+        args.add(replace ? "1" : "0");
+        args.addAll(SessionHashLayout.encode(record, fields));
+        return args;
+    }
+
+    @Override
+    public void save(SessionRecord record) {
+        if (!RedisManager.isEnabled() || record == null) {
+            return;
+        }
+        boolean attributesChanged = record.hasDirtyAttributes();
+        long nowMillis = System.currentTimeMillis();
+        RedisManager.execute(jedis -> {
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                writeSession(pipeline, record);
+                indexSession(pipeline, record, nowMillis);
+                pipeline.sync();
+            }
+            return null;
+        });
+        record.markPersisted();
+        cacheRecord(record);
+        if (attributesChanged) {
+            SessionInvalidationBus.publish(record.getSessionId());
+        }
+    }
+
+    // One round trip for the write and the cap, and a second only when something was evicted.
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> create(SessionRecord record, int maxSessionsPerUser) {
+        if (record == null || record.getUser() == null || maxSessionsPerUser <= 0) {
+            save(record);
+            return List.of();
+        }
+        if (!RedisManager.isEnabled()) {
+            return List.of();
+        }
+        List<String> args = List.of(
+                record.getSessionId(),
+                Long.toString(System.currentTimeMillis()),
+                Integer.toString(SESSION_TTL_SECONDS),
+                Integer.toString(maxSessionsPerUser));
+        List<String> evicted = RedisManager.execute(jedis -> {
+            Response<Object> reply;
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                writeSession(pipeline, record);
+                reply = pipeline.eval(CREATE_SCRIPT, List.of(userSessionsKey(record.getUser())), args);
+                pipeline.sync();
+            }
+            List<String> ids = (List<String>) reply.get();
+            if (!ids.isEmpty()) {
+                deleteSessionKeys(jedis, ids, null);
+            }
+            return ids;
+        });
+        record.markPersisted();
+        cacheRecord(record);
+        if (evicted == null) {
+            return List.of();
+        }
+        evicted.forEach(this::invalidateCached);
+        return evicted;
+    }
+
+    @Override
+    public List<String> findUserSessions(String user) {
+        if (!RedisManager.isEnabled() || user == null) {
+            return List.of();
+        }
+        double since = liveSince(System.currentTimeMillis());
+        List<String> ids = RedisManager.execute(
+                jedis -> jedis.zrevrangeByScore(userSessionsKey(user), Double.POSITIVE_INFINITY, since));
+        return ids == null ? List.of() : ids;
+    }
+
+    // Reads the index once, then deletes every session key, clears the index and tells the other
+    // nodes' near caches in a single pipeline, chunked so thousands of sessions stay cheap.
+    @Override
+    public List<String> deleteUserSessions(String user) {
+        if (!RedisManager.isEnabled() || user == null) {
+            return List.of();
+        }
+        double since = liveSince(System.currentTimeMillis());
+        String key = userSessionsKey(user);
+        List<String> deleted = RedisManager.execute(jedis -> {
+            List<String> ids = jedis.zrangeByScore(key, since, Double.POSITIVE_INFINITY);
+            deleteSessionKeys(jedis, ids, key);
+            return ids;
+        });
+        if (deleted == null) {
+            return List.of();
+        }
+        deleted.forEach(this::invalidateCached);
+        return deleted;
+    }
+
+    // Session keys hash to different slots on a cluster, so they are deleted one per command.
+    private static void deleteSessionKeys(UnifiedJedis jedis, List<String> sessionIds, String indexKey) {
+        try (AbstractPipeline pipeline = jedis.pipelined()) {
+            for (int start = 0; start < sessionIds.size(); start += BULK_CHUNK) {
+                List<String> chunk = sessionIds.subList(start, Math.min(start + BULK_CHUNK, sessionIds.size()));
+                for (String sessionId : chunk) {
+                    pipeline.del(sessionKeyBytes(sessionId));
+                    SessionInvalidationBus.publish(pipeline, sessionId);
+                }
+                if (indexKey != null) {
+                    pipeline.zrem(indexKey, chunk.toArray(new String[0]));
+                }
+            }
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public SessionRecord load(String sessionId) {
+        if (!RedisManager.isEnabled() || sessionId == null) {
+            return null;
+        }
+        if (nearCache != null) {
+            SessionRecord cached = nearCache.get(sessionId);
+            // validation caches hash records without the client signals
+            if (cached != null && !cached.isPartial()) {
+                return cached;
+            }
+        }
+        SessionRecord record = RedisManager.execute(jedis -> readSession(jedis, sessionId, true));
+        cacheRecord(record);
+        return record;
+    }
+
+    // Without full, a hash is read without the client signals and creation time.
+    private SessionRecord readSession(UnifiedJedis jedis, String sessionId, boolean full) {
+        if (layout == SessionLayout.BLOB) {
+            return readBlob(jedis, sessionId);
+        }
+        String key = sessionKey(sessionId);
+        Map<String, String> hash = null;
+        List<String> fields = null;
+        try {
+            if (full) {
+                hash = jedis.hgetAll(key);
+            } else {
+                fields = jedis.hmget(key, SessionHashLayout.VALIDATION_FIELDS);
+            }
+        } catch (JedisDataException ex) {
+            if (ex.getMessage() == null || !ex.getMessage().startsWith("WRONGTYPE")) {
+                throw ex;
+            }
+            // written as a blob before the layout switch; the next write replaces it with a hash
+            SessionRecord legacy = readBlob(jedis, sessionId);
+            if (legacy != null) {
+                legacy.markAllDirty();
+            }
+            return legacy;
+        }
+        SessionRecord record;
+        try {
+            record = full ? SessionHashLayout.decode(sessionId, hash) : SessionHashLayout.decodePartial(sessionId, fields);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to deserialize session record {}: {}", sessionId, ex.getMessage());
+            return null;
+        }
+        if (record != null) {
+            record.markPersisted();
+        }
+        return record;
+    }
+
+    private SessionRecord readBlob(UnifiedJedis jedis, String sessionId) {
+        byte[] payload = jedis.get(sessionKeyBytes(sessionId));
+        if (payload == null) {
+            return null;
+        }
+        try {
+            SessionRecord record = codec.decodeSession(payload);
+            record.markPersisted();
+            return record;
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to deserialize session record {}: {}", sessionId, ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void refresh(SessionRecord record) {
+        if (!RedisManager.isEnabled() || record == null) {
+            return;
+        }
+        if (!record.needsPersist(touchCoalesceWindowMillis)) {
+            coalescedTouches.increment();
+            cacheRecord(record);
+            return;
+        }
+        save(record);
+    }
+
+    @Override
+    public SessionValidationResult validateAndTouch(String sessionId,
+                                                    String currentIp,
+                                                    String currentUserAgent,
+                                                    Instant now) {
+        return validateAndTouch(sessionId, null, currentIp, currentUserAgent, now);
+    }
+
+    @Override
+    public SessionValidationResult validateAndTouch(String sessionId,
+                                                    String expectedUser,
+                                                    String currentIp,
+                                                    String currentUserAgent,
+                                                    Instant now) {
+        if (!RedisManager.isEnabled() || sessionId == null) {
+            return SessionValidationResult.missing();
+        }
+        if (nearCache != null) {
+            SessionRecord cached = nearCache.get(sessionId);
+            if (cached != null && !cached.isDifferentIp(currentIp) && !cached.isDifferentUserAgent(currentUserAgent)) {
+                cached.touch(now, currentIp, currentUserAgent);
+                if (!cached.needsPersist(touchCoalesceWindowMillis)) {
+                    coalescedTouches.increment();
+                    nearCache.put(cached);
+                    return SessionValidationResult.of(cached, false);
+                }
+            }
+        }
+        // the script touches both the session key and the shared event list, which live in
+        // different slots on a cluster, and writes its events as JSON
+        boolean clustered = RedisManager.isClustered();
+        if (scriptReadsEvents && !clustered) {
+            try {
+                return validateWithScript(sessionId, expectedUser, currentIp, currentUserAgent, now);
+            } catch (JedisDataException ex) {
+                LOGGER.warn("Validation script failed for session {}, falling back: {}", sessionId, ex.getMessage());
+            }
+        } else if (pipelineFallbackLogged.compareAndSet(false, true)) {
+            LOGGER.warn("Session validation uses the pipeline instead of the script ({}): each request costs an"
+                            + " extra round trip and attribute changes are not applied atomically",
+                    clustered ? "cluster topology" : codec.getClass().getSimpleName() + " with the " + layout
+                            + " layout");
+        }
+        pipelineValidations.increment();
+        return validateWithPipeline(sessionId, currentIp, currentUserAgent, now);
+    }
+
+    @Override
+    public SessionValidationResult peek(String sessionId) {
+        if (!RedisManager.isEnabled() || sessionId == null) {
+            return SessionValidationResult.missing();
+        }
+        if (nearCache != null) {
+            SessionRecord cached = nearCache.get(sessionId);
+            if (cached != null) {
+                return SessionValidationResult.of(cached, false);
+            }
+        }
+        SessionRecord record = RedisManager.execute(jedis -> readSession(jedis, sessionId, false));
+        cacheRecord(record);
+        return SessionValidationResult.of(record, false);
+    }
+
+    private SessionValidationResult validateWithScript(String sessionId,
+                                                       String expectedUser,
+                                                       String currentIp,
+                                                       String currentUserAgent,
+                                                       Instant now) {
+        List<String> keys = expectedUser == null
+                ? List.of(sessionKey(sessionId), RISK_EVENTS_KEY)
+                : List.of(sessionKey(sessionId), RISK_EVENTS_KEY, userSessionsKey(expectedUser));
+        List<String> args = List.of(
+                Optional.ofNullable(currentIp).orElse(""),
+                Optional.ofNullable(currentUserAgent).orElse(""),
+                Long.toString(now.toEpochMilli()),
+                Integer.toString(SESSION_TTL_SECONDS),
+                Long.toString(touchCoalesceWindowMillis),
+                Integer.toString(EVENTS_HISTORY_LIMIT),
+                Optional.ofNullable(expectedUser).orElse(""),
+                sessionId);
+        SessionValidationScript script = layout == SessionLayout.HASH
+                ? SessionValidationScript.HASH
+                : SessionValidationScript.BLOB;
+        List<Object> reply = RedisManager.execute(jedis -> script.execute(jedis, keys, args));
+        if (reply == null) {
+            invalidateCached(sessionId);
+            return SessionValidationResult.missing();
+        }
+        // the hash script replies with the fields themselves in place of the payload
+        int flagsAt = layout == SessionLayout.HASH ? SessionHashLayout.VALIDATION_FIELDS.length : 1;
+        SessionRecord record;
+        try {
+            record = layout == SessionLayout.HASH
+                    ? SessionHashLayout.decodePartial(sessionId, castStrings(reply.subList(0, flagsAt)))
+                    : codec.decodeSession(((String) reply.get(0)).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to deserialize session record {}: {}", sessionId, ex.getMessage());
+            return SessionValidationResult.missing();
+        }
+        if (record == null) {
+            return SessionValidationResult.missing();
+        }
+        boolean attributesChanged = ((Long) reply.get(flagsAt)) == 1L;
+        boolean written = ((Long) reply.get(flagsAt + 1)) == 1L;
+        if (reply.size() > flagsAt + 2) {
+            recordScriptEvents(reply.subList(flagsAt + 2, reply.size()));
+        }
+        record.markPersisted();
+        if (written) {
+            if (record.getUser() != null && !record.getUser().equals(expectedUser)) {
+                // the script only indexes under the key it was given
+                long nowMillis = now.toEpochMilli();
+                RedisManager.execute(jedis -> {
+                    try (AbstractPipeline pipeline = jedis.pipelined()) {
+                        indexSession(pipeline, record, nowMillis);
+                        pipeline.sync();
+                    }
+                    return null;
+                });
+            }
+            if (attributesChanged) {
+                SessionInvalidationBus.publish(sessionId);
+            }
+        } else {
+            record.touch(now, currentIp, currentUserAgent);
+            coalescedTouches.increment();
+        }
+        cacheRecord(record);
+        return SessionValidationResult.of(record, attributesChanged);
+    }
+
+    private SessionValidationResult validateWithPipeline(String sessionId,
+                                                         String currentIp,
+                                                         String currentUserAgent,
+                                                         Instant now) {
+        SessionValidationResult result = RedisManager.execute(jedis -> {
+            SessionRecord record = readSession(jedis, sessionId, false);
+            if (record == null) {
+                return SessionValidationResult.missing();
+            }
+            List<RiskEvent> events = SessionSecurityRepository.attributeChangeEvents(record, currentIp, currentUserAgent);
+            record.touch(now, currentIp, currentUserAgent);
+            boolean persist = record.needsPersist(touchCoalesceWindowMillis);
+            if (events.isEmpty() && !persist) {
+                coalescedTouches.increment();
+                return SessionValidationResult.of(record, false);
+            }
+            List<Response<List<String>>> trimmed = new ArrayList<>(events.size());
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                long nowMillis = now.toEpochMilli();
+                for (RiskEvent event : events) {
+                    byte[] payload = codec.encodeEvent(event);
+                    pipeline.lpush(RISK_EVENTS_KEY_BYTES, payload);
+                    if (eventIndex != null) {
+                        trimmed.add(eventIndex.index(pipeline, event, payload, nowMillis));
+                    }
+                }
+                if (!events.isEmpty()) {
+                    pipeline.ltrim(RISK_EVENTS_KEY_BYTES, 0, EVENTS_HISTORY_LIMIT - 1);
+                }
+                if (persist) {
+                    writeSession(pipeline, record);
+                    indexSession(pipeline, record, nowMillis);
+                }
+                pipeline.sync();
+            }
+            if (!trimmed.isEmpty()) {
+                eventIndex.deleteTrimmed(jedis, trimmed);
+            }
+            SessionSecurityRepository.journalEvents(events);
+            if (persist) {
+                record.markPersisted();
+            }
+            return SessionValidationResult.of(record, !events.isEmpty());
+        });
+        if (result == null || !result.isPresent()) {
+            invalidateCached(sessionId);
+            return SessionValidationResult.missing();
+        }
+        if (result.isAttributesChanged()) {
+            SessionInvalidationBus.publish(sessionId);
+        }
+        cacheRecord(result.getRecord());
+        return result;
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        if (!RedisManager.isEnabled() || sessionId == null) {
+            return;
+        }
+        RedisManager.execute(jedis -> {
+            SessionRecord record = readSession(jedis, sessionId, false);
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                pipeline.del(sessionKeyBytes(sessionId));
+                if (record != null && record.getUser() != null) {
+                    pipeline.zrem(userSessionsKey(record.getUser()), sessionId);
+                }
+                pipeline.sync();
+            }
+            return null;
+        });
+        invalidateCached(sessionId);
+        SessionInvalidationBus.publish(sessionId);
+    }
+
+    @Override
+    public void appendEvents(List<RiskEvent> events) {
+        if (!RedisManager.isEnabled() || events == null || events.isEmpty()) {
+            return;
+        }
+        byte[][] payloads = new byte[events.size()][];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = codec.encodeEvent(events.get(i));
+        }
+        RedisManager.execute(jedis -> {
+            List<Response<List<String>>> trimmed = new ArrayList<>(payloads.length);
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                pipeline.lpush(RISK_EVENTS_KEY_BYTES, payloads);
+                pipeline.ltrim(RISK_EVENTS_KEY_BYTES, 0, EVENTS_HISTORY_LIMIT - 1);
+                if (eventIndex != null) {
+                    long nowMillis = System.currentTimeMillis();
+                    for (int i = 0; i < payloads.length; i++) {
+                        trimmed.add(eventIndex.index(pipeline, events.get(i), payloads[i], nowMillis));
+                    }
+                }
+                pipeline.sync();
+            }
+            if (!trimmed.isEmpty()) {
+                eventIndex.deleteTrimmed(jedis, trimmed);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public RiskEventPage queryEvents(RiskEventQuery query) {
+        if (!RedisManager.isEnabled() || eventIndex == null || query == null) {
+            return RiskEventPage.empty();
+        }
+        RiskEventPage page = RedisManager.execute(jedis -> eventIndex.query(jedis, query, codec));
+        return page == null ? RiskEventPage.empty() : page;
+    }
+
+    // The validation script pushes its attribute-change events onto the list itself and hands
+    // them back so they can be journaled and indexed; indexing costs an extra round trip, but only
+    // when something changed.
+    private void recordScriptEvents(List<Object> encodedEvents) {
+        List<RiskEvent> events = new ArrayList<>(encodedEvents.size());
+        List<byte[]> payloads = new ArrayList<>(encodedEvents.size());
+        for (Object encoded : encodedEvents) {
+            byte[] payload = ((String) encoded).getBytes(StandardCharsets.UTF_8);
+            events.add(codec.decodeEvent(payload));
+            payloads.add(payload);
+        }
+        SessionSecurityRepository.journalEvents(events);
+        if (eventIndex == null) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        RedisManager.execute(jedis -> {
+            List<Response<List<String>>> trimmed = new ArrayList<>(events.size());
+            try (AbstractPipeline pipeline = jedis.pipelined()) {
+                for (int i = 0; i < events.size(); i++) {
+                    trimmed.add(eventIndex.index(pipeline, events.get(i), payloads.get(i), nowMillis));
+                }
+                pipeline.sync();
+            }
+            eventIndex.deleteTrimmed(jedis, trimmed);
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> castStrings(List<Object> values) {
+        return (List<String>) (List<?>) values;
+    }
+
+    private void cacheRecord(SessionRecord record) {
+        if (nearCache != null && record != null) {
+            nearCache.put(record);
+        }
+    }
+
+    private void invalidateCached(String sessionId) {
+        if (nearCache != null) {
+            nearCache.invalidate(sessionId);
+        }
+    }
+}
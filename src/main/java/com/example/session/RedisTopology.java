@@ -0,0 +1,7 @@
+package com.example.session;
+
+public enum RedisTopology {
+    STANDALONE,
+    SENTINEL,
+    CLUSTER
+}
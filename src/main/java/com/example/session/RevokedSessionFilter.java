@@ -0,0 +1,170 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Node-local Bloom filter of session ids revoked by a JA4 mismatch, logout or termination, checked
+// by the filter before any store access. Two generations are kept and rotated on a timer, so an id
+// is remembered for between one and two rotation periods without the filter filling up. A false
+// positive sends a live session back to login, so the rate is kept very low (default one in a
+// million); there are no false negatives for ids added or loaded in the last rotation period.
+public final class RevokedSessionFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevokedSessionFilter.class);
+
+    private final int expectedPerGeneration;
+    private final double falsePositiveRate;
+    private final Duration rotation;
+    private final LongAdder revocations = new LongAdder();
+    private volatile Generation current;
+    private volatile Generation previous;
+    private ScheduledExecutorService rotator;
+
+    public RevokedSessionFilter(int expectedPerGeneration, double falsePositiveRate, Duration rotation) {
+        if (expectedPerGeneration <= 0) {
+            throw new IllegalArgumentException("expectedPerGeneration must be positive");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        if (rotation == null || rotation.toMillis() <= 0) {
+            throw new IllegalArgumentException("rotation must be positive");
+        }
+        this.expectedPerGeneration = expectedPerGeneration;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rotation = rotation;
+        this.current = newGeneration();
+        this.previous = newGeneration();
+    }
+
+    public boolean mightContain(String sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        long hash = Hashing.hash64(sessionId);
+        return current.mightContain(hash) || previous.mightContain(hash);
+    }
+
+    public void add(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        current.add(Hashing.hash64(sessionId));
+        revocations.increment();
+    }
+
+    public void addAll(Collection<String> sessionIds) {
+        Generation generation = current;
+        for (String sessionId : sessionIds) {
+            generation.add(Hashing.hash64(sessionId));
+        }
+    }
+
+    // The outgoing current generation becomes the previous one; the new current generation starts
+    // from the given ids, typically the cluster-wide revocations of the last period, which also
+    // repairs anything this node missed while its subscription was down.
+    public synchronized void rotate(Collection<String> seed) {
+        Generation next = newGeneration();
+        if (seed != null) {
+            for (String sessionId : seed) {
+                next.add(Hashing.hash64(sessionId));
+            }
+        }
+        previous = current;
+        current = next;
+    }
+
+    public synchronized void startRotation() {
+        if (rotator != null) {
+            return;
+        }
+        rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ja4-revoked-session-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = rotation.toMillis();
+        rotator.scheduleAtFixedRate(() -> {
+            try {
+                rotate(SessionInvalidationBus.loadRevocations(rotation));
+            } catch (RuntimeException ex) {
+                // rotate anyway; ids this node saw itself during the last period stay in previous
+                LOGGER.warn("Could not reload revoked sessions: {}", ex.getMessage());
+                rotate(null);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (rotator != null) {
+            rotator.shutdownNow();
+            rotator = null;
+        }
+    }
+
+    public Duration getRotation() {
+        return rotation;
+    }
+
+    public long getRevocationCount() {
+        return revocations.sum();
+    }
+
+    private Generation newGeneration() {
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedPerGeneration * Math.log(falsePositiveRate) / (ln2 * ln2));
+        // probes are 32-bit, so the filter is capped at 2^32 bits (512 MiB)
+        int words = (int) Math.min(1L << 26, Math.max(1, (bits + 63) / 64));
+        int hashes = (int) Math.max(1, Math.round((double) words * 64 / expectedPerGeneration * ln2));
+        return new Generation(words, hashes);
+    }
+
+    private static final class Generation {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashes;
+
+        private Generation(int words, int hashes) {
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashes = hashes;
+        }
+
+        private void add(long hash) {
+            int h1 = (int) (hash >>> 32);
+            int h2 = (int) hash | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = index(h1 + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((bits.get(word) & mask) == 0) {
+                    bits.getAndAccumulate(word, mask, (a, b) -> a | b);
+                }
+            }
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) (hash >>> 32);
+            int h2 = (int) hash | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = index(h1 + i * h2);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Kirsch-Mitzenmacher double hashing gives the probe, and a multiply-shift maps it onto the
+        // bit range without a division
+        private long index(int probe) {
+            return ((probe & 0xffffffffL) * bitCount) >>> 32;
+        }
+    }
+}
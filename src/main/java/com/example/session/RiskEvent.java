@@ -40,6 +40,30 @@ public class RiskEvent {
         return event;
     }
 
+    static RiskEvent restore(RiskEventType type,
+                             String sessionId,
+                             String user,
+                             String ja4Fingerprint,
+                             String clientFingerprint,
+                             String ipAddress,
+                             String userAgent,
+                             String message,
+                             Map<String, String> details,
+                             long timestamp) {
+        RiskEvent event = new RiskEvent();
+        event.type = type;
+        event.sessionId = sessionId;
+        event.user = user;
+        event.ja4Fingerprint = ja4Fingerprint;
+        event.clientFingerprint = clientFingerprint;
+        event.ipAddress = ipAddress;
+        event.userAgent = userAgent;
+        event.message = message;
+        event.details = details;
+        event.timestamp = timestamp;
+        return event;
+    }
+
     public RiskEventType getType() {
         return type;
     }
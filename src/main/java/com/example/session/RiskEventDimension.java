@@ -0,0 +1,55 @@
+package com.example.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public enum RiskEventDimension {
+    ALL("time"),
+    USER("user"),
+    SESSION("session"),
+    IP("ip"),
+    FINGERPRINT("fingerprint");
+
+    private final String key;
+
+    RiskEventDimension(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // FINGERPRINT covers both the fingerprint bound to the session and the one received on a mismatch.
+    List<String> valuesOf(RiskEvent event) {
+        switch (this) {
+            case ALL:
+                return Collections.singletonList("");
+            case USER:
+                return single(event.getUser());
+            case SESSION:
+                return single(event.getSessionId());
+            case IP:
+                return single(event.getIpAddress());
+            default:
+                String bound = event.getJa4Fingerprint();
+                Map<String, String> details = event.getDetails();
+                String received = details != null ? details.get("receivedJa4") : null;
+                if (received == null || received.isEmpty() || received.equals(bound)) {
+                    return single(bound);
+                }
+                List<String> values = new ArrayList<>(2);
+                if (bound != null && !bound.isEmpty()) {
+                    values.add(bound);
+                }
+                values.add(received);
+                return values;
+        }
+    }
+
+    private static List<String> single(String value) {
+        return value == null || value.isEmpty() ? Collections.emptyList() : Collections.singletonList(value);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.session;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.DateTimeException;
+import java.time.Instant;
+
+// GET ?since=<epoch millis or ISO-8601>. Streams whole journal segments as NDJSON, oldest first;
+// since selects segments, so the first segment may start slightly earlier. The journal stores
+// session ids hashed, so lines match the ids RiskEventQueryServlet returns.
+public class RiskEventExportServlet extends HttpServlet {
+    private static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final AdminAuthorizer authorizer;
+
+    public RiskEventExportServlet(AdminAuthorizer authorizer) {
+        if (authorizer == null) {
+            throw new IllegalArgumentException("authorizer must not be null");
+        }
+        this.authorizer = authorizer;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!authorizer.isAuthorized(req)) {
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_FORBIDDEN, "Not authorized", null);
+            return;
+        }
+        Object attribute = req.getServletContext().getAttribute(SessionConstants.CONTEXT_EVENT_JOURNAL);
+        if (!(attribute instanceof RiskEventJournal)) {
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_NOT_FOUND, "Risk event journal disabled", null);
+            return;
+        }
+        long since;
+        try {
+            since = parseSince(req.getParameter("since"));
+        } catch (NumberFormatException | DateTimeException | ArithmeticException ex) {
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid since parameter", null);
+            return;
+        }
+        resp.setContentType(CONTENT_TYPE);
+        resp.setCharacterEncoding("UTF-8");
+        OutputStream out = resp.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        ((RiskEventJournal) attribute).exportTo(channel, since);
+        out.flush();
+    }
+
+    private static long parseSince(String value) {
+        if (value == null || value.isBlank()) {
+            return Long.MIN_VALUE;
+        }
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(trimmed);
+        }
+        return Instant.parse(trimmed).toEpochMilli();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.session;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Event ids sort lexicographically by time: a zero-padded epoch-millis prefix, then a per-node
+// suffix so that ids minted on different nodes within the same millisecond never collide.
+final class RiskEventIds {
+    private static final String NODE = String.format("%06x", new SecureRandom().nextInt(1 << 24));
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private RiskEventIds() {
+    }
+
+    static String next(long timestampMillis) {
+        return String.format("%013d-%s-%08x", Math.max(0, timestampMillis), NODE, SEQUENCE.getAndIncrement());
+    }
+
+    // Every id minted at or after the given millisecond sorts after this prefix.
+    static String prefix(long timestampMillis) {
+        return String.format("%013d", Math.max(0, timestampMillis));
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.session;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Append-only NDJSON journal of risk events. The active segment is a fixed-size shared mapping
+// written by a single flusher thread; it is sealed (flushed and truncated to its content) when
+// it fills up or the rotation interval passes, and the oldest sealed segments are deleted
+// beyond maxSegments. Writes land in the page cache, so they survive a process crash but not a
+// power loss before writeback. Session ids are written hashed (Hashing.sessionIdHash), so neither
+// the segments on disk nor an export of them carry a usable cookie value.
+public class RiskEventJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RiskEventJournal.class);
+    private static final String SEGMENT_PREFIX = "ja4-events-";
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final byte NEWLINE = '\n';
+    private static final int RECOVERY_CHUNK = 64 * 1024;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long rotationMillis;
+    private final int maxSegments;
+    private final SessionCodec codec = new JsonSessionCodec();
+    private final ArrayDeque<Segment> sealed = new ArrayDeque<>();
+    private final LongAdder writtenEvents = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+
+    private Segment active;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private volatile long activeLength;
+    private boolean closed;
+
+    public RiskEventJournal(Path directory, long segmentBytes, Duration rotationInterval, int maxSegments)
+            throws IOException {
+        if (segmentBytes <= 0 || rotationInterval == null || rotationInterval.isZero() || rotationInterval.isNegative()) {
+            throw new IllegalArgumentException("segmentBytes and rotationInterval must be positive");
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) Math.min(segmentBytes, Integer.MAX_VALUE);
+        this.rotationMillis = rotationInterval.toMillis();
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.sum();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.sum();
+    }
+
+    public synchronized int getSegmentCount() {
+        return sealed.size() + (active != null ? 1 : 0);
+    }
+
+    public synchronized void append(List<RiskEvent> events) {
+        if (closed) {
+            throw new IllegalStateException("journal is closed");
+        }
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            if (activeBuffer == null || (activeLength > 0 && now - active.startMillis >= rotationMillis)) {
+                rotate(now, 0);
+            }
+            int position = (int) activeLength;
+            long bytes = 0;
+            for (RiskEvent event : events) {
+                byte[] line = codec.encodeEvent(redact(event));
+                int needed = line.length + 1;
+                if (position + needed > activeBuffer.capacity()) {
+                    activeLength = position;
+                    rotate(now, needed);
+                    position = 0;
+                }
+                activeBuffer.put(position, line);
+                activeBuffer.put(position + line.length, NEWLINE);
+                position += needed;
+                bytes += needed;
+            }
+            // published only after the bytes are in the mapping, so exports never see a partial line
+            activeLength = position;
+            writtenEvents.add(events.size());
+            writtenBytes.add(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static RiskEvent redact(RiskEvent event) {
+        return RiskEvent.restore(event.getType(), Hashing.sessionIdHash(event.getSessionId()), event.getUser(),
+                event.getJa4Fingerprint(), event.getClientFingerprint(), event.getIpAddress(), event.getUserAgent(),
+                event.getMessage(), event.getDetails(), event.getTimestamp().toEpochMilli());
+    }
+
+    // Streams every segment that may hold events at or after sinceMillis, oldest first. Segment
+    // bodies go through FileChannel.transferTo, which avoids a user-space copy whenever the target
+    // is a file or socket channel.
+    public long exportTo(WritableByteChannel target, long sinceMillis) throws IOException {
+        List<Segment> snapshot = new ArrayList<>();
+        synchronized (this) {
+            snapshot.addAll(sealed);
+            if (active != null && activeLength > 0) {
+                snapshot.add(new Segment(active.path, active.startMillis, activeLength));
+            }
+        }
+        long total = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            Segment segment = snapshot.get(i);
+            long endMillis = i + 1 < snapshot.size() ? snapshot.get(i + 1).startMillis : Long.MAX_VALUE;
+            if (endMillis <= sinceMillis) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < segment.length) {
+                    long transferred = channel.transferTo(position, segment.length - position, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+                total += position;
+            } catch (NoSuchFileException ex) {
+                // deleted by retention after the snapshot was taken
+            }
+        }
+        return total;
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            seal();
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to seal risk event journal segment: {}", ex.getMessage());
+        }
+    }
+
+    private void rotate(long now, int minimumBytes) throws IOException {
+        seal();
+        long start = now;
+        Path path;
+        while (true) {
+            path = directory.resolve(segmentName(start));
+            try {
+                activeChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException ex) {
+                start++;
+            }
+        }
+        int size = Math.max(segmentBytes, minimumBytes);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        active = new Segment(path, start, 0);
+        activeLength = 0;
+        enforceRetention();
+    }
+
+    private void seal() throws IOException {
+        if (active == null) {
+            return;
+        }
+        long length = activeLength;
+        activeBuffer.force();
+        activeChannel.truncate(length);
+        activeChannel.close();
+        if (length > 0) {
+            sealed.addLast(new Segment(active.path, active.startMillis, length));
+        } else {
+            Files.deleteIfExists(active.path);
+        }
+        active = null;
+        activeChannel = null;
+        activeBuffer = null;
+        activeLength = 0;
+    }
+
+    private void enforceRetention() {
+        while (sealed.size() + (active != null ? 1 : 0) > maxSegments) {
+            Segment oldest = sealed.pollFirst();
+            if (oldest == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to delete risk event journal segment {}: {}", oldest.path, ex.getMessage());
+            }
+        }
+    }
+
+    // A segment left behind by a crash still has its zero-filled tail and possibly a half-written
+    // line; cut it back to the last newline, since every complete line ends with one.
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(null);
+        for (Path path : paths) {
+            long length;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                length = contentLength(channel);
+                if (length < channel.size()) {
+                    channel.truncate(length);
+                }
+            }
+            if (length == 0) {
+                Files.deleteIfExists(path);
+                continue;
+            }
+            sealed.addLast(new Segment(path, parseStart(path), length));
+        }
+        enforceRetention();
+    }
+
+    private static long contentLength(FileChannel channel) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(RECOVERY_CHUNK);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - RECOVERY_CHUNK);
+            chunk.clear().limit((int) (end - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) > 0) {
+                // keep reading until the chunk is full
+            }
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                if (chunk.get(i) == NEWLINE) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private static String segmentName(long startMillis) {
+        return SEGMENT_PREFIX + String.format("%013d", startMillis) + SEGMENT_SUFFIX;
+    }
+
+    private static long parseStart(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException ex) {
+            return 0;
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long startMillis;
+        private final long length;
+
+        private Segment(Path path, long startMillis, long length) {
+            this.path = path;
+            this.startMillis = startMillis;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.session;
+
+public enum RiskEventOverflowPolicy {
+    DROP,
+    BLOCK
+}
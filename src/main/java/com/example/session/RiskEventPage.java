@@ -0,0 +1,35 @@
+package com.example.session;
+
+import java.util.Collections;
+import java.util.List;
+
+public class RiskEventPage {
+    private static final RiskEventPage EMPTY = new RiskEventPage(Collections.emptyList(), Collections.emptyList(), null);
+
+    private final List<String> ids;
+    private final List<RiskEvent> events;
+    private final String nextCursor;
+
+    public RiskEventPage(List<String> ids, List<RiskEvent> events, String nextCursor) {
+        this.ids = ids;
+        this.events = events;
+        this.nextCursor = nextCursor;
+    }
+
+    public static RiskEventPage empty() {
+        return EMPTY;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public List<RiskEvent> getEvents() {
+        return events;
+    }
+
+    // null once the timeline is exhausted
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
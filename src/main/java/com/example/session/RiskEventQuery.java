@@ -0,0 +1,80 @@
+package com.example.session;
+
+import java.time.Instant;
+
+public class RiskEventQuery {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private RiskEventDimension dimension = RiskEventDimension.ALL;
+    private String value;
+    private Instant from;
+    private Instant to;
+    private String cursor;
+    private int limit = DEFAULT_LIMIT;
+
+    public RiskEventDimension getDimension() {
+        return dimension;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public RiskEventQuery setFilter(RiskEventDimension dimension, String value) {
+        this.dimension = dimension == null ? RiskEventDimension.ALL : dimension;
+        this.value = this.dimension == RiskEventDimension.ALL ? null : value;
+        return this;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public RiskEventQuery setFrom(Instant from) {
+        this.from = from;
+        return this;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public RiskEventQuery setTo(Instant to) {
+        this.to = to;
+        return this;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    // The cursor is the id of the last event on the previous page; results continue strictly after it.
+    public RiskEventQuery setCursor(String cursor) {
+        this.cursor = cursor == null || cursor.isBlank() ? null : cursor;
+        return this;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public RiskEventQuery setLimit(int limit) {
+        this.limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return this;
+    }
+
+    boolean matches(String id, RiskEvent event) {
+        if (cursor != null && id.compareTo(cursor) >= 0) {
+            return false;
+        }
+        long timestamp = event.getTimestamp().toEpochMilli();
+        if (from != null && timestamp < from.toEpochMilli()) {
+            return false;
+        }
+        if (to != null && timestamp > to.toEpochMilli()) {
+            return false;
+        }
+        return dimension == RiskEventDimension.ALL || dimension.valuesOf(event).contains(value);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.session;
+
+import com.google.gson.Gson;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET ?user=|session=|ip=|fingerprint=<value>&from=&to=&limit=&cursor=
+// from/to accept epoch millis or ISO-8601 instants; results are newest first.
+// session= takes the raw id, but responses only carry its hash (see SessionAdminServlet).
+public class RiskEventQueryServlet extends HttpServlet {
+    private static final Gson GSON = new Gson();
+
+    private final AdminAuthorizer authorizer;
+
+    public RiskEventQueryServlet(AdminAuthorizer authorizer) {
+        if (authorizer == null) {
+            throw new IllegalArgumentException("authorizer must not be null");
+        }
+        this.authorizer = authorizer;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!authorizer.isAuthorized(req)) {
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_FORBIDDEN, "Not authorized", null);
+            return;
+        }
+        RiskEventQuery query = new RiskEventQuery();
+        try {
+            for (RiskEventDimension dimension : RiskEventDimension.values()) {
+                String value = req.getParameter(dimension.getKey());
+                if (dimension != RiskEventDimension.ALL && value != null && !value.isBlank()) {
+                    if (query.getDimension() != RiskEventDimension.ALL) {
+                        throw new IllegalArgumentException("Only one of user, session, ip or fingerprint may be given");
+                    }
+                    query.setFilter(dimension, value.trim());
+                }
+            }
+            query.setFrom(parseInstant(req.getParameter("from")));
+            query.setTo(parseInstant(req.getParameter("to")));
+            String limit = req.getParameter("limit");
+            if (limit != null && !limit.isBlank()) {
+                query.setLimit(Integer.parseInt(limit.trim()));
+            }
+            query.setCursor(req.getParameter("cursor"));
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException ex) {
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_BAD_REQUEST, ex.getMessage(), null);
+            return;
+        }
+
+        RiskEventPage page;
+        try {
+            page = SessionSecurityRepository.queryEvents(query);
+        } catch (SessionStoreUnavailableException ex) {
+            resp.setHeader("Retry-After", "1");
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Risk event store unavailable", null);
+            return;
+        }
+
+        List<Map<String, Object>> events = new ArrayList<>(page.getEvents().size());
+        for (int i = 0; i < page.getEvents().size(); i++) {
+            RiskEvent event = page.getEvents().get(i);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", page.getIds().get(i));
+            entry.put("type", event.getType() != null ? event.getType().name() : null);
+            entry.put("sessionId", Hashing.sessionIdHash(event.getSessionId()));
+            entry.put("user", event.getUser());
+            entry.put("ja4Fingerprint", event.getJa4Fingerprint());
+            entry.put("clientFingerprint", event.getClientFingerprint());
+            entry.put("ipAddress", event.getIpAddress());
+            entry.put("userAgent", event.getUserAgent());
+            entry.put("message", event.getMessage());
+            entry.put("details", event.getDetails());
+            entry.put("timestamp", event.getTimestamp().toString());
+            events.add(entry);
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("events", events);
+        payload.put("nextCursor", page.getNextCursor());
+
+        resp.setContentType("application/json");
+        try (PrintWriter writer = resp.getWriter()) {
+            writer.write(GSON.toJson(payload));
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            return Instant.ofEpochMilli(Long.parseLong(trimmed));
+        }
+        Instant instant = Instant.parse(trimmed);
+        // the index works in epoch millis; reject instants that do not fit here rather than later
+        instant.toEpochMilli();
+        return instant;
+    }
+}
@@ -4,5 +4,6 @@ public enum RiskEventType {
     JA4_MISMATCH,
     CLIENT_ATTRIBUTE_CHANGE,
     SESSION_TERMINATED,
-    REDIS_UNAVAILABLE
+    REDIS_UNAVAILABLE,
+    ABUSE_THRESHOLD_EXCEEDED
 }
@@ -0,0 +1,45 @@
+package com.example.session;
+
+// Sketch estimates for the current window, attached to validated requests as the request
+// attribute SessionConstants.REQUEST_RISK_SIGNALS_ATTR. Counts are approximate.
+public final class RiskSignals {
+    private final long distinctFingerprints;
+    private final long distinctIps;
+    private final long usersSharingFingerprint;
+    private final long fingerprintLogins;
+    private final long fingerprintMismatches;
+
+    RiskSignals(long distinctFingerprints,
+                long distinctIps,
+                long usersSharingFingerprint,
+                long fingerprintLogins,
+                long fingerprintMismatches) {
+        this.distinctFingerprints = distinctFingerprints;
+        this.distinctIps = distinctIps;
+        this.usersSharingFingerprint = usersSharingFingerprint;
+        this.fingerprintLogins = fingerprintLogins;
+        this.fingerprintMismatches = fingerprintMismatches;
+    }
+
+    // JA4 fingerprints this user logged in with or presented in a mismatch
+    public long getDistinctFingerprints() {
+        return distinctFingerprints;
+    }
+
+    public long getDistinctIps() {
+        return distinctIps;
+    }
+
+    // users that logged in with, or were replayed against using, this request's JA4
+    public long getUsersSharingFingerprint() {
+        return usersSharingFingerprint;
+    }
+
+    public long getFingerprintLogins() {
+        return fingerprintLogins;
+    }
+
+    public long getFingerprintMismatches() {
+        return fingerprintMismatches;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.session;
+
+public enum RoutePolicy {
+    // full validation: fingerprint check, store touch, rejection on failure
+    ENFORCE,
+    // fingerprint compared in process only; mismatches are logged and recorded but never rejected
+    MONITOR,
+    // passed straight through without looking at the session
+    SKIP,
+    // enforced like ENFORCE but a matching request does not touch the store
+    SKIP_REFRESH
+}
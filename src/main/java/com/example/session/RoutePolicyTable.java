@@ -0,0 +1,98 @@
+package com.example.session;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Route policies compiled into a character trie, so a lookup walks the request path once whatever
+// the number of patterns. Patterns are exact paths ("/health") or servlet-style prefixes
+// ("/static/*", which also matches "/static" itself); the longest match wins and an exact match
+// beats a prefix ending at the same place. "/*" sets the policy for everything else.
+public final class RoutePolicyTable {
+    private final Node root = new Node();
+    private final RoutePolicy defaultPolicy;
+
+    private RoutePolicyTable(RoutePolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    public static RoutePolicyTable compile(Map<String, RoutePolicy> routes) {
+        RoutePolicyTable table = new RoutePolicyTable(RoutePolicy.ENFORCE);
+        for (Map.Entry<String, RoutePolicy> route : routes.entrySet()) {
+            table.insert(route.getKey(), route.getValue());
+        }
+        return table;
+    }
+
+    // The path is the servlet path followed by the path info, walked in place without joining them.
+    public RoutePolicy lookup(String servletPath, String pathInfo) {
+        String first = servletPath == null ? "" : servletPath;
+        String second = pathInfo == null ? "" : pathInfo;
+        int split = first.length();
+        int length = split + second.length();
+        RoutePolicy match = defaultPolicy;
+        Node node = root;
+        for (int i = 0; ; i++) {
+            char next = i == length ? 0 : i < split ? first.charAt(i) : second.charAt(i - split);
+            if (node.prefix != null && (i == length || next == '/')) {
+                match = node.prefix;
+            }
+            if (i == length) {
+                return node.exact != null ? node.exact : match;
+            }
+            node = node.child(next);
+            if (node == null) {
+                return match;
+            }
+        }
+    }
+
+    private void insert(String pattern, RoutePolicy policy) {
+        if (pattern == null || policy == null) {
+            throw new IllegalArgumentException("Route pattern and policy must not be null");
+        }
+        boolean prefix = pattern.endsWith("/*");
+        String path = prefix ? pattern.substring(0, pattern.length() - 2) : pattern;
+        if ((!path.isEmpty() && !path.startsWith("/")) || path.indexOf('*') >= 0 || (path.isEmpty() && !prefix)) {
+            throw new IllegalArgumentException("Unsupported route pattern: " + pattern);
+        }
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.childOrCreate(path.charAt(i));
+        }
+        if (prefix) {
+            node.prefix = policy;
+        } else {
+            node.exact = policy;
+        }
+    }
+
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private RoutePolicy exact;
+        private RoutePolicy prefix;
+
+        private Node child(char label) {
+            char[] current = labels;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(char label) {
+            Node existing = child(label);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = label;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
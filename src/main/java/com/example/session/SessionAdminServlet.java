@@ -0,0 +1,115 @@
+package com.example.session;
+
+import com.google.gson.Gson;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET ?user=<name> lists the user's live sessions, most recently active first.
+// POST ?user=<name>&reason=<text> deletes and revokes all of them.
+// Session ids are bearer credentials, so they are only ever returned hashed.
+public class SessionAdminServlet extends HttpServlet {
+    private static final Gson GSON = new Gson();
+    private static final String DEFAULT_REASON = "All sessions invalidated by administrator";
+
+    private final AdminAuthorizer authorizer;
+
+    public SessionAdminServlet(AdminAuthorizer authorizer) {
+        if (authorizer == null) {
+            throw new IllegalArgumentException("authorizer must not be null");
+        }
+        this.authorizer = authorizer;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!authorize(req, resp)) {
+            return;
+        }
+        String user = requireUser(req, resp);
+        if (user == null) {
+            return;
+        }
+        List<String> sessions;
+        try {
+            sessions = SessionSecurityRepository.findUserSessions(user);
+        } catch (SessionStoreUnavailableException ex) {
+            writeUnavailable(resp);
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("user", user);
+        payload.put("sessions", hashIds(sessions));
+        payload.put("count", sessions.size());
+        writePayload(resp, payload);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (!authorize(req, resp)) {
+            return;
+        }
+        String user = requireUser(req, resp);
+        if (user == null) {
+            return;
+        }
+        String reason = req.getParameter("reason");
+        int invalidated;
+        try {
+            invalidated = SessionSecurityRepository.invalidateUserSessions(user,
+                    reason == null || reason.isBlank() ? DEFAULT_REASON : reason.trim());
+        } catch (SessionStoreUnavailableException ex) {
+            writeUnavailable(resp);
+            return;
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("user", user);
+        payload.put("invalidated", invalidated);
+        writePayload(resp, payload);
+    }
+
+    private boolean authorize(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (authorizer.isAuthorized(req)) {
+            return true;
+        }
+        SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_FORBIDDEN, "Not authorized", null);
+        return false;
+    }
+
+    static List<String> hashIds(List<String> sessionIds) {
+        List<String> hashed = new ArrayList<>(sessionIds.size());
+        for (String sessionId : sessionIds) {
+            hashed.add(Hashing.sessionIdHash(sessionId));
+        }
+        return hashed;
+    }
+
+    private static String requireUser(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String user = req.getParameter("user");
+        if (user == null || user.isBlank()) {
+            SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_BAD_REQUEST, "user is required", null);
+            return null;
+        }
+        return user.trim();
+    }
+
+    private static void writeUnavailable(HttpServletResponse resp) throws IOException {
+        resp.setHeader("Retry-After", "1");
+        SecurityResponseWriter.writeJson(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "Session store unavailable", null);
+    }
+
+    private static void writePayload(HttpServletResponse resp, Map<String, Object> payload) throws IOException {
+        resp.setContentType("application/json");
+        try (PrintWriter writer = resp.getWriter()) {
+            writer.write(GSON.toJson(payload));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.session;
+
+public interface SessionCodec {
+    byte[] encodeSession(SessionRecord record);
+
+    SessionRecord decodeSession(byte[] payload);
+
+    byte[] encodeEvent(RiskEvent event);
+
+    RiskEvent decodeEvent(byte[] payload);
+}
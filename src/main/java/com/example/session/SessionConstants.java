@@ -7,6 +7,20 @@ public final class SessionConstants {
     public static final String CONTEXT_LOGIN_PATH = "ja4.loginPath";
     public static final String CONTEXT_PROFILE_PATH = "ja4.profilePath";
     public static final String CONTEXT_LOGOUT_PATH = "ja4.logoutPath";
+    public static final String CONTEXT_NEAR_CACHE = "ja4.nearCache";
+    public static final String CONTEXT_EVENT_WRITER = "ja4.eventWriter";
+    public static final String CONTEXT_EVENT_JOURNAL = "ja4.eventJournal";
+    public static final String CONTEXT_STORE_BREAKER = "ja4.storeBreaker";
+    public static final String CONTEXT_VALIDATION_EXECUTOR = "ja4.validationExecutor";
+
+    // Integrator contract: the SDK never captures handshake bytes itself. Whatever terminates TLS in
+    // this JVM must set one of these on each request, either the raw ClientHello (ByteBuffer or
+    // byte[]) or an already computed JA4 string. Otherwise the X-JA4-* headers and then the local
+    // fallback are used.
+    public static final String REQUEST_CLIENT_HELLO_ATTR = "ja4.clientHello";
+    public static final String REQUEST_JA4_ATTR = "ja4.fingerprint";
+    // RiskSignals for the validated request when sketches are enabled.
+    public static final String REQUEST_RISK_SIGNALS_ATTR = "ja4.riskSignals";
 
     private SessionConstants() {
     }
@@ -0,0 +1,6 @@
+package com.example.session;
+
+@FunctionalInterface
+public interface SessionExpiryListener {
+    void sessionExpired(SessionRecord record);
+}
@@ -0,0 +1,109 @@
+package com.example.session;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maps a SessionRecord onto Redis hash fields. Fingerprints, addresses and timestamps are stored
+// as plain strings; the client signals are one JSON field written at login and never read by the
+// filter.
+final class SessionHashLayout {
+    static final String USER = "user";
+    static final String JA4_FINGERPRINT = "ja4";
+    static final String CLIENT_FINGERPRINT = "clientFp";
+    static final String USER_AGENT = "ua";
+    static final String IP_ADDRESS = "ip";
+    static final String CLIENT_SIGNALS = "signals";
+    static final String CREATED_AT = "createdAt";
+    static final String LAST_SEEN_AT = "lastSeenAt";
+    static final String STATUS = "status";
+    // what validation needs, in the order decodePartial expects
+    static final String[] VALIDATION_FIELDS = {
+            USER, JA4_FINGERPRINT, CLIENT_FINGERPRINT, USER_AGENT, IP_ADDRESS, LAST_SEEN_AT, STATUS};
+    // SessionRecord.FIELD_* bits a partial record does not hold
+    static final int UNLOADED_FIELDS = SessionRecord.FIELD_CLIENT_SIGNALS | SessionRecord.FIELD_CREATED_AT;
+
+    private static final Gson GSON = new Gson();
+    private static final Type SIGNALS_TYPE = new TypeToken<Map<String, String>>() { }.getType();
+
+    private SessionHashLayout() {
+    }
+
+    // Field/value pairs for the given SessionRecord.FIELD_* bits, flattened for HSET; null values
+    // are left out.
+    static List<String> encode(SessionRecord record, int fields) {
+        List<String> pairs = new ArrayList<>(18);
+        put(pairs, fields, SessionRecord.FIELD_USER, USER, record.getUser());
+        put(pairs, fields, SessionRecord.FIELD_JA4_FINGERPRINT, JA4_FINGERPRINT, record.getJa4Fingerprint());
+        put(pairs, fields, SessionRecord.FIELD_CLIENT_FINGERPRINT, CLIENT_FINGERPRINT, record.getClientFingerprint());
+        put(pairs, fields, SessionRecord.FIELD_USER_AGENT, USER_AGENT, record.getUserAgent());
+        put(pairs, fields, SessionRecord.FIELD_IP_ADDRESS, IP_ADDRESS, record.getIpAddress());
+        if (record.getClientSignals() != null) {
+            put(pairs, fields, SessionRecord.FIELD_CLIENT_SIGNALS, CLIENT_SIGNALS, GSON.toJson(record.getClientSignals()));
+        }
+        put(pairs, fields, SessionRecord.FIELD_CREATED_AT, CREATED_AT,
+                Long.toString(record.getCreatedAt().toEpochMilli()));
+        put(pairs, fields, SessionRecord.FIELD_LAST_SEEN_AT, LAST_SEEN_AT,
+                Long.toString(record.getLastSeenAt().toEpochMilli()));
+        if (record.getStatus() != null) {
+            put(pairs, fields, SessionRecord.FIELD_STATUS, STATUS, record.getStatus().name());
+        }
+        return pairs;
+    }
+
+    // Returns null for a missing (empty) hash.
+    static SessionRecord decode(String sessionId, Map<String, String> hash) {
+        if (hash == null || hash.get(LAST_SEEN_AT) == null) {
+            return null;
+        }
+        String signals = hash.get(CLIENT_SIGNALS);
+        return SessionRecord.restore(
+                sessionId,
+                hash.get(USER),
+                hash.get(JA4_FINGERPRINT),
+                hash.get(CLIENT_FINGERPRINT),
+                hash.get(USER_AGENT),
+                hash.get(IP_ADDRESS),
+                signals == null ? new HashMap<>() : GSON.fromJson(signals, SIGNALS_TYPE),
+                parseLong(hash.get(CREATED_AT)),
+                parseLong(hash.get(LAST_SEEN_AT)),
+                parseStatus(hash.get(STATUS)));
+    }
+
+    // Values of VALIDATION_FIELDS in order, as HMGET returns them; null when the session is missing.
+    static SessionRecord decodePartial(String sessionId, List<String> values) {
+        if (values == null || values.size() < VALIDATION_FIELDS.length || values.get(5) == null) {
+            return null;
+        }
+        return SessionRecord.restore(
+                sessionId,
+                values.get(0),
+                values.get(1),
+                values.get(2),
+                values.get(3),
+                values.get(4),
+                null,
+                0,
+                parseLong(values.get(5)),
+                parseStatus(values.get(6))).markPartial();
+    }
+
+    private static void put(List<String> pairs, int fields, int bit, String field, String value) {
+        if ((fields & bit) != 0 && value != null) {
+            pairs.add(field);
+            pairs.add(value);
+        }
+    }
+
+    private static long parseLong(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private static SessionStatus parseStatus(String value) {
+        return value == null ? null : SessionStatus.valueOf(value);
+    }
+}
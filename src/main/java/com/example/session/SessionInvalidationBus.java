@@ -0,0 +1,172 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.JedisPubSub;
+
+public final class SessionInvalidationBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionInvalidationBus.class);
+    private static final String CHANNEL = "ja4:session-invalidations";
+    private static final String REVOCATION_CHANNEL = "ja4:session-revocations";
+    // revoked session ids scored by revocation time, for nodes that missed the broadcast
+    private static final String REVOKED_KEY = "ja4:revoked-sessions";
+    private static final String NODE_ID = UUID.randomUUID().toString();
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private static volatile Thread subscriberThread;
+    private static volatile JedisPubSub subscriber;
+    private static volatile boolean running;
+
+    private SessionInvalidationBus() {
+    }
+
+    public static void publish(String sessionId) {
+        if (!RedisManager.isEnabled() || sessionId == null) {
+            return;
+        }
+        try {
+            RedisManager.execute(jedis -> jedis.publish(CHANNEL, NODE_ID + ":" + sessionId));
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to publish invalidation for session {}: {}", sessionId, ex.getMessage());
+        }
+    }
+
+    // Queues an invalidation on a pipeline the caller is already sending.
+    static void publish(AbstractPipeline pipeline, String sessionId) {
+        pipeline.publish(CHANNEL, NODE_ID + ":" + sessionId);
+    }
+
+    public static void publishRevocation(String sessionId, Duration retention) {
+        if (sessionId != null) {
+            publishRevocations(List.of(sessionId), retention);
+        }
+    }
+
+    public static void publishRevocations(Collection<String> sessionIds, Duration retention) {
+        if (!RedisManager.isEnabled() || sessionIds == null || sessionIds.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            RedisManager.execute(jedis -> {
+                try (AbstractPipeline pipeline = jedis.pipelined()) {
+                    for (String sessionId : sessionIds) {
+                        pipeline.zadd(REVOKED_KEY, now, sessionId);
+                        pipeline.publish(REVOCATION_CHANNEL, NODE_ID + ":" + sessionId);
+                    }
+                    pipeline.zremrangeByScore(REVOKED_KEY, Double.NEGATIVE_INFINITY, now - retention.toMillis());
+                    pipeline.pexpire(REVOKED_KEY, retention.toMillis());
+                    pipeline.sync();
+                }
+                return null;
+            });
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to publish revocation for {} session(s): {}", sessionIds.size(), ex.getMessage());
+        }
+    }
+
+    // Session ids revoked anywhere in the cluster within the given period.
+    public static List<String> loadRevocations(Duration period) {
+        if (!RedisManager.isEnabled()) {
+            return List.of();
+        }
+        long since = System.currentTimeMillis() - period.toMillis();
+        return RedisManager.execute(jedis -> jedis.zrangeByScore(REVOKED_KEY, since, Double.POSITIVE_INFINITY));
+    }
+
+    public static synchronized void start(SessionRecordCache cache) {
+        start(cache, null);
+    }
+
+    public static synchronized void start(SessionRecordCache cache, RevokedSessionFilter revokedSessions) {
+        if (!RedisManager.isEnabled() || (cache == null && revokedSessions == null) || running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(() -> listen(cache, revokedSessions), "ja4-session-invalidation");
+        thread.setDaemon(true);
+        subscriberThread = thread;
+        thread.start();
+    }
+
+    public static synchronized void stop() {
+        running = false;
+        JedisPubSub current = subscriber;
+        if (current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+        Thread thread = subscriberThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        subscriberThread = null;
+    }
+
+    private static void listen(SessionRecordCache cache, RevokedSessionFilter revokedSessions) {
+        String[] channels = cache == null
+                ? new String[] {REVOCATION_CHANNEL}
+                : revokedSessions == null
+                        ? new String[] {CHANNEL}
+                        : new String[] {CHANNEL, REVOCATION_CHANNEL};
+        while (running) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onSubscribe(String channel, int subscribedChannels) {
+                    // anything published while we were disconnected is lost, so start clean
+                    if (CHANNEL.equals(channel)) {
+                        cache.clear();
+                        LOGGER.info("Listening for session invalidations on {}", channel);
+                    } else {
+                        reloadRevocations(revokedSessions);
+                    }
+                }
+
+                @Override
+                public void onMessage(String channel, String message) {
+                    int separator = message.indexOf(':');
+                    if (separator < 0 || (separator == NODE_ID.length() && message.startsWith(NODE_ID))) {
+                        return;
+                    }
+                    String sessionId = message.substring(separator + 1);
+                    if (CHANNEL.equals(channel)) {
+                        cache.invalidate(sessionId);
+                    } else {
+                        revokedSessions.add(sessionId);
+                    }
+                }
+            };
+            subscriber = pubSub;
+            try {
+                RedisManager.subscribe(pubSub, channels);
+            } catch (Exception ex) {
+                if (running) {
+                    LOGGER.warn("Session invalidation subscription lost: {}", ex.getMessage());
+                }
+            }
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Revocations can't be cleared like the cache, so the ones missed while disconnected are
+    // fetched instead; the filter never forgets an id early.
+    private static void reloadRevocations(RevokedSessionFilter revokedSessions) {
+        try {
+            revokedSessions.addAll(loadRevocations(revokedSessions.getRotation()));
+            LOGGER.info("Listening for session revocations on {}", REVOCATION_CHANNEL);
+        } catch (Exception ex) {
+            LOGGER.warn("Could not reload revoked sessions: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.session;
+
+public enum SessionLayout {
+    // one serialized payload per session, written by the configured SessionCodec
+    BLOB,
+    // one Redis hash field per record field, so writes carry only what changed and validation
+    // reads skip the client signals
+    HASH
+}
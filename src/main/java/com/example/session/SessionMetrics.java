@@ -0,0 +1,67 @@
+package com.example.session;
+
+import com.example.session.MetricsRegistry.Counter;
+import com.example.session.MetricsRegistry.Histogram;
+
+public final class SessionMetrics {
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Histogram FILTER = REGISTRY.histogram("ja4_filter_duration_seconds",
+            "Time spent validating a request in FingerprintValidationFilter");
+    public static final Histogram PHASE_EXTRACT = phase("extract");
+    public static final Histogram PHASE_COMPARE = phase("compare");
+    public static final Histogram PHASE_STORE_VALIDATE = phase("store_validate");
+    public static final Histogram PHASE_STORE_READ = phase("store_read");
+    public static final Histogram PHASE_EVENT_WRITE = phase("event_write");
+
+    public static final Histogram REDIS_COMMAND = REGISTRY.histogram("ja4_redis_command_duration_seconds",
+            "Redis round trips made through RedisManager, including connection pool wait");
+    public static final Histogram EVENT_BATCH_WRITE = REGISTRY.histogram("ja4_event_batch_write_duration_seconds",
+            "Time to append a batch of risk events to the session store");
+    public static final Histogram LOGIN = REGISTRY.histogram("ja4_login_duration_seconds",
+            "Login request handling time");
+
+    public static final Counter MISMATCHES = REGISTRY.counter("ja4_fingerprint_mismatch_total",
+            "Requests whose JA4 fingerprint did not match the session binding");
+    public static final Counter ATTRIBUTE_CHANGES = REGISTRY.counter("ja4_attribute_change_total",
+            "Validated requests where the client IP or User-Agent changed");
+    public static final Counter REJECTED_NO_SESSION = rejected("no_session");
+    public static final Counter REJECTED_UNBOUND = rejected("unbound");
+    public static final Counter REJECTED_MISMATCH = rejected("mismatch");
+    public static final Counter REJECTED_STORE_UNAVAILABLE = rejected("store_unavailable");
+    public static final Counter REJECTED_ABUSE = rejected("abuse");
+    public static final Counter REJECTED_REVOKED = rejected("revoked");
+    public static final Counter REJECTED_EXPIRED = rejected("expired");
+    public static final Counter ROUTE_SKIP = route("skip");
+    public static final Counter ROUTE_MONITOR = route("monitor");
+    public static final Counter ROUTE_SKIP_REFRESH = route("skip_refresh");
+    public static final Counter LOGIN_SUCCESS = login("success");
+    public static final Counter LOGIN_FAILURE = login("failure");
+    public static final Counter LOGIN_THROTTLED = login("throttled");
+
+    private SessionMetrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    private static Histogram phase(String phase) {
+        return REGISTRY.histogram("ja4_filter_phase_duration_seconds",
+                "Time spent in each phase of fingerprint validation", "phase", phase);
+    }
+
+    private static Counter rejected(String reason) {
+        return REGISTRY.counter("ja4_requests_rejected_total",
+                "Requests rejected by FingerprintValidationFilter", "reason", reason);
+    }
+
+    private static Counter route(String policy) {
+        return REGISTRY.counter("ja4_route_requests_total",
+                "Requests handled under a route policy other than enforce", "policy", policy);
+    }
+
+    private static Counter login(String result) {
+        return REGISTRY.counter("ja4_logins_total", "Login attempts", "result", result);
+    }
+}
@@ -5,6 +5,18 @@ import java.util.Map;
 import java.util.Objects;
 
 public class SessionRecord {
+    // Field bits for dirty tracking; stores with a field-addressable layout write only dirty fields.
+    static final int FIELD_USER = 1;
+    static final int FIELD_JA4_FINGERPRINT = 1 << 1;
+    static final int FIELD_CLIENT_FINGERPRINT = 1 << 2;
+    static final int FIELD_USER_AGENT = 1 << 3;
+    static final int FIELD_IP_ADDRESS = 1 << 4;
+    static final int FIELD_CLIENT_SIGNALS = 1 << 5;
+    static final int FIELD_CREATED_AT = 1 << 6;
+    static final int FIELD_LAST_SEEN_AT = 1 << 7;
+    static final int FIELD_STATUS = 1 << 8;
+    static final int ALL_FIELDS = (1 << 9) - 1;
+
     private String sessionId;
     private String user;
     private String ja4Fingerprint;
@@ -15,6 +27,12 @@ public class SessionRecord {
     private long createdAt;
     private long lastSeenAt;
     private SessionStatus status;
+    private transient long persistedSeenAt;
+    private transient boolean attributesDirty;
+    // a record that was never persisted is written in full
+    private transient int dirtyFields = ALL_FIELDS;
+    // loaded without the fields the filter does not need (client signals, creation time)
+    private transient boolean partial;
 
     public SessionRecord() {
     }
@@ -29,8 +47,8 @@ public class SessionRecord {
         SessionRecord record = new SessionRecord();
         record.sessionId = sessionId;
         record.user = user;
-        record.ja4Fingerprint = ja4Fingerprint;
-        record.clientFingerprint = clientFingerprint;
+        record.ja4Fingerprint = FingerprintDictionary.local().intern(ja4Fingerprint);
+        record.clientFingerprint = FingerprintDictionary.local().canonical(clientFingerprint);
         record.userAgent = userAgent;
         record.ipAddress = ipAddress;
         record.clientSignals = clientSignals;
@@ -41,6 +59,49 @@ public class SessionRecord {
         return record;
     }
 
+    static SessionRecord restore(String sessionId,
+                                 String user,
+                                 String ja4Fingerprint,
+                                 String clientFingerprint,
+                                 String userAgent,
+                                 String ipAddress,
+                                 Map<String, String> clientSignals,
+                                 long createdAt,
+                                 long lastSeenAt,
+                                 SessionStatus status) {
+        SessionRecord record = new SessionRecord();
+        record.sessionId = sessionId;
+        record.user = user;
+        record.ja4Fingerprint = FingerprintDictionary.local().intern(ja4Fingerprint);
+        record.clientFingerprint = FingerprintDictionary.local().canonical(clientFingerprint);
+        record.userAgent = userAgent;
+        record.ipAddress = ipAddress;
+        record.clientSignals = clientSignals;
+        record.createdAt = createdAt;
+        record.lastSeenAt = lastSeenAt;
+        record.status = status;
+        return record;
+    }
+
+    public SessionRecord copy() {
+        SessionRecord copy = new SessionRecord();
+        copy.sessionId = sessionId;
+        copy.user = user;
+        copy.ja4Fingerprint = ja4Fingerprint;
+        copy.clientFingerprint = clientFingerprint;
+        copy.userAgent = userAgent;
+        copy.ipAddress = ipAddress;
+        copy.clientSignals = clientSignals;
+        copy.createdAt = createdAt;
+        copy.lastSeenAt = lastSeenAt;
+        copy.status = status;
+        copy.persistedSeenAt = persistedSeenAt;
+        copy.attributesDirty = attributesDirty;
+        copy.dirtyFields = dirtyFields;
+        copy.partial = partial;
+        return copy;
+    }
+
     public String getSessionId() {
         return sessionId;
     }
@@ -82,19 +143,66 @@ public class SessionRecord {
     }
 
     public void setStatus(SessionStatus status) {
+        if (this.status != status) {
+            attributesDirty = true;
+            dirtyFields |= FIELD_STATUS;
+        }
         this.status = status;
     }
 
     public void touch(Instant moment, String currentIp, String currentUserAgent) {
         this.lastSeenAt = moment.toEpochMilli();
-        if (currentIp != null) {
+        dirtyFields |= FIELD_LAST_SEEN_AT;
+        if (isDifferentIp(currentIp)) {
             this.ipAddress = currentIp;
+            attributesDirty = true;
+            dirtyFields |= FIELD_IP_ADDRESS;
         }
-        if (currentUserAgent != null) {
+        if (isDifferentUserAgent(currentUserAgent)) {
             this.userAgent = currentUserAgent;
+            attributesDirty = true;
+            dirtyFields |= FIELD_USER_AGENT;
         }
     }
 
+    public boolean needsPersist(long coalesceWindowMillis) {
+        return attributesDirty || lastSeenAt - persistedSeenAt >= coalesceWindowMillis;
+    }
+
+    SessionRecord internFingerprints() {
+        ja4Fingerprint = FingerprintDictionary.local().intern(ja4Fingerprint);
+        clientFingerprint = FingerprintDictionary.local().canonical(clientFingerprint);
+        return this;
+    }
+
+    boolean hasDirtyAttributes() {
+        return attributesDirty;
+    }
+
+    int getDirtyFields() {
+        return dirtyFields;
+    }
+
+    // Forces the next write to replace the stored record in full.
+    void markAllDirty() {
+        dirtyFields = ALL_FIELDS;
+    }
+
+    boolean isPartial() {
+        return partial;
+    }
+
+    SessionRecord markPartial() {
+        partial = true;
+        return this;
+    }
+
+    public void markPersisted() {
+        persistedSeenAt = lastSeenAt;
+        attributesDirty = false;
+        dirtyFields = 0;
+    }
+
     public boolean isDifferentUserAgent(String candidate) {
         return candidate != null && !Objects.equals(userAgent, candidate);
     }
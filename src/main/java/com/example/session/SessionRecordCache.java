@@ -0,0 +1,151 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SessionRecordCache {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SessionRecordCache(int maxEntries, Duration ttl) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        int perSegment = Math.max(1, (maxEntries + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    public SessionRecord get(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Segment segment = segmentFor(sessionId);
+        long now = System.nanoTime();
+        synchronized (segment) {
+            Entry entry = segment.map.get(sessionId);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (now - entry.expiresAt >= 0) {
+                segment.map.remove(sessionId);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.record.copy();
+        }
+    }
+
+    public void put(SessionRecord record) {
+        if (record == null || record.getSessionId() == null) {
+            return;
+        }
+        SessionRecord snapshot = record.copy();
+        Segment segment = segmentFor(snapshot.getSessionId());
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (segment) {
+            segment.map.put(snapshot.getSessionId(), new Entry(snapshot, expiresAt));
+        }
+    }
+
+    public void invalidate(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Segment segment = segmentFor(sessionId);
+        synchronized (segment) {
+            if (segment.map.remove(sessionId) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private Segment segmentFor(String sessionId) {
+        int h = sessionId.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    private static final class Entry {
+        private final SessionRecord record;
+        private final long expiresAt;
+
+        private Entry(SessionRecord record, long expiresAt) {
+            this.record = record;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+        private final LinkedHashMap<String, Entry> map;
+
+        private Segment(int capacity) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
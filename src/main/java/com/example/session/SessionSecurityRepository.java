@@ -1,93 +1,238 @@
 package com.example.session;
 
-import com.google.gson.Gson;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
 
 public final class SessionSecurityRepository {
     private static final Logger LOGGER = LoggerFactory.getLogger(SessionSecurityRepository.class);
-    private static final Gson GSON = new Gson();
-    private static final String SESSION_KEY_PREFIX = "ja4:session:";
-    private static final String RISK_EVENTS_KEY = "ja4:risk-events";
-    private static final int SESSION_TTL_SECONDS = 3600;
-    private static final int EVENTS_HISTORY_LIMIT = 200;
+
+    private static volatile SessionStore store;
+    private static volatile AsyncRiskEventWriter eventWriter;
+    private static volatile AsyncRiskEventWriter journalWriter;
+    private static volatile AbuseDetector abuseDetector;
+    private static volatile CardinalitySketches sketches;
+    private static volatile RevokedSessionFilter revokedSessions;
+    private static volatile int maxSessionsPerUser;
 
     private SessionSecurityRepository() {
     }
 
-    private static String sessionKey(String sessionId) {
-        return SESSION_KEY_PREFIX + sessionId;
+    public static void configure(SessionStore sessionStore) {
+        store = sessionStore;
     }
 
-    public static void persistSession(SessionRecord record) {
-        if (!RedisManager.isEnabled() || record == null) {
+    public static SessionStore getStore() {
+        SessionStore current = store;
+        if (current == null) {
+            synchronized (SessionSecurityRepository.class) {
+                current = store;
+                if (current == null) {
+                    current = defaultStore();
+                    store = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    static SessionStore defaultStore() {
+        if (RedisManager.isEnabled()) {
+            return new RedisSessionStore();
+        }
+        LOGGER.warn("Redis is not available; session records are kept in this node's memory only");
+        return new InMemorySessionStore();
+    }
+
+    public static void enableAsyncEvents(AsyncRiskEventWriter writer) {
+        eventWriter = writer;
+    }
+
+    public static AsyncRiskEventWriter getEventWriter() {
+        return eventWriter;
+    }
+
+    public static void enableJournal(AsyncRiskEventWriter writer) {
+        journalWriter = writer;
+    }
+
+    public static AsyncRiskEventWriter getJournalWriter() {
+        return journalWriter;
+    }
+
+    public static void enableAbuseDetection(AbuseDetector detector) {
+        abuseDetector = detector;
+    }
+
+    public static AbuseDetector getAbuseDetector() {
+        return abuseDetector;
+    }
+
+    public static void enableSketches(CardinalitySketches cardinalitySketches) {
+        sketches = cardinalitySketches;
+    }
+
+    public static CardinalitySketches getSketches() {
+        return sketches;
+    }
+
+    public static void enableRevokedSessionFilter(RevokedSessionFilter filter) {
+        revokedSessions = filter;
+    }
+
+    public static RevokedSessionFilter getRevokedSessions() {
+        return revokedSessions;
+    }
+
+    // 0 or less means unlimited.
+    public static void setMaxSessionsPerUser(int max) {
+        maxSessionsPerUser = Math.max(0, max);
+    }
+
+    public static int getMaxSessionsPerUser() {
+        return maxSessionsPerUser;
+    }
+
+    // Added locally first so this node rejects replays at once, then broadcast to the other nodes.
+    public static void revokeSession(String sessionId) {
+        RevokedSessionFilter filter = revokedSessions;
+        if (filter == null || sessionId == null) {
             return;
         }
-        RedisManager.execute(jedis -> {
-            jedis.setex(sessionKey(record.getSessionId()), SESSION_TTL_SECONDS, GSON.toJson(record));
-            return null;
-        });
+        filter.add(sessionId);
+        SessionInvalidationBus.publishRevocation(sessionId, filter.getRotation());
     }
 
-    public static Optional<SessionRecord> getSession(String sessionId) {
-        if (!RedisManager.isEnabled() || sessionId == null) {
-            return Optional.empty();
+    private static void revokeSessions(List<String> sessionIds) {
+        RevokedSessionFilter filter = revokedSessions;
+        if (filter == null || sessionIds.isEmpty()) {
+            return;
         }
-        return Optional.ofNullable(RedisManager.execute(jedis -> readSession(jedis, sessionId)));
+        for (String sessionId : sessionIds) {
+            filter.add(sessionId);
+        }
+        SessionInvalidationBus.publishRevocations(sessionIds, filter.getRotation());
     }
 
-    private static SessionRecord readSession(Jedis jedis, String sessionId) {
-        String payload = jedis.get(sessionKey(sessionId));
-        if (payload == null) {
-            return null;
+    // Attribute-change events are created inside the stores during validateAndTouch and never pass
+    // through recordEvent, so the stores hand them over here.
+    static void journalEvents(List<RiskEvent> events) {
+        AsyncRiskEventWriter writer = journalWriter;
+        if (writer == null || events == null) {
+            return;
         }
-        try {
-            SessionRecord record = GSON.fromJson(payload, SessionRecord.class);
-            return record;
-        } catch (Exception ex) {
-            LOGGER.warn("Failed to deserialize session record {}: {}", sessionId, ex.getMessage());
-            return null;
+        for (RiskEvent event : events) {
+            writer.submit(event);
         }
     }
 
+    public static void persistSession(SessionRecord record) {
+        if (record == null) {
+            return;
+        }
+        getStore().save(record);
+    }
+
+    public static Optional<SessionRecord> getSession(String sessionId) {
+        if (sessionId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getStore().load(sessionId));
+    }
+
     public static void refreshSession(SessionRecord record, String currentIp, String currentUserAgent) {
-        if (!RedisManager.isEnabled() || record == null) {
+        if (record == null) {
             return;
         }
         record.touch(Instant.now(), currentIp, currentUserAgent);
-        RedisManager.execute(jedis -> {
-            jedis.setex(sessionKey(record.getSessionId()), SESSION_TTL_SECONDS, GSON.toJson(record));
-            return null;
-        });
+        getStore().refresh(record);
+    }
+
+    public static SessionValidationResult validateAndTouch(String sessionId,
+                                                           String currentIp,
+                                                           String currentUserAgent) {
+        return validateAndTouch(sessionId, null, currentIp, currentUserAgent);
+    }
+
+    public static SessionValidationResult validateAndTouch(String sessionId,
+                                                           String expectedUser,
+                                                           String currentIp,
+                                                           String currentUserAgent) {
+        if (sessionId == null) {
+            return SessionValidationResult.missing();
+        }
+        return getStore().validateAndTouch(sessionId, expectedUser, currentIp, currentUserAgent, Instant.now());
+    }
+
+    // Status check for routes that skip the touch: same answers as validateAndTouch, no write.
+    public static SessionValidationResult peekSession(String sessionId) {
+        if (sessionId == null) {
+            return SessionValidationResult.missing();
+        }
+        return getStore().peek(sessionId);
+    }
+
+    // Persists a freshly logged-in session, evicting the user's least recently active sessions
+    // beyond the configured cap. Returns the evicted session ids.
+    public static List<String> createSession(SessionRecord record) {
+        if (record == null) {
+            return List.of();
+        }
+        List<String> evicted = getStore().create(record, maxSessionsPerUser);
+        terminateSessions(record.getUser(), evicted, record.getIpAddress(), record.getUserAgent(),
+                "Concurrent session limit exceeded");
+        return evicted;
+    }
+
+    public static List<String> findUserSessions(String user) {
+        if (user == null) {
+            return List.of();
+        }
+        return getStore().findUserSessions(user);
+    }
+
+    // For password resets and confirmed hijacks: every session of the user is deleted and revoked.
+    public static int invalidateUserSessions(String user, String reason) {
+        if (user == null) {
+            return 0;
+        }
+        List<String> deleted = getStore().deleteUserSessions(user);
+        terminateSessions(user, deleted, null, null, reason);
+        return deleted.size();
     }
 
     public static void deleteSession(String sessionId) {
-        if (!RedisManager.isEnabled() || sessionId == null) {
+        if (sessionId == null) {
             return;
         }
-        RedisManager.execute(jedis -> {
-            jedis.del(sessionKey(sessionId));
-            return null;
-        });
+        getStore().delete(sessionId);
+    }
+
+    public static RiskEventPage queryEvents(RiskEventQuery query) {
+        return getStore().queryEvents(query);
     }
 
     public static void handleJa4Mismatch(SessionRecord record,
                                          String providedJa4,
                                          String currentIp,
                                          String currentUserAgent) {
-        if (!RedisManager.isEnabled()) {
-            return;
-        }
         if (record != null) {
+            revokeSession(record.getSessionId());
             record.setStatus(SessionStatus.CHALLENGE_REQUIRED);
             record.touch(Instant.now(), currentIp, currentUserAgent);
             persistSession(record);
         }
+        CardinalitySketches currentSketches = sketches;
+        if (currentSketches != null && record != null) {
+            currentSketches.recordMismatch(record.getUser(), providedJa4, currentIp);
+        }
         Map<String, String> details = providedJa4 == null
                 ? Collections.emptyMap()
                 : Collections.singletonMap("receivedJa4", providedJa4);
@@ -100,13 +245,30 @@ public final class SessionSecurityRepository {
                 details));
     }
 
+    // Monitor-only routes: the mismatch is recorded, but the session is neither challenged nor revoked.
+    public static void recordMonitoredMismatch(String sessionId,
+                                               String user,
+                                               String boundJa4,
+                                               String providedJa4,
+                                               String currentIp,
+                                               String currentUserAgent) {
+        Map<String, String> details = new HashMap<>();
+        details.put("mode", "monitor");
+        if (providedJa4 != null) {
+            details.put("receivedJa4", providedJa4);
+        }
+        recordEvent(RiskEvent.restore(RiskEventType.JA4_MISMATCH, sessionId, user, boundJa4, null,
+                currentIp, currentUserAgent, "JA4 fingerprint mismatch on monitored route", details,
+                System.currentTimeMillis()));
+    }
+
     public static void recordAttributeChange(SessionRecord record,
                                              RiskEventType type,
                                              String message,
                                              Map<String, String> details,
                                              String currentIp,
                                              String currentUserAgent) {
-        if (!RedisManager.isEnabled() || record == null) {
+        if (record == null) {
             return;
         }
         recordEvent(RiskEvent.create(type, record, currentIp, currentUserAgent, message, details));
@@ -116,10 +278,8 @@ public final class SessionSecurityRepository {
                                                 String currentIp,
                                                 String currentUserAgent,
                                                 String reason) {
-        if (!RedisManager.isEnabled()) {
-            return;
-        }
         if (record != null) {
+            revokeSession(record.getSessionId());
             record.setStatus(SessionStatus.INVALIDATED);
             persistSession(record);
         }
@@ -132,14 +292,112 @@ public final class SessionSecurityRepository {
                 Collections.emptyMap()));
     }
 
+    public static void recordSessionExpiry(SessionRecord record) {
+        if (record == null) {
+            return;
+        }
+        recordEvent(RiskEvent.create(
+                RiskEventType.SESSION_TERMINATED,
+                record,
+                record.getIpAddress(),
+                record.getUserAgent(),
+                "Session expired",
+                Collections.emptyMap()));
+    }
+
+    public static void recordStoreOutage(long outageMillis, long degradedCalls, StoreDegradedPolicy policy) {
+        recordEvent(RiskEvent.create(
+                RiskEventType.REDIS_UNAVAILABLE,
+                null,
+                null,
+                null,
+                "Session store circuit was open",
+                Map.of("outageMillis", Long.toString(outageMillis),
+                        "degradedCalls", Long.toString(degradedCalls),
+                        "policy", policy.name())));
+    }
+
+    static void recordAbuseThreshold(String dimension, String key, String ip, int threshold, Duration window) {
+        Map<String, String> details = new HashMap<>();
+        details.put("dimension", dimension);
+        details.put("threshold", Integer.toString(threshold));
+        details.put("windowSeconds", Long.toString(window.getSeconds()));
+        // keyed so that the fingerprint and IP query dimensions find the event
+        details.put("fingerprint".equals(dimension) ? "receivedJa4" : dimension, key);
+        recordEvent(RiskEvent.create(
+                RiskEventType.ABUSE_THRESHOLD_EXCEEDED,
+                null,
+                ip,
+                null,
+                "Failure threshold exceeded for " + dimension,
+                details));
+    }
+
+    static List<RiskEvent> attributeChangeEvents(SessionRecord record, String currentIp, String currentUserAgent) {
+        List<RiskEvent> events = new ArrayList<>(2);
+        if (record.isDifferentIp(currentIp)) {
+            events.add(RiskEvent.create(RiskEventType.CLIENT_ATTRIBUTE_CHANGE, record, currentIp, currentUserAgent,
+                    "Client IP changed during session",
+                    Map.of("previousIp", Optional.ofNullable(record.getIpAddress()).orElse("unknown"),
+                            "currentIp", currentIp)));
+        }
+        if (record.isDifferentUserAgent(currentUserAgent)) {
+            events.add(RiskEvent.create(RiskEventType.CLIENT_ATTRIBUTE_CHANGE, record, currentIp, currentUserAgent,
+                    "User-Agent changed during session",
+                    Map.of("previousUserAgent", Optional.ofNullable(record.getUserAgent()).orElse("unknown"),
+                            "currentUserAgent", currentUserAgent)));
+        }
+        return events;
+    }
+
+    private static void terminateSessions(String user,
+                                          List<String> sessionIds,
+                                          String currentIp,
+                                          String currentUserAgent,
+                                          String reason) {
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        revokeSessions(sessionIds);
+        long now = System.currentTimeMillis();
+        List<RiskEvent> events = new ArrayList<>(sessionIds.size());
+        for (String sessionId : sessionIds) {
+            events.add(RiskEvent.restore(RiskEventType.SESSION_TERMINATED, sessionId, user, null, null,
+                    currentIp, currentUserAgent, reason, Collections.emptyMap(), now));
+        }
+        if (eventWriter != null) {
+            events.forEach(SessionSecurityRepository::recordEvent);
+            return;
+        }
+        journalEvents(events);
+        writeEvents(events);
+    }
+
     private static void recordEvent(RiskEvent event) {
-        if (!RedisManager.isEnabled() || event == null) {
+        if (event == null) {
+            return;
+        }
+        AsyncRiskEventWriter journal = journalWriter;
+        if (journal != null) {
+            journal.submit(event);
+        }
+        AsyncRiskEventWriter writer = eventWriter;
+        if (writer != null) {
+            writer.submit(event);
             return;
         }
-        RedisManager.execute(jedis -> {
-            jedis.lpush(RISK_EVENTS_KEY, GSON.toJson(event));
-            jedis.ltrim(RISK_EVENTS_KEY, 0, EVENTS_HISTORY_LIMIT - 1);
-            return null;
-        });
+        writeEvents(List.of(event));
+    }
+
+    public static void writeEvents(List<RiskEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            getStore().appendEvents(events);
+        } finally {
+            SessionMetrics.EVENT_BATCH_WRITE.recordSince(start);
+        }
     }
 }
@@ -0,0 +1,58 @@
+package com.example.session;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface SessionStore {
+    void save(SessionRecord record);
+
+    SessionRecord load(String sessionId);
+
+    void refresh(SessionRecord record);
+
+    SessionValidationResult validateAndTouch(String sessionId, String currentIp, String currentUserAgent, Instant now);
+
+    // The user bound to the HttpSession, when known, lets a store maintain its per-user index in
+    // the same round trip as the touch; it is only a hint and the stored record stays authoritative.
+    default SessionValidationResult validateAndTouch(String sessionId,
+                                                     String expectedUser,
+                                                     String currentIp,
+                                                     String currentUserAgent,
+                                                     Instant now) {
+        return validateAndTouch(sessionId, currentIp, currentUserAgent, now);
+    }
+
+    // Read-only counterpart of validateAndTouch for routes that must not extend the session; the
+    // record may be partial and nothing is written.
+    default SessionValidationResult peek(String sessionId) {
+        return SessionValidationResult.of(load(sessionId), false);
+    }
+
+    void delete(String sessionId);
+
+    void appendEvents(List<RiskEvent> events);
+
+    // Saves a new session and, when maxSessionsPerUser is positive, removes the user's least
+    // recently active sessions beyond the cap; returns the ids removed.
+    default List<String> create(SessionRecord record, int maxSessionsPerUser) {
+        save(record);
+        return List.of();
+    }
+
+    // Live session ids of a user, most recently active first.
+    default List<String> findUserSessions(String user) {
+        return List.of();
+    }
+
+    // Deletes every session of a user and returns the ids deleted.
+    default List<String> deleteUserSessions(String user) {
+        return List.of();
+    }
+
+    default RiskEventPage queryEvents(RiskEventQuery query) {
+        return RiskEventPage.empty();
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.session;
+
+public class SessionStoreUnavailableException extends RuntimeException {
+    public SessionStoreUnavailableException(String message) {
+        super(message);
+    }
+
+    public SessionStoreUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
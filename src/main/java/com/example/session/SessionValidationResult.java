@@ -0,0 +1,45 @@
+package com.example.session;
+
+public final class SessionValidationResult {
+    private static final SessionValidationResult MISSING = new SessionValidationResult(null, false, false);
+    private static final SessionValidationResult UNKNOWN = new SessionValidationResult(null, false, true);
+
+    private final SessionRecord record;
+    private final boolean attributesChanged;
+    private final boolean unknown;
+
+    private SessionValidationResult(SessionRecord record, boolean attributesChanged, boolean unknown) {
+        this.record = record;
+        this.attributesChanged = attributesChanged;
+        this.unknown = unknown;
+    }
+
+    public static SessionValidationResult of(SessionRecord record, boolean attributesChanged) {
+        return record == null ? MISSING : new SessionValidationResult(record, attributesChanged, false);
+    }
+
+    public static SessionValidationResult missing() {
+        return MISSING;
+    }
+
+    // The store could not be asked (fail-open while degraded); not evidence the session is gone.
+    public static SessionValidationResult unknown() {
+        return UNKNOWN;
+    }
+
+    public SessionRecord getRecord() {
+        return record;
+    }
+
+    public boolean isPresent() {
+        return record != null;
+    }
+
+    public boolean isUnknown() {
+        return unknown;
+    }
+
+    public boolean isAttributesChanged() {
+        return attributesChanged;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.session;
+
+import java.util.List;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+final class SessionValidationScript {
+    // KEYS: session key, risk-event list, and optionally the index key of the expected user
+    // ARGV: ip, user agent, now (epoch millis), ttl seconds, coalesce window millis, event history limit,
+    //       expected user ('' when unknown)
+    // Returns nil when the session is missing, otherwise {payload, attributesChanged, written, events...}
+    // where payload is the stored record after the touch when written, or before it when not, and
+    // events are the encoded attribute-change events pushed onto the list.
+    private static final String BLOB_SCRIPT = """
+            local payload = redis.call('GET', KEYS[1])
+            if not payload then
+              return nil
+            end
+            local record = cjson.decode(payload)
+            local ip, ua, now = ARGV[1], ARGV[2], tonumber(ARGV[3])
+            local changed = 0
+            local events = {}
+            local function recordChange(message, details)
+              local event = {
+                type = 'CLIENT_ATTRIBUTE_CHANGE',
+                sessionId = record.sessionId,
+                user = record.user,
+                ja4Fingerprint = record.ja4Fingerprint,
+                clientFingerprint = record.clientFingerprint,
+                ipAddress = ip,
+                userAgent = ua,
+                message = message,
+                details = details,
+                timestamp = now
+              }
+              local encoded = cjson.encode(event)
+              redis.call('LPUSH', KEYS[2], encoded)
+              events[#events + 1] = encoded
+              changed = 1
+            end
+            if ip ~= '' and record.ipAddress ~= ip then
+              recordChange('Client IP changed during session',
+                {previousIp = record.ipAddress or 'unknown', currentIp = ip})
+              record.ipAddress = ip
+            end
+            if ua ~= '' and record.userAgent ~= ua then
+              recordChange('User-Agent changed during session',
+                {previousUserAgent = record.userAgent or 'unknown', currentUserAgent = ua})
+              record.userAgent = ua
+            end
+            if changed == 1 then
+              redis.call('LTRIM', KEYS[2], 0, tonumber(ARGV[6]) - 1)
+            end
+            if changed == 0 and now - (tonumber(record.lastSeenAt) or 0) < tonumber(ARGV[5]) then
+              return {payload, 0, 0}
+            end
+            record.lastSeenAt = now
+            payload = cjson.encode(record)
+            redis.call('SET', KEYS[1], payload, 'EX', ARGV[4])
+            -- only the declared index key is touched; the caller indexes any other user itself
+            if KEYS[3] and record.user == ARGV[7] and record.status == 'ACTIVE' then
+              redis.call('ZADD', KEYS[3], now, record.sessionId)
+              redis.call('EXPIRE', KEYS[3], ARGV[4])
+            end
+            return {payload, changed, 1, events[1], events[2]}
+            """;
+
+    // The same contract over the hash layout, with ARGV[8] the session id. Only the fields
+    // validation needs are read and only the changed ones written; the client signals are never
+    // touched. Returns nil when the session is missing, otherwise {user, ja4, clientFp, ua, ip,
+    // lastSeenAt, status, attributesChanged, written, events...} with the fields after the touch
+    // when written.
+    private static final String HASH_SCRIPT = """
+            local f = redis.call('HMGET', KEYS[1], 'user', 'ja4', 'clientFp', 'ua', 'ip', 'lastSeenAt', 'status')
+            if not f[6] then
+              return nil
+            end
+            local ip, ua, now = ARGV[1], ARGV[2], tonumber(ARGV[3])
+            local changed = 0
+            local events = {}
+            local updates = {'lastSeenAt', ARGV[3]}
+            local function recordChange(message, details)
+              local event = {
+                type = 'CLIENT_ATTRIBUTE_CHANGE',
+                sessionId = ARGV[8],
+                user = f[1] or nil,
+                ja4Fingerprint = f[2] or nil,
+                clientFingerprint = f[3] or nil,
+                ipAddress = ip,
+                userAgent = ua,
+                message = message,
+                details = details,
+                timestamp = now
+              }
+              local encoded = cjson.encode(event)
+              redis.call('LPUSH', KEYS[2], encoded)
+              events[#events + 1] = encoded
+              changed = 1
+            end
+            if ip ~= '' and f[5] ~= ip then
+              recordChange('Client IP changed during session',
+                {previousIp = f[5] or 'unknown', currentIp = ip})
+              f[5] = ip
+              updates[#updates + 1] = 'ip'
+              updates[#updates + 1] = ip
+            end
+            if ua ~= '' and f[4] ~= ua then
+              recordChange('User-Agent changed during session',
+                {previousUserAgent = f[4] or 'unknown', currentUserAgent = ua})
+              f[4] = ua
+              updates[#updates + 1] = 'ua'
+              updates[#updates + 1] = ua
+            end
+            if changed == 1 then
+              redis.call('LTRIM', KEYS[2], 0, tonumber(ARGV[6]) - 1)
+            end
+            if changed == 0 and now - (tonumber(f[6]) or 0) < tonumber(ARGV[5]) then
+              return {f[1], f[2], f[3], f[4], f[5], f[6], f[7], 0, 0}
+            end
+            f[6] = ARGV[3]
+            redis.call('HSET', KEYS[1], unpack(updates))
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            if KEYS[3] and f[1] == ARGV[7] and f[7] == 'ACTIVE' then
+              redis.call('ZADD', KEYS[3], now, ARGV[8])
+              redis.call('EXPIRE', KEYS[3], ARGV[4])
+            end
+            return {f[1], f[2], f[3], f[4], f[5], f[6], f[7], changed, 1, events[1], events[2]}
+            """;
+
+    static final SessionValidationScript BLOB = new SessionValidationScript(BLOB_SCRIPT);
+    static final SessionValidationScript HASH = new SessionValidationScript(HASH_SCRIPT);
+
+    private final String script;
+    private volatile String sha;
+
+    private SessionValidationScript(String script) {
+        this.script = script;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Object> execute(UnifiedJedis jedis, List<String> keys, List<String> args) {
+        String current = sha;
+        if (current == null) {
+            current = load(jedis, keys.get(0));
+        }
+        try {
+            return (List<Object>) jedis.evalsha(current, keys, args);
+        } catch (JedisNoScriptException ex) {
+            return (List<Object>) jedis.evalsha(load(jedis, keys.get(0)), keys, args);
+        }
+    }
+
+    private String load(UnifiedJedis jedis, String sampleKey) {
+        String loaded = jedis.scriptLoad(script, sampleKey);
+        sha = loaded;
+        return loaded;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Approximate per-key event counts over a sliding window, in a fixed amount of memory.
+//
+// The window is split into BUCKETS sub-windows; a key's count is the sum of its buckets that are
+// still inside the window. Keys are tracked by a 64-bit hash in small 4-way sets spread over
+// independently locked segments. When a set is full the key with the lowest live count is
+// replaced, so heavy hitters stay tracked while one-off keys churn.
+public final class SlidingWindowCounter {
+    private static final int SEGMENT_COUNT = 16;
+    private static final int WAYS = 4;
+    private static final int BUCKETS = 6;
+
+    private final Segment[] segments;
+    private final long bucketNanos;
+    private final long originNanos = System.nanoTime();
+    private final LongAdder evictions = new LongAdder();
+
+    public SlidingWindowCounter(int maxKeys, Duration window) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+        int setsPerSegment = Math.max(1, (maxKeys + SEGMENT_COUNT * WAYS - 1) / (SEGMENT_COUNT * WAYS));
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(setsPerSegment);
+        }
+    }
+
+    // Returns the key's count including this event.
+    public int increment(String key) {
+        if (key == null) {
+            return 0;
+        }
+        long hash = hash(key);
+        int epoch = currentEpoch();
+        Segment segment = segments[(int) (hash >>> 60)];
+        synchronized (segment) {
+            int slot = segment.find(hash);
+            if (slot < 0) {
+                slot = segment.claim(hash, epoch);
+            }
+            int base = slot * BUCKETS;
+            int bucket = base + Math.floorMod(epoch, BUCKETS);
+            if (segment.epochs[bucket] != epoch) {
+                segment.epochs[bucket] = epoch;
+                segment.counts[bucket] = 0;
+            }
+            segment.counts[bucket]++;
+            return segment.total(slot, epoch);
+        }
+    }
+
+    public int count(String key) {
+        if (key == null) {
+            return 0;
+        }
+        long hash = hash(key);
+        Segment segment = segments[(int) (hash >>> 60)];
+        synchronized (segment) {
+            int slot = segment.find(hash);
+            return slot < 0 ? 0 : segment.total(slot, currentEpoch());
+        }
+    }
+
+    public int getCapacity() {
+        return segments.length * segments[0].hashes.length;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private int currentEpoch() {
+        return (int) ((System.nanoTime() - originNanos) / bucketNanos);
+    }
+
+    // 0 marks an empty slot
+    private static long hash(String key) {
+        long h = Hashing.hash64(key);
+        return h == 0 ? 1 : h;
+    }
+
+    private final class Segment {
+        private final long[] hashes;
+        private final int[] counts;
+        private final int[] epochs;
+        private final int sets;
+
+        private Segment(int sets) {
+            this.sets = sets;
+            this.hashes = new long[sets * WAYS];
+            this.counts = new int[sets * WAYS * BUCKETS];
+            this.epochs = new int[sets * WAYS * BUCKETS];
+        }
+
+        private int setBase(long hash) {
+            return (int) Long.remainderUnsigned(hash, sets) * WAYS;
+        }
+
+        private int find(long hash) {
+            int base = setBase(hash);
+            for (int way = 0; way < WAYS; way++) {
+                if (hashes[base + way] == hash) {
+                    return base + way;
+                }
+            }
+            return -1;
+        }
+
+        private int claim(long hash, int epoch) {
+            int base = setBase(hash);
+            int victim = base;
+            int victimTotal = Integer.MAX_VALUE;
+            for (int way = 0; way < WAYS; way++) {
+                int slot = base + way;
+                int total = hashes[slot] == 0 ? -1 : total(slot, epoch);
+                if (total < victimTotal) {
+                    victim = slot;
+                    victimTotal = total;
+                }
+            }
+            if (victimTotal > 0) {
+                evictions.increment();
+            }
+            hashes[victim] = hash;
+            int start = victim * BUCKETS;
+            Arrays.fill(counts, start, start + BUCKETS, 0);
+            Arrays.fill(epochs, start, start + BUCKETS, epoch - BUCKETS);
+            return victim;
+        }
+
+        private int total(int slot, int epoch) {
+            int total = 0;
+            int start = slot * BUCKETS;
+            for (int i = start; i < start + BUCKETS; i++) {
+                if (epoch - epochs[i] < BUCKETS) {
+                    total += counts[i];
+                }
+            }
+            return total;
+        }
+    }
+}
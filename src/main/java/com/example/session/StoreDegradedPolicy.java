@@ -0,0 +1,7 @@
+package com.example.session;
+
+public enum StoreDegradedPolicy {
+    FAIL_OPEN,
+    FAIL_CLOSED,
+    LOCAL_SNAPSHOT
+}
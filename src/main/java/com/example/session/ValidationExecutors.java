@@ -0,0 +1,45 @@
+package com.example.session;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class ValidationExecutors {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ValidationExecutors.class);
+    private static final int QUEUE_PER_THREAD = 16;
+
+    private ValidationExecutors() {
+    }
+
+    // Virtual threads on JDK 21+, looked up reflectively because the SDK still targets 17.
+    public static ExecutorService create(int platformThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            LOGGER.info("Async session validation runs on virtual threads");
+            return executor;
+        } catch (NoSuchMethodException ex) {
+            LOGGER.info("Virtual threads unavailable; async session validation uses {} platform threads",
+                    platformThreads);
+        } catch (ReflectiveOperationException ex) {
+            LOGGER.warn("Could not create virtual thread executor: {}", ex.getMessage());
+        }
+        int threads = Math.max(1, platformThreads);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ja4-validation-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
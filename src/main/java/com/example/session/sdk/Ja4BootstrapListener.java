@@ -16,7 +16,7 @@ public class Ja4BootstrapListener implements ServletContextListener {
 
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
-        // no-op
+        Ja4SessionSdk.shutdown(sce.getServletContext());
     }
 }
 
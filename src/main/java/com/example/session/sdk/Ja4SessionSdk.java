@@ -1,18 +1,66 @@
 package com.example.session.sdk;
 
+import com.example.session.AbuseDetector;
+import com.example.session.AsyncRiskEventWriter;
+import com.example.session.BinarySessionCodec;
+import com.example.session.CardinalitySketches;
+import com.example.session.CircuitBreakerSessionStore;
 import com.example.session.FingerprintValidationFilter;
+import com.example.session.HttpRequestUtils;
+import com.example.session.InMemorySessionStore;
 import com.example.session.LoginServlet;
 import com.example.session.LogoutServlet;
+import com.example.session.MetricsRegistry;
+import com.example.session.MetricsServlet;
 import com.example.session.ProfileServlet;
+import com.example.session.RedisConfig;
+import com.example.session.RedisFingerprintDictionary;
+import com.example.session.RedisManager;
+import com.example.session.RedisPoolStats;
+import com.example.session.RedisRiskEventIndex;
+import com.example.session.RedisSessionStore;
+import com.example.session.RevokedSessionFilter;
+import com.example.session.RiskEventExportServlet;
+import com.example.session.RiskEventJournal;
+import com.example.session.RiskEventOverflowPolicy;
+import com.example.session.RiskEventQueryServlet;
+import com.example.session.RoutePolicy;
+import com.example.session.RoutePolicyTable;
+import com.example.session.SessionAdminServlet;
+import com.example.session.SessionCodec;
 import com.example.session.SessionConstants;
+import com.example.session.SessionInvalidationBus;
+import com.example.session.SessionMetrics;
+import com.example.session.SessionRecordCache;
+import com.example.session.SessionSecurityRepository;
+import com.example.session.SessionStore;
+import com.example.session.ValidationExecutors;
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterRegistration;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletRegistration;
 import jakarta.servlet.Servlet;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public final class Ja4SessionSdk {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Ja4SessionSdk.class);
+    private static final Duration EVENT_FLUSH_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_LOCAL_TTL = Duration.ofSeconds(3600);
+    private static final Duration EXPIRY_TICK = Duration.ofSeconds(1);
+    private static final int LOCAL_EVENT_HISTORY = 200;
+    private static final int STORE_SNAPSHOT_MAX_ENTRIES = 10_000;
+    private static final int STORE_TIMEOUT_BUDGET_FACTOR = 4;
+
     private Ja4SessionSdk() {
     }
 
@@ -21,20 +69,344 @@ public final class Ja4SessionSdk {
     }
 
     public static void install(ServletContext context, Ja4SessionSdkOptions options) {
+        if (options.getSessionAdminPath() != null && options.getSessionAdminAuthorizer() == null) {
+            throw new IllegalStateException("sessionAdminPath requires a sessionAdminAuthorizer");
+        }
+        if (options.getEventQueryPath() != null && options.getSessionAdminAuthorizer() == null) {
+            throw new IllegalStateException("eventQueryPath requires a sessionAdminAuthorizer");
+        }
+        if (options.getEventExportPath() != null && options.getSessionAdminAuthorizer() == null) {
+            throw new IllegalStateException("eventExportPath requires a sessionAdminAuthorizer");
+        }
         context.setAttribute(SessionConstants.CONTEXT_LOGIN_PATH, options.getLoginPath());
         context.setAttribute(SessionConstants.CONTEXT_PROFILE_PATH, options.getProfilePath());
         context.setAttribute(SessionConstants.CONTEXT_LOGOUT_PATH, options.getLogoutPath());
 
-        registerServlet(context, "ja4LoginServlet", new LoginServlet(), options.getLoginPath());
-        registerServlet(context, "ja4ProfileServlet", new ProfileServlet(), options.getProfilePath());
-        registerServlet(context, "ja4LogoutServlet", new LogoutServlet(), options.getLogoutPath());
+        if (options.getRedisConfig() != null) {
+            RedisManager.configure(options.getRedisConfig());
+        } else {
+            RedisManager.reopen();
+        }
+        SessionStore store = options.getSessionStore();
+        if (store == null) {
+            store = createDefaultStore(context, options);
+        }
+        if (options.getStoreFailureThreshold() > 0) {
+            CircuitBreakerSessionStore breaker = new CircuitBreakerSessionStore(
+                    store,
+                    options.getStoreCallBudget(),
+                    options.getStoreFailureThreshold(),
+                    options.getStoreOpenDuration(),
+                    options.getStoreDegradedPolicy(),
+                    STORE_SNAPSHOT_MAX_ENTRIES,
+                    options.getStoreSnapshotTtl());
+            context.setAttribute(SessionConstants.CONTEXT_STORE_BREAKER, breaker);
+            if (store instanceof RedisSessionStore) {
+                warnOnSlowRedisTimeouts(Optional.ofNullable(options.getRedisConfig())
+                        .orElseGet(RedisConfig::fromEnvironment), options.getStoreCallBudget());
+            }
+            store = breaker;
+        }
+        SessionSecurityRepository.configure(store);
+        if (options.isAsyncEventsEnabled()) {
+            AsyncRiskEventWriter writer = new AsyncRiskEventWriter(
+                    options.getEventQueueCapacity(),
+                    options.getEventBatchSize(),
+                    options.getEventFlushInterval(),
+                    options.getEventOverflowPolicy(),
+                    options.getEventBlockTimeout(),
+                    SessionSecurityRepository::writeEvents);
+            writer.start();
+            SessionSecurityRepository.enableAsyncEvents(writer);
+            context.setAttribute(SessionConstants.CONTEXT_EVENT_WRITER, writer);
+        }
+        if (options.getEventJournalDirectory() != null) {
+            startJournal(context, options);
+        }
+        HttpRequestUtils.setTrustedProxies(options.getTrustedProxies());
+        if (options.isAbuseDetectionEnabled()) {
+            SessionSecurityRepository.enableAbuseDetection(new AbuseDetector(
+                    options.getAbuseWindow(),
+                    options.getAbuseMaxTrackedKeys(),
+                    options.getAbuseIpThreshold(),
+                    options.getAbuseFingerprintThreshold(),
+                    options.getAbuseUserThreshold()));
+        }
+        if (options.isSketchesEnabled()) {
+            CardinalitySketches sketches = new CardinalitySketches(options.getSketchMaxKeys(),
+                    options.getSketchWindow());
+            if (RedisManager.isEnabled()) {
+                sketches.startMerging(options.getSketchMergeInterval());
+            }
+            SessionSecurityRepository.enableSketches(sketches);
+        }
+        RevokedSessionFilter revokedSessions = null;
+        if (options.isRevokedSessionFilterEnabled()) {
+            revokedSessions = new RevokedSessionFilter(options.getRevokedSessionCapacity(),
+                    options.getRevokedSessionFalsePositiveRate(), options.getRevokedSessionRotation());
+            revokedSessions.startRotation();
+            SessionSecurityRepository.enableRevokedSessionFilter(revokedSessions);
+        }
+        SessionSecurityRepository.setMaxSessionsPerUser(options.getMaxSessionsPerUser());
+        Object nearCache = context.getAttribute(SessionConstants.CONTEXT_NEAR_CACHE);
+        SessionInvalidationBus.start(nearCache instanceof SessionRecordCache ? (SessionRecordCache) nearCache : null,
+                revokedSessions);
+
+        boolean async = options.isAsyncFilterEnabled();
+        registerServlet(context, "ja4LoginServlet", new LoginServlet(), options.getLoginPath(), async);
+        registerServlet(context, "ja4ProfileServlet", new ProfileServlet(), options.getProfilePath(), async);
+        registerServlet(context, "ja4LogoutServlet", new LogoutServlet(), options.getLogoutPath(), async);
+        registerMetrics(context);
+        if (options.getMetricsPath() != null) {
+            registerServlet(context, "ja4MetricsServlet", new MetricsServlet(), options.getMetricsPath(), async);
+        }
+        if (options.getEventQueryPath() != null) {
+            Duration retention = options.getEventIndexRetention();
+            if (options.getSessionStore() == null && (retention == null || retention.isZero())) {
+                LOGGER.warn("Risk event query endpoint registered without an event index; set eventIndexRetention");
+            }
+            registerServlet(context, "ja4RiskEventServlet",
+                    new RiskEventQueryServlet(options.getSessionAdminAuthorizer()), options.getEventQueryPath(), async);
+        }
+        if (options.getSessionAdminPath() != null) {
+            registerServlet(context, "ja4SessionAdminServlet", new SessionAdminServlet(options.getSessionAdminAuthorizer()),
+                    options.getSessionAdminPath(), async);
+        }
+        if (options.getEventExportPath() != null
+                && context.getAttribute(SessionConstants.CONTEXT_EVENT_JOURNAL) != null) {
+            registerServlet(context, "ja4RiskEventExportServlet",
+                    new RiskEventExportServlet(options.getSessionAdminAuthorizer()), options.getEventExportPath(), async);
+        }
+
+        // the login route is always skipped unless the table says otherwise
+        Map<String, RoutePolicy> routePolicies = new LinkedHashMap<>(options.getRoutePolicies());
+        routePolicies.putIfAbsent(options.getLoginPath(), RoutePolicy.SKIP);
+        RoutePolicyTable routes = RoutePolicyTable.compile(routePolicies);
+
+        FingerprintValidationFilter validationFilter;
+        EnumSet<DispatcherType> dispatcherTypes;
+        if (async) {
+            ExecutorService executor = ValidationExecutors.create(options.getAsyncFilterThreads());
+            context.setAttribute(SessionConstants.CONTEXT_VALIDATION_EXECUTOR, executor);
+            validationFilter = new FingerprintValidationFilter(executor, options.getAsyncFilterTimeout().toMillis(),
+                    routes);
+            dispatcherTypes = EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        } else {
+            validationFilter = new FingerprintValidationFilter(null, 0, routes);
+            dispatcherTypes = EnumSet.of(DispatcherType.REQUEST);
+        }
+        FilterRegistration.Dynamic filter = context.addFilter("ja4FingerprintFilter", validationFilter);
+        filter.setAsyncSupported(async);
+        filter.addMappingForUrlPatterns(dispatcherTypes, true, options.getProtectedPattern());
+    }
+
+    public static void shutdown(ServletContext context) {
+        SessionMetrics.registry().removeFunctionMetrics();
+        SessionInvalidationBus.stop();
+        SessionSecurityRepository.enableAbuseDetection(null);
+        HttpRequestUtils.setTrustedProxies(null);
+        SessionSecurityRepository.setMaxSessionsPerUser(0);
+        CardinalitySketches sketches = SessionSecurityRepository.getSketches();
+        if (sketches != null) {
+            SessionSecurityRepository.enableSketches(null);
+            sketches.stop();
+        }
+        RevokedSessionFilter revokedSessions = SessionSecurityRepository.getRevokedSessions();
+        if (revokedSessions != null) {
+            SessionSecurityRepository.enableRevokedSessionFilter(null);
+            revokedSessions.stop();
+        }
+        AsyncRiskEventWriter writer = SessionSecurityRepository.getEventWriter();
+        if (writer != null) {
+            SessionSecurityRepository.enableAsyncEvents(null);
+            writer.stop(EVENT_FLUSH_TIMEOUT);
+            context.removeAttribute(SessionConstants.CONTEXT_EVENT_WRITER);
+        }
+        AsyncRiskEventWriter journalWriter = SessionSecurityRepository.getJournalWriter();
+        if (journalWriter != null) {
+            SessionSecurityRepository.enableJournal(null);
+            journalWriter.stop(EVENT_FLUSH_TIMEOUT);
+        }
+        Object journal = context.getAttribute(SessionConstants.CONTEXT_EVENT_JOURNAL);
+        if (journal instanceof RiskEventJournal) {
+            ((RiskEventJournal) journal).close();
+            context.removeAttribute(SessionConstants.CONTEXT_EVENT_JOURNAL);
+        }
+        context.removeAttribute(SessionConstants.CONTEXT_NEAR_CACHE);
+        context.removeAttribute(SessionConstants.CONTEXT_STORE_BREAKER);
+        Object executor = context.getAttribute(SessionConstants.CONTEXT_VALIDATION_EXECUTOR);
+        if (executor instanceof ExecutorService) {
+            ExecutorService validationExecutor = (ExecutorService) executor;
+            validationExecutor.shutdown();
+            try {
+                validationExecutor.awaitTermination(EVENT_FLUSH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            context.removeAttribute(SessionConstants.CONTEXT_VALIDATION_EXECUTOR);
+        }
+        SessionStore store = SessionSecurityRepository.getStore();
+        SessionSecurityRepository.configure(null);
+        store.close();
+        RedisManager.closePool();
+    }
+
+    // The journal has its own queue and flusher thread so that a slow disk never holds up the
+    // store writer, and request threads only ever enqueue.
+    private static void startJournal(ServletContext context, Ja4SessionSdkOptions options) {
+        RiskEventJournal journal;
+        try {
+            journal = new RiskEventJournal(options.getEventJournalDirectory(), options.getEventJournalSegmentBytes(),
+                    options.getEventJournalRotation(), options.getEventJournalMaxSegments());
+        } catch (IOException ex) {
+            LOGGER.warn("Risk event journal disabled: {}", ex.getMessage());
+            return;
+        }
+        AsyncRiskEventWriter writer = new AsyncRiskEventWriter(
+                options.getEventQueueCapacity(),
+                options.getEventBatchSize(),
+                options.getEventFlushInterval(),
+                RiskEventOverflowPolicy.DROP,
+                Duration.ZERO,
+                journal::append,
+                "ja4-risk-event-journal");
+        writer.start();
+        SessionSecurityRepository.enableJournal(writer);
+        context.setAttribute(SessionConstants.CONTEXT_EVENT_JOURNAL, journal);
+    }
+
+    // The breaker only counts a slow call once it returns, so until it opens every request can
+    // block for the full socket timeout or pool wait, whatever the call budget says.
+    private static void warnOnSlowRedisTimeouts(RedisConfig config, Duration callBudget) {
+        if (callBudget == null || callBudget.isZero()) {
+            return;
+        }
+        Duration limit = callBudget.multipliedBy(STORE_TIMEOUT_BUDGET_FACTOR);
+        if (config.getSocketTimeout().compareTo(limit) > 0) {
+            LOGGER.warn("Redis socketTimeout {} ms is far above storeCallBudget {} ms; requests can block that long "
+                    + "before the breaker opens", config.getSocketTimeout().toMillis(), callBudget.toMillis());
+        }
+        if (config.getPoolMaxWait().compareTo(limit) > 0) {
+            LOGGER.warn("Redis poolMaxWait {} ms is far above storeCallBudget {} ms; requests can block that long "
+                    + "before the breaker opens", config.getPoolMaxWait().toMillis(), callBudget.toMillis());
+        }
+    }
+
+    private static SessionStore createDefaultStore(ServletContext context, Ja4SessionSdkOptions options) {
+        if (!RedisManager.isEnabled()) {
+            LOGGER.warn("Redis is not available; falling back to the in-memory session store");
+            if (options.isExpiryEventsEnabled()) {
+                return new InMemorySessionStore(DEFAULT_LOCAL_TTL, EXPIRY_TICK, LOCAL_EVENT_HISTORY,
+                        SessionSecurityRepository::recordSessionExpiry);
+            }
+            return new InMemorySessionStore();
+        }
+        SessionRecordCache cache = null;
+        if (options.getNearCacheMaxEntries() > 0) {
+            cache = new SessionRecordCache(options.getNearCacheMaxEntries(), options.getNearCacheTtl());
+            context.setAttribute(SessionConstants.CONTEXT_NEAR_CACHE, cache);
+        }
+        Duration retention = options.getEventIndexRetention();
+        RedisRiskEventIndex eventIndex = retention == null || retention.isZero()
+                ? null
+                : new RedisRiskEventIndex(retention, options.getEventIndexMaxEntries());
+        SessionCodec codec = options.getSessionCodec();
+        if (options.isFingerprintDictionaryEnabled()) {
+            codec = new BinarySessionCodec(new RedisFingerprintDictionary(
+                    options.getFingerprintDictionaryMaxEntries(), options.getFingerprintDictionaryIdleTtl()));
+        }
+        return new RedisSessionStore(codec, cache, options.getTouchCoalesceWindow(), eventIndex,
+                options.getSessionLayout());
+    }
+
+    private static void registerMetrics(ServletContext context) {
+        MetricsRegistry registry = SessionMetrics.registry();
+        registry.removeFunctionMetrics();
+        registry.gauge("ja4_redis_pool_active", "Connections borrowed from the Redis pool",
+                () -> poolStat(RedisPoolStats::getActive));
+        registry.gauge("ja4_redis_pool_idle", "Idle connections in the Redis pool",
+                () -> poolStat(RedisPoolStats::getIdle));
+        registry.gauge("ja4_redis_pool_waiters", "Threads waiting for a Redis connection",
+                () -> poolStat(RedisPoolStats::getWaiters));
+        registry.gauge("ja4_redis_pool_borrow_wait_mean_seconds", "Mean time spent waiting for a Redis connection",
+                () -> poolStat(RedisPoolStats::getMeanBorrowWaitMillis) / 1000.0);
+        registry.gauge("ja4_redis_pool_borrow_wait_max_seconds", "Longest wait for a Redis connection",
+                () -> poolStat(RedisPoolStats::getMaxBorrowWaitMillis) / 1000.0);
+
+        Object cache = context.getAttribute(SessionConstants.CONTEXT_NEAR_CACHE);
+        if (cache instanceof SessionRecordCache) {
+            SessionRecordCache nearCache = (SessionRecordCache) cache;
+            registry.gauge("ja4_near_cache_entries", "Session records held in the near cache", nearCache::size);
+            registry.functionCounter("ja4_near_cache_requests_total", "Near cache lookups",
+                    nearCache::getHitCount, "result", "hit");
+            registry.functionCounter("ja4_near_cache_requests_total", "Near cache lookups",
+                    nearCache::getMissCount, "result", "miss");
+            registry.functionCounter("ja4_near_cache_evictions_total", "Near cache evictions",
+                    nearCache::getEvictionCount);
+        }
+        Object writer = context.getAttribute(SessionConstants.CONTEXT_EVENT_WRITER);
+        if (writer instanceof AsyncRiskEventWriter) {
+            AsyncRiskEventWriter eventWriter = (AsyncRiskEventWriter) writer;
+            registry.gauge("ja4_event_queue_depth", "Risk events waiting to be written", eventWriter::getQueueDepth);
+            registry.functionCounter("ja4_events_dropped_total", "Risk events dropped because the queue was full",
+                    eventWriter::getDroppedCount);
+            registry.functionCounter("ja4_events_written_total", "Risk events written by the async writer",
+                    eventWriter::getWrittenCount);
+        }
+        Object journal = context.getAttribute(SessionConstants.CONTEXT_EVENT_JOURNAL);
+        AsyncRiskEventWriter journalWriter = SessionSecurityRepository.getJournalWriter();
+        if (journal instanceof RiskEventJournal && journalWriter != null) {
+            RiskEventJournal eventJournal = (RiskEventJournal) journal;
+            registry.gauge("ja4_event_journal_segments", "Segment files held by the risk event journal",
+                    eventJournal::getSegmentCount);
+            registry.functionCounter("ja4_event_journal_bytes_total", "Bytes appended to the risk event journal",
+                    eventJournal::getWrittenBytes);
+            registry.functionCounter("ja4_event_journal_dropped_total",
+                    "Risk events dropped because the journal queue was full or a write failed",
+                    journalWriter::getDroppedCount);
+        }
+        AbuseDetector abuseDetector = SessionSecurityRepository.getAbuseDetector();
+        if (abuseDetector != null) {
+            registry.functionCounter("ja4_abuse_keys_evicted_total",
+                    "Tracked IPs, fingerprints or users displaced from the abuse counters while still active",
+                    abuseDetector::getEvictionCount);
+        }
+        CardinalitySketches sketches = SessionSecurityRepository.getSketches();
+        if (sketches != null) {
+            registry.gauge("ja4_sketch_tracked_keys", "Users and fingerprints with a HyperLogLog sketch in this node",
+                    sketches::getTrackedKeys);
+            registry.functionCounter("ja4_sketch_merge_failures_total", "Failed sketch merges with Redis",
+                    sketches::getMergeFailureCount);
+        }
+        RevokedSessionFilter revokedSessions = SessionSecurityRepository.getRevokedSessions();
+        if (revokedSessions != null) {
+            registry.functionCounter("ja4_revoked_sessions_total", "Session ids added to the revoked-session filter",
+                    revokedSessions::getRevocationCount);
+        }
+        Object breaker = context.getAttribute(SessionConstants.CONTEXT_STORE_BREAKER);
+        if (breaker instanceof CircuitBreakerSessionStore) {
+            CircuitBreakerSessionStore storeBreaker = (CircuitBreakerSessionStore) breaker;
+            registry.gauge("ja4_store_circuit_open", "1 while the session store circuit is not closed",
+                    () -> storeBreaker.getState() == CircuitBreakerSessionStore.State.CLOSED ? 0 : 1);
+            registry.functionCounter("ja4_store_circuit_opened_total", "Times the session store circuit opened",
+                    storeBreaker::getOpenTransitions);
+            registry.functionCounter("ja4_store_calls_degraded_total", "Store calls answered by the degraded policy",
+                    storeBreaker::getRejectedCalls);
+        }
+    }
 
-        FilterRegistration.Dynamic filter = context.addFilter("ja4FingerprintFilter", new FingerprintValidationFilter());
-        filter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, options.getProtectedPattern());
+    private static double poolStat(ToLongFunction<RedisPoolStats> stat) {
+        RedisPoolStats stats = RedisManager.poolStats();
+        return stats.isAvailable() ? stat.applyAsLong(stats) : Double.NaN;
     }
 
-    private static void registerServlet(ServletContext context, String name, Servlet servlet, String mapping) {
+    private static void registerServlet(ServletContext context,
+                                        String name,
+                                        Servlet servlet,
+                                        String mapping,
+                                        boolean asyncSupported) {
         ServletRegistration.Dynamic registration = context.addServlet(name, servlet);
+        registration.setAsyncSupported(asyncSupported);
         registration.addMapping(mapping);
         registration.setLoadOnStartup(1);
     }
@@ -1,10 +1,80 @@
 package com.example.session.sdk;
 
+import com.example.session.AdminAuthorizer;
+import com.example.session.JsonSessionCodec;
+import com.example.session.RedisFingerprintDictionary;
+import com.example.session.RedisConfig;
+import com.example.session.RiskEventOverflowPolicy;
+import com.example.session.RoutePolicy;
+import com.example.session.SessionCodec;
+import com.example.session.SessionLayout;
+import com.example.session.SessionStore;
+import com.example.session.StoreDegradedPolicy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class Ja4SessionSdkOptions {
     private String loginPath = "/api/login";
     private String profilePath = "/api/profile";
     private String logoutPath = "/api/logout";
     private String protectedPattern = "/api/*";
+    private String metricsPath;
+    private String eventQueryPath;
+    private String eventExportPath;
+    private SessionStore sessionStore;
+    private RedisConfig redisConfig;
+    private int nearCacheMaxEntries = 0;
+    private Duration nearCacheTtl = Duration.ofSeconds(5);
+    private Duration touchCoalesceWindow = Duration.ZERO;
+    private SessionCodec sessionCodec = new JsonSessionCodec();
+    private boolean asyncEventsEnabled = false;
+    private int eventQueueCapacity = 10_000;
+    private int eventBatchSize = 100;
+    private Duration eventFlushInterval = Duration.ofMillis(200);
+    private RiskEventOverflowPolicy eventOverflowPolicy = RiskEventOverflowPolicy.DROP;
+    private Duration eventBlockTimeout = Duration.ofMillis(50);
+    private Duration eventIndexRetention = Duration.ZERO;
+    private int eventIndexMaxEntries = 10_000;
+    private Path eventJournalDirectory;
+    private long eventJournalSegmentBytes = 64L * 1024 * 1024;
+    private Duration eventJournalRotation = Duration.ofHours(1);
+    private int eventJournalMaxSegments = 48;
+    private boolean expiryEventsEnabled = false;
+    private boolean asyncFilterEnabled = false;
+    private int storeFailureThreshold = 0;
+    private Duration storeCallBudget = Duration.ofMillis(250);
+    private Duration storeOpenDuration = Duration.ofSeconds(10);
+    private StoreDegradedPolicy storeDegradedPolicy = StoreDegradedPolicy.FAIL_OPEN;
+    private Duration storeSnapshotTtl = Duration.ofSeconds(30);
+    private int asyncFilterThreads = 64;
+    private Duration asyncFilterTimeout = Duration.ofSeconds(10);
+    private boolean abuseDetectionEnabled = false;
+    private Duration abuseWindow = Duration.ofMinutes(1);
+    private int abuseMaxTrackedKeys = 16_384;
+    private int abuseIpThreshold = 20;
+    private int abuseFingerprintThreshold = 10;
+    private int abuseUserThreshold = 5;
+    private boolean sketchesEnabled = false;
+    private int sketchMaxKeys = 4_096;
+    private Duration sketchWindow = Duration.ofDays(1);
+    private Duration sketchMergeInterval = Duration.ofSeconds(30);
+    private boolean revokedSessionFilterEnabled = false;
+    private int revokedSessionCapacity = 100_000;
+    private double revokedSessionFalsePositiveRate = 1e-6;
+    private Duration revokedSessionRotation = Duration.ofHours(1);
+    private int maxSessionsPerUser = 0;
+    private String sessionAdminPath;
+    private AdminAuthorizer sessionAdminAuthorizer;
+    private final Map<String, RoutePolicy> routePolicies = new LinkedHashMap<>();
+    private SessionLayout sessionLayout = SessionLayout.BLOB;
+    private List<String> trustedProxies = List.of();
+    private boolean fingerprintDictionaryEnabled = false;
+    private int fingerprintDictionaryMaxEntries = RedisFingerprintDictionary.DEFAULT_MAX_ENTRIES;
+    private Duration fingerprintDictionaryIdleTtl = RedisFingerprintDictionary.DEFAULT_IDLE_TTL;
 
     public String getLoginPath() {
         return loginPath;
@@ -41,4 +111,494 @@ public class Ja4SessionSdkOptions {
         this.protectedPattern = protectedPattern;
         return this;
     }
+
+    public String getMetricsPath() {
+        return metricsPath;
+    }
+
+    public Ja4SessionSdkOptions setMetricsPath(String metricsPath) {
+        this.metricsPath = metricsPath;
+        return this;
+    }
+
+    public String getEventQueryPath() {
+        return eventQueryPath;
+    }
+
+    public Ja4SessionSdkOptions setEventQueryPath(String eventQueryPath) {
+        this.eventQueryPath = eventQueryPath;
+        return this;
+    }
+
+    public String getEventExportPath() {
+        return eventExportPath;
+    }
+
+    public Ja4SessionSdkOptions setEventExportPath(String eventExportPath) {
+        this.eventExportPath = eventExportPath;
+        return this;
+    }
+
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    public Ja4SessionSdkOptions setSessionStore(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+        return this;
+    }
+
+    public RedisConfig getRedisConfig() {
+        return redisConfig;
+    }
+
+    public Ja4SessionSdkOptions setRedisConfig(RedisConfig redisConfig) {
+        this.redisConfig = redisConfig;
+        return this;
+    }
+
+    public int getNearCacheMaxEntries() {
+        return nearCacheMaxEntries;
+    }
+
+    public Ja4SessionSdkOptions setNearCacheMaxEntries(int nearCacheMaxEntries) {
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+        return this;
+    }
+
+    public Duration getNearCacheTtl() {
+        return nearCacheTtl;
+    }
+
+    public Ja4SessionSdkOptions setNearCacheTtl(Duration nearCacheTtl) {
+        this.nearCacheTtl = nearCacheTtl;
+        return this;
+    }
+
+    public Duration getTouchCoalesceWindow() {
+        return touchCoalesceWindow;
+    }
+
+    public Ja4SessionSdkOptions setTouchCoalesceWindow(Duration touchCoalesceWindow) {
+        this.touchCoalesceWindow = touchCoalesceWindow;
+        return this;
+    }
+
+    public SessionCodec getSessionCodec() {
+        return sessionCodec;
+    }
+
+    public Ja4SessionSdkOptions setSessionCodec(SessionCodec sessionCodec) {
+        this.sessionCodec = sessionCodec;
+        return this;
+    }
+
+    public boolean isAsyncEventsEnabled() {
+        return asyncEventsEnabled;
+    }
+
+    public Ja4SessionSdkOptions setAsyncEventsEnabled(boolean asyncEventsEnabled) {
+        this.asyncEventsEnabled = asyncEventsEnabled;
+        return this;
+    }
+
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    public Ja4SessionSdkOptions setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+        return this;
+    }
+
+    public int getEventBatchSize() {
+        return eventBatchSize;
+    }
+
+    public Ja4SessionSdkOptions setEventBatchSize(int eventBatchSize) {
+        this.eventBatchSize = eventBatchSize;
+        return this;
+    }
+
+    public Duration getEventFlushInterval() {
+        return eventFlushInterval;
+    }
+
+    public Ja4SessionSdkOptions setEventFlushInterval(Duration eventFlushInterval) {
+        this.eventFlushInterval = eventFlushInterval;
+        return this;
+    }
+
+    public RiskEventOverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+
+    public Ja4SessionSdkOptions setEventOverflowPolicy(RiskEventOverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+        return this;
+    }
+
+    public Duration getEventBlockTimeout() {
+        return eventBlockTimeout;
+    }
+
+    public Ja4SessionSdkOptions setEventBlockTimeout(Duration eventBlockTimeout) {
+        this.eventBlockTimeout = eventBlockTimeout;
+        return this;
+    }
+
+    public Duration getEventIndexRetention() {
+        return eventIndexRetention;
+    }
+
+    public Ja4SessionSdkOptions setEventIndexRetention(Duration eventIndexRetention) {
+        this.eventIndexRetention = eventIndexRetention;
+        return this;
+    }
+
+    public int getEventIndexMaxEntries() {
+        return eventIndexMaxEntries;
+    }
+
+    public Ja4SessionSdkOptions setEventIndexMaxEntries(int eventIndexMaxEntries) {
+        this.eventIndexMaxEntries = eventIndexMaxEntries;
+        return this;
+    }
+
+    public Path getEventJournalDirectory() {
+        return eventJournalDirectory;
+    }
+
+    public Ja4SessionSdkOptions setEventJournalDirectory(Path eventJournalDirectory) {
+        this.eventJournalDirectory = eventJournalDirectory;
+        return this;
+    }
+
+    public long getEventJournalSegmentBytes() {
+        return eventJournalSegmentBytes;
+    }
+
+    public Ja4SessionSdkOptions setEventJournalSegmentBytes(long eventJournalSegmentBytes) {
+        this.eventJournalSegmentBytes = eventJournalSegmentBytes;
+        return this;
+    }
+
+    public Duration getEventJournalRotation() {
+        return eventJournalRotation;
+    }
+
+    public Ja4SessionSdkOptions setEventJournalRotation(Duration eventJournalRotation) {
+        this.eventJournalRotation = eventJournalRotation;
+        return this;
+    }
+
+    public int getEventJournalMaxSegments() {
+        return eventJournalMaxSegments;
+    }
+
+    public Ja4SessionSdkOptions setEventJournalMaxSegments(int eventJournalMaxSegments) {
+        this.eventJournalMaxSegments = eventJournalMaxSegments;
+        return this;
+    }
+
+    public boolean isExpiryEventsEnabled() {
+        return expiryEventsEnabled;
+    }
+
+    public Ja4SessionSdkOptions setExpiryEventsEnabled(boolean expiryEventsEnabled) {
+        this.expiryEventsEnabled = expiryEventsEnabled;
+        return this;
+    }
+
+    public boolean isAsyncFilterEnabled() {
+        return asyncFilterEnabled;
+    }
+
+    public Ja4SessionSdkOptions setAsyncFilterEnabled(boolean asyncFilterEnabled) {
+        this.asyncFilterEnabled = asyncFilterEnabled;
+        return this;
+    }
+
+    public int getAsyncFilterThreads() {
+        return asyncFilterThreads;
+    }
+
+    public Ja4SessionSdkOptions setAsyncFilterThreads(int asyncFilterThreads) {
+        this.asyncFilterThreads = asyncFilterThreads;
+        return this;
+    }
+
+    public Duration getAsyncFilterTimeout() {
+        return asyncFilterTimeout;
+    }
+
+    public Ja4SessionSdkOptions setAsyncFilterTimeout(Duration asyncFilterTimeout) {
+        this.asyncFilterTimeout = asyncFilterTimeout;
+        return this;
+    }
+
+    public int getStoreFailureThreshold() {
+        return storeFailureThreshold;
+    }
+
+    public Ja4SessionSdkOptions setStoreFailureThreshold(int storeFailureThreshold) {
+        this.storeFailureThreshold = storeFailureThreshold;
+        return this;
+    }
+
+    public Duration getStoreCallBudget() {
+        return storeCallBudget;
+    }
+
+    public Ja4SessionSdkOptions setStoreCallBudget(Duration storeCallBudget) {
+        this.storeCallBudget = storeCallBudget;
+        return this;
+    }
+
+    public Duration getStoreOpenDuration() {
+        return storeOpenDuration;
+    }
+
+    public Ja4SessionSdkOptions setStoreOpenDuration(Duration storeOpenDuration) {
+        this.storeOpenDuration = storeOpenDuration;
+        return this;
+    }
+
+    public StoreDegradedPolicy getStoreDegradedPolicy() {
+        return storeDegradedPolicy;
+    }
+
+    public Ja4SessionSdkOptions setStoreDegradedPolicy(StoreDegradedPolicy storeDegradedPolicy) {
+        this.storeDegradedPolicy = storeDegradedPolicy;
+        return this;
+    }
+
+    public Duration getStoreSnapshotTtl() {
+        return storeSnapshotTtl;
+    }
+
+    public Ja4SessionSdkOptions setStoreSnapshotTtl(Duration storeSnapshotTtl) {
+        this.storeSnapshotTtl = storeSnapshotTtl;
+        return this;
+    }
+
+    public boolean isAbuseDetectionEnabled() {
+        return abuseDetectionEnabled;
+    }
+
+    public Ja4SessionSdkOptions setAbuseDetectionEnabled(boolean abuseDetectionEnabled) {
+        this.abuseDetectionEnabled = abuseDetectionEnabled;
+        return this;
+    }
+
+    public Duration getAbuseWindow() {
+        return abuseWindow;
+    }
+
+    public Ja4SessionSdkOptions setAbuseWindow(Duration abuseWindow) {
+        this.abuseWindow = abuseWindow;
+        return this;
+    }
+
+    public int getAbuseMaxTrackedKeys() {
+        return abuseMaxTrackedKeys;
+    }
+
+    public Ja4SessionSdkOptions setAbuseMaxTrackedKeys(int abuseMaxTrackedKeys) {
+        this.abuseMaxTrackedKeys = abuseMaxTrackedKeys;
+        return this;
+    }
+
+    public int getAbuseIpThreshold() {
+        return abuseIpThreshold;
+    }
+
+    public Ja4SessionSdkOptions setAbuseIpThreshold(int abuseIpThreshold) {
+        this.abuseIpThreshold = abuseIpThreshold;
+        return this;
+    }
+
+    public int getAbuseFingerprintThreshold() {
+        return abuseFingerprintThreshold;
+    }
+
+    public Ja4SessionSdkOptions setAbuseFingerprintThreshold(int abuseFingerprintThreshold) {
+        this.abuseFingerprintThreshold = abuseFingerprintThreshold;
+        return this;
+    }
+
+    public int getAbuseUserThreshold() {
+        return abuseUserThreshold;
+    }
+
+    public Ja4SessionSdkOptions setAbuseUserThreshold(int abuseUserThreshold) {
+        this.abuseUserThreshold = abuseUserThreshold;
+        return this;
+    }
+
+    public boolean isSketchesEnabled() {
+        return sketchesEnabled;
+    }
+
+    public Ja4SessionSdkOptions setSketchesEnabled(boolean sketchesEnabled) {
+        this.sketchesEnabled = sketchesEnabled;
+        return this;
+    }
+
+    public int getSketchMaxKeys() {
+        return sketchMaxKeys;
+    }
+
+    public Ja4SessionSdkOptions setSketchMaxKeys(int sketchMaxKeys) {
+        this.sketchMaxKeys = sketchMaxKeys;
+        return this;
+    }
+
+    public Duration getSketchWindow() {
+        return sketchWindow;
+    }
+
+    public Ja4SessionSdkOptions setSketchWindow(Duration sketchWindow) {
+        this.sketchWindow = sketchWindow;
+        return this;
+    }
+
+    public Duration getSketchMergeInterval() {
+        return sketchMergeInterval;
+    }
+
+    public Ja4SessionSdkOptions setSketchMergeInterval(Duration sketchMergeInterval) {
+        this.sketchMergeInterval = sketchMergeInterval;
+        return this;
+    }
+
+    public boolean isRevokedSessionFilterEnabled() {
+        return revokedSessionFilterEnabled;
+    }
+
+    public Ja4SessionSdkOptions setRevokedSessionFilterEnabled(boolean revokedSessionFilterEnabled) {
+        this.revokedSessionFilterEnabled = revokedSessionFilterEnabled;
+        return this;
+    }
+
+    public int getRevokedSessionCapacity() {
+        return revokedSessionCapacity;
+    }
+
+    public Ja4SessionSdkOptions setRevokedSessionCapacity(int revokedSessionCapacity) {
+        this.revokedSessionCapacity = revokedSessionCapacity;
+        return this;
+    }
+
+    public double getRevokedSessionFalsePositiveRate() {
+        return revokedSessionFalsePositiveRate;
+    }
+
+    public Ja4SessionSdkOptions setRevokedSessionFalsePositiveRate(double revokedSessionFalsePositiveRate) {
+        this.revokedSessionFalsePositiveRate = revokedSessionFalsePositiveRate;
+        return this;
+    }
+
+    public Duration getRevokedSessionRotation() {
+        return revokedSessionRotation;
+    }
+
+    public Ja4SessionSdkOptions setRevokedSessionRotation(Duration revokedSessionRotation) {
+        this.revokedSessionRotation = revokedSessionRotation;
+        return this;
+    }
+
+    public int getMaxSessionsPerUser() {
+        return maxSessionsPerUser;
+    }
+
+    public Ja4SessionSdkOptions setMaxSessionsPerUser(int maxSessionsPerUser) {
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        return this;
+    }
+
+    public String getSessionAdminPath() {
+        return sessionAdminPath;
+    }
+
+    public Ja4SessionSdkOptions setSessionAdminPath(String sessionAdminPath) {
+        this.sessionAdminPath = sessionAdminPath;
+        return this;
+    }
+
+    public AdminAuthorizer getSessionAdminAuthorizer() {
+        return sessionAdminAuthorizer;
+    }
+
+    // Guards every admin endpoint; required whenever sessionAdminPath,
+    // eventQueryPath or eventExportPath is set.
+    // See AdminAuthorizer.role for container roles.
+    public Ja4SessionSdkOptions setSessionAdminAuthorizer(AdminAuthorizer sessionAdminAuthorizer) {
+        this.sessionAdminAuthorizer = sessionAdminAuthorizer;
+        return this;
+    }
+
+    public Map<String, RoutePolicy> getRoutePolicies() {
+        return Collections.unmodifiableMap(routePolicies);
+    }
+
+    // Exact paths or servlet-style prefixes ending in "/*"; "/*" sets the policy for unmatched paths.
+    public Ja4SessionSdkOptions setRoutePolicy(String pattern, RoutePolicy policy) {
+        this.routePolicies.put(pattern, policy);
+        return this;
+    }
+
+    public Ja4SessionSdkOptions setRoutePolicies(Map<String, RoutePolicy> routePolicies) {
+        this.routePolicies.clear();
+        this.routePolicies.putAll(routePolicies);
+        return this;
+    }
+
+    public SessionLayout getSessionLayout() {
+        return sessionLayout;
+    }
+
+    public Ja4SessionSdkOptions setSessionLayout(SessionLayout sessionLayout) {
+        this.sessionLayout = sessionLayout;
+        return this;
+    }
+
+    public List<String> getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    // Exact addresses of the reverse proxies whose X-Forwarded-For entries abuse detection may trust.
+    public Ja4SessionSdkOptions setTrustedProxies(String... trustedProxies) {
+        this.trustedProxies = trustedProxies == null ? List.of() : List.of(trustedProxies);
+        return this;
+    }
+
+    public boolean isFingerprintDictionaryEnabled() {
+        return fingerprintDictionaryEnabled;
+    }
+
+    // Stores sessions with BinarySessionCodec over a RedisFingerprintDictionary, replacing sessionCodec.
+    public Ja4SessionSdkOptions setFingerprintDictionaryEnabled(boolean fingerprintDictionaryEnabled) {
+        this.fingerprintDictionaryEnabled = fingerprintDictionaryEnabled;
+        return this;
+    }
+
+    public int getFingerprintDictionaryMaxEntries() {
+        return fingerprintDictionaryMaxEntries;
+    }
+
+    public Ja4SessionSdkOptions setFingerprintDictionaryMaxEntries(int fingerprintDictionaryMaxEntries) {
+        this.fingerprintDictionaryMaxEntries = fingerprintDictionaryMaxEntries;
+        return this;
+    }
+
+    public Duration getFingerprintDictionaryIdleTtl() {
+        return fingerprintDictionaryIdleTtl;
+    }
+
+    // Must comfortably exceed the session TTL: an entry idle for this long is evicted.
+    public Ja4SessionSdkOptions setFingerprintDictionaryIdleTtl(Duration fingerprintDictionaryIdleTtl) {
+        this.fingerprintDictionaryIdleTtl = fingerprintDictionaryIdleTtl;
+        return this;
+    }
 }
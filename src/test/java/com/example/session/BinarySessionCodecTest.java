@@ -0,0 +1,230 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class BinarySessionCodecTest {
+    private static final String JA4 = "t13d1516h2_8daaf6152771_e5627efa2ab1";
+    private static final String OTHER_JA4 = "t13d3111h1_e8f1e7e78f70_1f22a2ca17c4";
+    private static final long CREATED_AT = 1_700_000_000_000L;
+
+    @Test
+    void sessionRoundTripKeepsEveryField() {
+        Map<String, String> signals = new LinkedHashMap<>();
+        signals.put("timezone", "Asia/Taipei");
+        signals.put("語言", "中文（台灣）");
+        SessionRecord record = SessionRecord.restore("s-1", "王小明", JA4, OTHER_JA4,
+                "Mozilla/5.0 (瀏覽器) 🚀", "2001:db8::1", signals, CREATED_AT, CREATED_AT + 90_000,
+                SessionStatus.INVALIDATED);
+
+        BinarySessionCodec codec = new BinarySessionCodec();
+        byte[] payload = codec.encodeSession(record);
+
+        assertEquals(BinarySessionCodec.FORMAT_VERSION, payload[0]);
+        assertSameRecord(record, codec.decodeSession(payload));
+    }
+
+    @Test
+    void sessionRoundTripKeepsNullsAndEmptyMaps() {
+        BinarySessionCodec codec = new BinarySessionCodec();
+
+        SessionRecord nulls = SessionRecord.restore("s-2", null, null, null, null, null, null,
+                CREATED_AT, CREATED_AT, null);
+        SessionRecord decodedNulls = codec.decodeSession(codec.encodeSession(nulls));
+        assertSameRecord(nulls, decodedNulls);
+        assertNull(decodedNulls.getClientSignals());
+
+        SessionRecord empty = SessionRecord.restore("s-3", "", JA4, JA4, "", "", Map.of(),
+                CREATED_AT, CREATED_AT, SessionStatus.ACTIVE);
+        SessionRecord decodedEmpty = codec.decodeSession(codec.encodeSession(empty));
+        assertSameRecord(empty, decodedEmpty);
+        assertEquals(Map.of(), decodedEmpty.getClientSignals());
+    }
+
+    @Test
+    void sessionRoundTripKeepsLastSeenBeforeCreation() {
+        // clock steps between nodes can leave lastSeenAt behind createdAt; the delta is zigzag encoded
+        SessionRecord record = SessionRecord.restore("s-4", "alice", JA4, JA4, "ua", "10.0.0.1", Map.of(),
+                CREATED_AT, CREATED_AT - 5_000, SessionStatus.ACTIVE);
+        BinarySessionCodec codec = new BinarySessionCodec();
+
+        SessionRecord decoded = codec.decodeSession(codec.encodeSession(record));
+
+        assertEquals(CREATED_AT - 5_000, decoded.getLastSeenAt().toEpochMilli());
+        assertSameRecord(record, decoded);
+    }
+
+    @Test
+    void eventRoundTripKeepsEveryField() {
+        Map<String, String> details = new LinkedHashMap<>();
+        details.put("receivedJa4", OTHER_JA4);
+        details.put("備註", "ünïcödé");
+        RiskEvent event = RiskEvent.restore(RiskEventType.JA4_MISMATCH, "s-1", "王小明", JA4, OTHER_JA4,
+                "203.0.113.7", "curl/8.0", "Fingerprint mismatch — 指紋不符", details, CREATED_AT);
+        BinarySessionCodec codec = new BinarySessionCodec();
+
+        assertSameEvent(event, codec.decodeEvent(codec.encodeEvent(event)));
+    }
+
+    @Test
+    void eventRoundTripKeepsNullsAndEmptyMaps() {
+        BinarySessionCodec codec = new BinarySessionCodec();
+
+        RiskEvent nulls = RiskEvent.restore(null, null, null, null, null, null, null, null, null, CREATED_AT);
+        RiskEvent decodedNulls = codec.decodeEvent(codec.encodeEvent(nulls));
+        assertSameEvent(nulls, decodedNulls);
+        assertNull(decodedNulls.getDetails());
+
+        RiskEvent empty = RiskEvent.restore(RiskEventType.ABUSE_THRESHOLD_EXCEEDED, "", "", null, null, "", "",
+                "", Map.of(), CREATED_AT);
+        RiskEvent decodedEmpty = codec.decodeEvent(codec.encodeEvent(empty));
+        assertSameEvent(empty, decodedEmpty);
+        assertEquals(Map.of(), decodedEmpty.getDetails());
+    }
+
+    @Test
+    void readsLegacyJsonPayloads() {
+        SessionRecord record = SessionRecord.restore("s-5", "bob", JA4, OTHER_JA4, "ua", "10.0.0.2",
+                Map.of("screen", "1920x1080"), CREATED_AT, CREATED_AT + 1_000, SessionStatus.ACTIVE);
+        RiskEvent event = RiskEvent.restore(RiskEventType.SESSION_TERMINATED, "s-5", "bob", JA4, null,
+                "10.0.0.2", "ua", "terminated", Map.of("reason", "cap"), CREATED_AT);
+        JsonSessionCodec json = new JsonSessionCodec();
+        byte[] sessionJson = json.encodeSession(record);
+        byte[] eventJson = json.encodeEvent(event);
+        assertEquals('{', sessionJson[0]);
+        assertEquals('{', eventJson[0]);
+
+        BinarySessionCodec codec = new BinarySessionCodec();
+        assertSameRecord(record, codec.decodeSession(sessionJson));
+        assertSameEvent(event, codec.decodeEvent(eventJson));
+        // a dictionary codec reads them the same way
+        assertSameRecord(record, new BinarySessionCodec(new LocalFingerprintDictionary(16)).decodeSession(sessionJson));
+    }
+
+    @Test
+    void dictionaryVersionWritesIdsAndRoundTrips() {
+        LocalFingerprintDictionary dictionary = new LocalFingerprintDictionary(16);
+        BinarySessionCodec codec = new BinarySessionCodec(dictionary);
+        SessionRecord shared = SessionRecord.restore("s-6", "carol", JA4, JA4, "ua", "10.0.0.3", Map.of(),
+                CREATED_AT, CREATED_AT + 10, SessionStatus.ACTIVE);
+        SessionRecord distinct = SessionRecord.restore("s-7", "carol", JA4, OTHER_JA4, "ua", "10.0.0.3", Map.of(),
+                CREATED_AT, CREATED_AT + 10, SessionStatus.ACTIVE);
+
+        byte[] sharedPayload = codec.encodeSession(shared);
+        byte[] distinctPayload = codec.encodeSession(distinct);
+
+        assertEquals(BinarySessionCodec.DICTIONARY_FORMAT_VERSION, sharedPayload[0]);
+        // only the server-derived fingerprint is assigned an id; the client one is inlined
+        assertEquals(1, dictionary.size());
+        assertTrue(sharedPayload.length + JA4.length() < new BinarySessionCodec().encodeSession(shared).length);
+        assertTrue(distinctPayload.length > sharedPayload.length + OTHER_JA4.length());
+        assertSameRecord(shared, codec.decodeSession(sharedPayload));
+        assertSameRecord(distinct, codec.decodeSession(distinctPayload));
+    }
+
+    @Test
+    void dictionaryCodecReadsVersionOnePayloads() {
+        SessionRecord record = SessionRecord.restore("s-8", "dave", JA4, OTHER_JA4, "ua", "10.0.0.4", null,
+                CREATED_AT, CREATED_AT, SessionStatus.ACTIVE);
+        byte[] payload = new BinarySessionCodec().encodeSession(record);
+
+        assertSameRecord(record, new BinarySessionCodec(new LocalFingerprintDictionary(16)).decodeSession(payload));
+    }
+
+    @Test
+    void dictionaryEventsKeepFingerprintsInline() {
+        LocalFingerprintDictionary dictionary = new LocalFingerprintDictionary(16);
+        RiskEvent event = RiskEvent.restore(RiskEventType.JA4_MISMATCH, "s-9", "erin", JA4, OTHER_JA4,
+                "10.0.0.5", "ua", "mismatch", Map.of(), CREATED_AT);
+
+        byte[] payload = new BinarySessionCodec(dictionary).encodeEvent(event);
+
+        assertEquals(0, dictionary.size());
+        // readable without the dictionary that wrote it
+        assertSameEvent(event, new BinarySessionCodec(new LocalFingerprintDictionary(16)).decodeEvent(payload));
+    }
+
+    @Test
+    void rejectsDictionaryIdsWithoutDictionary() {
+        SessionRecord record = SessionRecord.restore("s-10", "frank", JA4, JA4, "ua", "10.0.0.6", Map.of(),
+                CREATED_AT, CREATED_AT, SessionStatus.ACTIVE);
+        byte[] payload = new BinarySessionCodec(new LocalFingerprintDictionary(16)).encodeSession(record);
+
+        assertThrows(IllegalArgumentException.class, () -> new BinarySessionCodec().decodeSession(payload));
+        // an id the reading dictionary never assigned
+        assertThrows(IllegalArgumentException.class,
+                () -> new BinarySessionCodec(new LocalFingerprintDictionary(16)).decodeSession(payload));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        SessionRecord record = SessionRecord.restore("s-11", "grace", JA4, JA4, "ua", "10.0.0.7", Map.of(),
+                CREATED_AT, CREATED_AT, SessionStatus.ACTIVE);
+        BinarySessionCodec codec = new BinarySessionCodec();
+        byte[] session = codec.encodeSession(record);
+        byte[] event = codec.encodeEvent(RiskEvent.restore(RiskEventType.JA4_MISMATCH, "s-11", "grace", JA4, JA4,
+                "10.0.0.7", "ua", "m", Map.of(), CREATED_AT));
+        session[0] = 9;
+        event[0] = 0;
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeSession(session));
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeEvent(event));
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        SessionRecord record = SessionRecord.restore("s-12", "heidi", JA4, OTHER_JA4, "ua", "10.0.0.8",
+                Map.of("k", "v"), CREATED_AT, CREATED_AT + 1, SessionStatus.ACTIVE);
+        RiskEvent event = RiskEvent.restore(RiskEventType.JA4_MISMATCH, "s-12", "heidi", JA4, OTHER_JA4,
+                "10.0.0.8", "ua", "m", Map.of("k", "v"), CREATED_AT);
+        LocalFingerprintDictionary dictionary = new LocalFingerprintDictionary(16);
+        for (BinarySessionCodec codec : new BinarySessionCodec[] {
+                new BinarySessionCodec(), new BinarySessionCodec(dictionary)}) {
+            byte[] session = codec.encodeSession(record);
+            byte[] encodedEvent = codec.encodeEvent(event);
+            for (int length = 0; length < session.length; length++) {
+                byte[] truncated = Arrays.copyOf(session, length);
+                assertThrows(IllegalArgumentException.class, () -> codec.decodeSession(truncated),
+                        "session cut at " + length);
+            }
+            for (int length = 0; length < encodedEvent.length; length++) {
+                byte[] truncated = Arrays.copyOf(encodedEvent, length);
+                assertThrows(IllegalArgumentException.class, () -> codec.decodeEvent(truncated),
+                        "event cut at " + length);
+            }
+        }
+    }
+
+    private static void assertSameRecord(SessionRecord expected, SessionRecord actual) {
+        assertEquals(expected.getSessionId(), actual.getSessionId());
+        assertEquals(expected.getUser(), actual.getUser());
+        assertEquals(expected.getJa4Fingerprint(), actual.getJa4Fingerprint());
+        assertEquals(expected.getClientFingerprint(), actual.getClientFingerprint());
+        assertEquals(expected.getUserAgent(), actual.getUserAgent());
+        assertEquals(expected.getIpAddress(), actual.getIpAddress());
+        assertEquals(expected.getClientSignals(), actual.getClientSignals());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getLastSeenAt(), actual.getLastSeenAt());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+
+    private static void assertSameEvent(RiskEvent expected, RiskEvent actual) {
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getSessionId(), actual.getSessionId());
+        assertEquals(expected.getUser(), actual.getUser());
+        assertEquals(expected.getJa4Fingerprint(), actual.getJa4Fingerprint());
+        assertEquals(expected.getClientFingerprint(), actual.getClientFingerprint());
+        assertEquals(expected.getIpAddress(), actual.getIpAddress());
+        assertEquals(expected.getUserAgent(), actual.getUserAgent());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getDetails(), actual.getDetails());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerSessionStoreTest {
+    private static final Duration BUDGET = Duration.ofMillis(50);
+    private static final Duration OPEN = Duration.ofMillis(100);
+    private static final int THRESHOLD = 3;
+
+    private final FakeStore delegate = new FakeStore();
+
+    @BeforeEach
+    void routeOutageEventsToTheFake() {
+        // closing the breaker records a REDIS_UNAVAILABLE event through the repository
+        SessionSecurityRepository.configure(delegate);
+    }
+
+    @AfterEach
+    void resetRepository() {
+        SessionSecurityRepository.configure(null);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndStopsCallingTheDelegate() {
+        CircuitBreakerSessionStore breaker = breaker(StoreDegradedPolicy.FAIL_CLOSED);
+        delegate.failure = new IllegalStateException("connection refused");
+
+        for (int i = 0; i < THRESHOLD; i++) {
+            assertEquals(CircuitBreakerSessionStore.State.CLOSED, breaker.getState());
+            assertThrows(SessionStoreUnavailableException.class, () -> breaker.load("s-1"));
+        }
+
+        assertEquals(CircuitBreakerSessionStore.State.OPEN, breaker.getState());
+        assertEquals(THRESHOLD, delegate.calls);
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.load("s-1"));
+        assertEquals(THRESHOLD, delegate.calls);
+        assertEquals(1, breaker.getRejectedCalls());
+        assertEquals(THRESHOLD, breaker.getFailedCalls());
+        assertEquals(1, breaker.getOpenTransitions());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreakerSessionStore breaker = breaker(StoreDegradedPolicy.FAIL_OPEN);
+        for (int round = 0; round < 3; round++) {
+            delegate.failure = new IllegalStateException("timeout");
+            for (int i = 0; i < THRESHOLD - 1; i++) {
+                breaker.load("s-1");
+            }
+            delegate.failure = null;
+            breaker.load("s-1");
+        }
+
+        assertEquals(CircuitBreakerSessionStore.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void trialSuccessClosesTheCircuitAndRecordsTheOutage() throws InterruptedException {
+        CircuitBreakerSessionStore breaker = openBreaker(StoreDegradedPolicy.FAIL_CLOSED);
+        delegate.failure = null;
+        delegate.records.put("s-1", record("s-1"));
+        Thread.sleep(OPEN.toMillis() + 20);
+
+        assertNotNull(breaker.load("s-1"));
+
+        assertEquals(CircuitBreakerSessionStore.State.CLOSED, breaker.getState());
+        assertEquals(1, delegate.events.size());
+        assertEquals(RiskEventType.REDIS_UNAVAILABLE, delegate.events.get(0).getType());
+        assertEquals("FAIL_CLOSED", delegate.events.get(0).getDetails().get("policy"));
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() throws InterruptedException {
+        CircuitBreakerSessionStore breaker = openBreaker(StoreDegradedPolicy.FAIL_CLOSED);
+        Thread.sleep(OPEN.toMillis() + 20);
+        int callsBefore = delegate.calls;
+
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.load("s-1"));
+
+        assertEquals(callsBefore + 1, delegate.calls);
+        assertEquals(CircuitBreakerSessionStore.State.OPEN, breaker.getState());
+        // the open period starts over, so the next call is rejected without a trial
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.load("s-1"));
+        assertEquals(callsBefore + 1, delegate.calls);
+    }
+
+    @Test
+    void errorInATrialStillReleasesThePermit() throws InterruptedException {
+        CircuitBreakerSessionStore breaker = openBreaker(StoreDegradedPolicy.FAIL_CLOSED);
+        delegate.failure = null;
+        delegate.error = new StackOverflowError();
+        Thread.sleep(OPEN.toMillis() + 20);
+
+        assertThrows(StackOverflowError.class, () -> breaker.load("s-1"));
+        assertEquals(CircuitBreakerSessionStore.State.OPEN, breaker.getState());
+
+        delegate.error = null;
+        delegate.records.put("s-1", record("s-1"));
+        Thread.sleep(OPEN.toMillis() + 20);
+        assertNotNull(breaker.load("s-1"));
+        assertEquals(CircuitBreakerSessionStore.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void slowSuccessCountsAsAFailureButReturnsItsResult() {
+        CircuitBreakerSessionStore breaker = breaker(StoreDegradedPolicy.FAIL_CLOSED);
+        SessionRecord stored = record("s-1");
+        delegate.records.put("s-1", stored);
+        delegate.delayMillis = BUDGET.toMillis() * 2;
+
+        for (int i = 0; i < THRESHOLD; i++) {
+            assertSame(stored, breaker.load("s-1"));
+        }
+
+        assertEquals(THRESHOLD, breaker.getSlowCalls());
+        assertEquals(0, breaker.getFailedCalls());
+        assertEquals(CircuitBreakerSessionStore.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void failOpenAnswersUnknownInsteadOfMissing() {
+        CircuitBreakerSessionStore breaker = openBreaker(StoreDegradedPolicy.FAIL_OPEN);
+
+        SessionValidationResult validation = breaker.validateAndTouch("s-1", "alice", "10.0.0.1", "ua", Instant.now());
+        SessionValidationResult peek = breaker.peek("s-1");
+
+        assertTrue(validation.isUnknown());
+        assertFalse(validation.isPresent());
+        assertTrue(peek.isUnknown());
+        assertNull(breaker.load("s-1"));
+        breaker.save(record("s-2"));
+        breaker.delete("s-2");
+    }
+
+    @Test
+    void failClosedRejectsEveryCall() {
+        CircuitBreakerSessionStore breaker = openBreaker(StoreDegradedPolicy.FAIL_CLOSED);
+
+        assertThrows(SessionStoreUnavailableException.class,
+                () -> breaker.validateAndTouch("s-1", "alice", "10.0.0.1", "ua", Instant.now()));
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.peek("s-1"));
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.save(record("s-2")));
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.create(record("s-3"), 1));
+    }
+
+    @Test
+    void localSnapshotServesKnownSessionsAndRejectsMisses() {
+        CircuitBreakerSessionStore breaker = breaker(StoreDegradedPolicy.LOCAL_SNAPSHOT);
+        SessionRecord known = record("known");
+        breaker.save(known);
+        open(breaker);
+        Instant now = Instant.now().plusSeconds(30);
+
+        SessionValidationResult validation = breaker.validateAndTouch("known", "alice", "10.0.0.9", "ua", now);
+
+        assertTrue(validation.isPresent());
+        assertFalse(validation.isUnknown());
+        assertEquals(now.toEpochMilli(), validation.getRecord().getLastSeenAt().toEpochMilli());
+        assertTrue(breaker.peek("known").isPresent());
+        // a miss is not evidence the session is gone: the filter turns this into 503 with Retry-After
+        assertThrows(SessionStoreUnavailableException.class,
+                () -> breaker.validateAndTouch("unknown", "alice", "10.0.0.9", "ua", now));
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.peek("unknown"));
+        assertThrows(SessionStoreUnavailableException.class, () -> breaker.load("unknown"));
+    }
+
+    @Test
+    void riskEventsAreDroppedWhileOpen() {
+        CircuitBreakerSessionStore breaker = openBreaker(StoreDegradedPolicy.FAIL_CLOSED);
+
+        breaker.appendEvents(List.of(RiskEvent.create(RiskEventType.JA4_MISMATCH, null, null, null, "m", null)));
+
+        assertEquals(1, breaker.getDroppedEvents());
+        assertTrue(delegate.events.isEmpty());
+    }
+
+    private CircuitBreakerSessionStore breaker(StoreDegradedPolicy policy) {
+        return new CircuitBreakerSessionStore(delegate, BUDGET, THRESHOLD, OPEN, policy, 100, Duration.ofMinutes(5));
+    }
+
+    private CircuitBreakerSessionStore openBreaker(StoreDegradedPolicy policy) {
+        CircuitBreakerSessionStore breaker = breaker(policy);
+        open(breaker);
+        return breaker;
+    }
+
+    private void open(CircuitBreakerSessionStore breaker) {
+        delegate.failure = new IllegalStateException("connection refused");
+        for (int i = 0; i < THRESHOLD; i++) {
+            try {
+                breaker.load("probe");
+            } catch (SessionStoreUnavailableException expected) {
+                // FAIL_CLOSED and a snapshot miss surface the failure; the breaker counts it either way
+            }
+        }
+        assertEquals(CircuitBreakerSessionStore.State.OPEN, breaker.getState());
+    }
+
+    private static SessionRecord record(String sessionId) {
+        return SessionRecord.create(sessionId, "alice", "t13d1516h2_8daaf6152771_e5627efa2ab1", null, "ua",
+                "10.0.0.1", Map.of());
+    }
+
+    private static final class FakeStore implements SessionStore {
+        private final Map<String, SessionRecord> records = new ConcurrentHashMap<>();
+        private final List<RiskEvent> events = new ArrayList<>();
+        private volatile RuntimeException failure;
+        private volatile Error error;
+        private volatile long delayMillis;
+        private int calls;
+
+        private void enter() {
+            calls++;
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void save(SessionRecord record) {
+            enter();
+            records.put(record.getSessionId(), record);
+        }
+
+        @Override
+        public SessionRecord load(String sessionId) {
+            enter();
+            return records.get(sessionId);
+        }
+
+        @Override
+        public void refresh(SessionRecord record) {
+            save(record);
+        }
+
+        @Override
+        public SessionValidationResult validateAndTouch(String sessionId,
+                                                        String currentIp,
+                                                        String currentUserAgent,
+                                                        Instant now) {
+            enter();
+            SessionRecord record = records.get(sessionId);
+            if (record != null) {
+                record.touch(now, currentIp, currentUserAgent);
+            }
+            return SessionValidationResult.of(record, false);
+        }
+
+        @Override
+        public void delete(String sessionId) {
+            enter();
+            records.remove(sessionId);
+        }
+
+        @Override
+        public void appendEvents(List<RiskEvent> batch) {
+            events.addAll(batch);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Drives advance() directly with a 1 ms tick starting at 0, so deadlines are tick numbers and no
+// ticker thread is involved. Levels cover 64, 64^2, 64^3 and 64^4 ticks.
+class HierarchicalTimingWheelTest {
+    private static final long MAX_DELTA = (1L << 24) - 1;
+
+    private final List<Node> expired = new ArrayList<>();
+    private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 0,
+            timeout -> expired.add((Node) timeout));
+
+    @Test
+    void expiresOnItsDeadlineTick() {
+        Node node = schedule("a", 10);
+
+        assertEquals(0, wheel.advance(9));
+        assertEquals(1, wheel.advance(10));
+        assertEquals(List.of(node), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        wheel.advance(100);
+        Node node = schedule("late", 50);
+
+        assertEquals(1, wheel.advance(101));
+        assertEquals(List.of(node), expired);
+    }
+
+    @Test
+    void cascadesFromEveryLevel() {
+        // last slot of level 0, first of level 1, boundary of level 2, and deep in level 3
+        long[] deadlines = {63, 64, 4_095, 4_096, 262_143, 262_144, 262_144 + 64 * 64 + 5, 5_000_000};
+        List<Node> nodes = new ArrayList<>();
+        for (long deadline : deadlines) {
+            nodes.add(schedule("d" + deadline, deadline));
+        }
+        assertEquals(deadlines.length, wheel.size());
+
+        for (int i = 0; i < deadlines.length; i++) {
+            assertEquals(0, wheel.advance(deadlines[i] - 1), "early for " + deadlines[i]);
+            assertEquals(1, wheel.advance(deadlines[i]), "on time for " + deadlines[i]);
+            assertEquals(nodes.get(i), expired.get(expired.size() - 1));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void extendIsPickedUpWhenTheOldBucketFires() {
+        Node node = schedule("a", 10);
+
+        wheel.extend(node, 100);
+        assertEquals(100, node.getDeadline());
+        // the node still sits in its old bucket; firing it re-inserts instead of expiring
+        assertEquals(0, wheel.advance(10));
+        assertEquals(1, wheel.size());
+        assertEquals(0, wheel.advance(99));
+        assertEquals(1, wheel.advance(100));
+        assertEquals(List.of(node), expired);
+    }
+
+    @Test
+    void extendToAnEarlierDeadlineReschedules() {
+        Node node = schedule("a", 1_000);
+
+        wheel.extend(node, 20);
+
+        assertEquals(1, wheel.advance(20));
+        assertEquals(List.of(node), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void scheduleMovesAnAlreadyScheduledTimeout() {
+        Node node = schedule("a", 500);
+
+        wheel.schedule(node, 30);
+
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(30));
+        assertEquals(0, wheel.advance(600));
+        assertEquals(List.of(node), expired);
+    }
+
+    @Test
+    void cancelRemovesOnlyThatTimeout() {
+        Node first = schedule("a", 10);
+        Node second = schedule("b", 10);
+        Node third = schedule("c", 10);
+
+        wheel.cancel(second);
+        wheel.cancel(second);
+
+        assertEquals(2, wheel.size());
+        assertEquals(2, wheel.advance(10));
+        assertTrue(expired.containsAll(List.of(first, third)));
+        assertEquals(2, expired.size());
+        // cancelling after expiry is a no-op
+        wheel.cancel(first);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void clampsDeadlinesBeyondTheWheelRange() {
+        long deadline = MAX_DELTA + 1_000;
+        Node node = schedule("far", deadline);
+
+        // parked in the last reachable slot, then re-inserted with the remaining delta
+        assertEquals(0, wheel.advance(MAX_DELTA));
+        assertEquals(1, wheel.size());
+        assertEquals(0, wheel.advance(deadline - 1));
+        assertEquals(1, wheel.advance(deadline));
+        assertEquals(List.of(node), expired);
+    }
+
+    private Node schedule(String name, long deadline) {
+        Node node = new Node(name);
+        wheel.schedule(node, deadline);
+        return node;
+    }
+
+    private static final class Node extends HierarchicalTimingWheel.Timeout {
+        private final String name;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import org.junit.jupiter.api.Test;
+
+// Known answers for real ClientHello records. The expected strings were computed independently
+// from the JA4 specification over the same bytes, not with this parser.
+class Ja4ClientHelloParserTest {
+    // JDK 17 SSLEngine client, SNI example.com, ALPN h2 and http/1.1
+    private static final String JDK_CLIENT_HELLO = """
+            16030301f1010001ed0303deb104457a567aaf555a2f7b8e3668604301d20f6fb0f530b249f7c41407b772203322350d
+            08cb63899cef644bd96c2e0102d10bec591b063bc7d45e3937232c910062130213011303c02cc02bcca9c030cca8c02f
+            009fccaa00a3009e00a2c024c028c023c027006b006a00670040c02ec032c02dc031c026c02ac025c029c00ac014c009
+            c0130039003800330032c005c00fc004c00e009d009c003d003c0035002f00ff0100014200000010000e00000b657861
+            6d706c652e636f6d000500050100000000000a00160014001d001700180019001e01000101010201030104000b000201
+            000010000e000c02683208687474702f312e31001100090007020004000000000017000000230000000d002c002a0403
+            05030603080708080804080508060809080a080b0401050106010402030303010302020302010202002b000504030403
+            03002d000201010032002c002a040305030603080708080804080508060809080a080b04010501060104020303030103
+            020203020102020033006b0069001d0020ec09d85b51a4b0c60d5f0ded36e255bdf68388692e085808c4103484ae9488
+            0200170041044d32f16ee8a13f2e17cdcb8bc509a3458e3a79159c917d592339ecdaec21ccec1e330a7fa7a5012109f8
+            5a2013ee76805748f3dacc62f6e89e0b4d4a4ff2a4d6
+            """;
+    private static final String JDK_JA4 = "t13d4913h2_bd868743f55c_7c76daad20ec";
+
+    // OpenSSL 3.0 s_client, SNI api.example.org, ALPN http/1.1
+    private static final String OPENSSL_CLIENT_HELLO = """
+            160301014b010001470303973fc0bca53343df9f9c83819c8061330849cf434619af1fbcc041fddd68d1152043ffc049
+            696ea1ab442462e6a3d5b46881f4077373cf7a5397ae2ac44cb3ef3e003e130213031301c02cc030009fcca9cca8ccaa
+            c02bc02f009ec024c028006bc023c0270067c00ac0140039c009c0130033009d009c003d003c0035002f00ff010000c0
+            00000014001200000f6170692e6578616d706c652e6f7267000b000403000102000a00160014001d0017001e00190018
+            01000101010201030104002300000010000b000908687474702f312e310016000000170000000d002a00280403050306
+            03080708080809080a080b080408050806040105010601030303010302040205020602002b0009080304030303020301
+            002d00020101003300260024001d0020dc84f1500c6c4761c777d945e422c4d36b435dd9b896ca6a7069d44081faae02
+            """;
+    private static final String OPENSSL_JA4 = "t13d3111h1_e8f1e7e78f70_1f22a2ca17c4";
+
+    @Test
+    void computesReferenceFingerprintFromTlsRecord() {
+        assertEquals(JDK_JA4, Ja4ClientHelloParser.compute(ByteBuffer.wrap(bytes(JDK_CLIENT_HELLO))));
+        assertEquals(OPENSSL_JA4, Ja4ClientHelloParser.compute(ByteBuffer.wrap(bytes(OPENSSL_CLIENT_HELLO))));
+    }
+
+    @Test
+    void acceptsBareHandshakeMessage() {
+        byte[] record = bytes(JDK_CLIENT_HELLO);
+        byte[] handshake = Arrays.copyOfRange(record, 5, record.length);
+        assertEquals(JDK_JA4, Ja4ClientHelloParser.compute(ByteBuffer.wrap(handshake)));
+    }
+
+    @Test
+    void leavesBufferPositionUntouched() {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes(OPENSSL_CLIENT_HELLO));
+        Ja4ClientHelloParser.compute(buffer);
+        assertEquals(0, buffer.position());
+        assertEquals(buffer.capacity(), buffer.limit());
+    }
+
+    @Test
+    void rejectsTruncatedRecord() {
+        byte[] record = bytes(JDK_CLIENT_HELLO);
+        assertNull(Ja4ClientHelloParser.compute(ByteBuffer.wrap(Arrays.copyOf(record, record.length / 2))));
+    }
+
+    private static byte[] bytes(String hex) {
+        return HexFormat.of().parseHex(hex.replaceAll("\\s", ""));
+    }
+}
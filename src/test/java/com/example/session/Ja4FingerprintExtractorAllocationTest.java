@@ -0,0 +1,118 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+// Guards the per-request allocation budget of the extractor, which runs on every protected request.
+class Ja4FingerprintExtractorAllocationTest {
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int MEASURED_CALLS = 20_000;
+    // the header path hands back the container's string as is
+    private static final long HEADER_PATH_BYTES_PER_CALL = 16;
+    // the fallback path allocates only the 64-character hex result
+    private static final long FALLBACK_PATH_BYTES_PER_CALL = 160;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters are not available on this JVM");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "per-thread allocation counters are not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void headerFingerprintDoesNotAllocate() {
+        HttpServletRequest request = new StubRequest("10.0.0.1")
+                .header("X-JA4", "t13d1516h2_8daaf6152771_02713d6af862");
+        assertEquals("t13d1516h2_8daaf6152771_02713d6af862", Ja4FingerprintExtractor.extract(request));
+
+        long perCall = bytesPerCall(request);
+        assertTrue(perCall <= HEADER_PATH_BYTES_PER_CALL,
+                "header path allocated " + perCall + " bytes per call");
+    }
+
+    @Test
+    void fallbackFingerprintAllocatesOnlyTheResult() {
+        HttpServletRequest request = new StubRequest("10.0.0.1")
+                .header("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36");
+        String fingerprint = Ja4FingerprintExtractor.extract(request);
+        assertEquals(64, fingerprint.length());
+        assertEquals(fingerprint, Ja4FingerprintExtractor.extract(request));
+
+        long perCall = bytesPerCall(request);
+        assertTrue(perCall <= FALLBACK_PATH_BYTES_PER_CALL,
+                "fallback path allocated " + perCall + " bytes per call");
+    }
+
+    private static long bytesPerCall(HttpServletRequest request) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sink += Ja4FingerprintExtractor.extract(request).length();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sink += Ja4FingerprintExtractor.extract(request).length();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(sink > 0);
+        return allocated / MEASURED_CALLS;
+    }
+
+    // Answers the handful of calls the extractor makes without allocating; anything else fails.
+    private static final class StubRequest extends HttpServletRequestWrapper {
+        private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final String remoteAddr;
+
+        private StubRequest(String remoteAddr) {
+            super((HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                        throw new UnsupportedOperationException(method.getName());
+                    }));
+            this.remoteAddr = remoteAddr;
+        }
+
+        private StubRequest header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return remoteAddr;
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public String getRequestURI() {
+            return "/api/profile";
+        }
+    }
+}
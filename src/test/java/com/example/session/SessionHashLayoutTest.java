@@ -0,0 +1,208 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SessionHashLayoutTest {
+    private static final String JA4 = "t13d1516h2_8daaf6152771_e5627efa2ab1";
+    private static final Map<Integer, String> FIELD_NAMES = new LinkedHashMap<>();
+
+    static {
+        FIELD_NAMES.put(SessionRecord.FIELD_USER, SessionHashLayout.USER);
+        FIELD_NAMES.put(SessionRecord.FIELD_JA4_FINGERPRINT, SessionHashLayout.JA4_FINGERPRINT);
+        FIELD_NAMES.put(SessionRecord.FIELD_CLIENT_FINGERPRINT, SessionHashLayout.CLIENT_FINGERPRINT);
+        FIELD_NAMES.put(SessionRecord.FIELD_USER_AGENT, SessionHashLayout.USER_AGENT);
+        FIELD_NAMES.put(SessionRecord.FIELD_IP_ADDRESS, SessionHashLayout.IP_ADDRESS);
+        FIELD_NAMES.put(SessionRecord.FIELD_CLIENT_SIGNALS, SessionHashLayout.CLIENT_SIGNALS);
+        FIELD_NAMES.put(SessionRecord.FIELD_CREATED_AT, SessionHashLayout.CREATED_AT);
+        FIELD_NAMES.put(SessionRecord.FIELD_LAST_SEEN_AT, SessionHashLayout.LAST_SEEN_AT);
+        FIELD_NAMES.put(SessionRecord.FIELD_STATUS, SessionHashLayout.STATUS);
+    }
+
+    @Test
+    void encodeWritesExactlyTheRequestedFields() {
+        SessionRecord record = record();
+        for (int fields = 0; fields <= SessionRecord.ALL_FIELDS; fields++) {
+            Map<String, String> encoded = toMap(SessionHashLayout.encode(record, fields));
+            assertEquals(expectedNames(fields), encoded.keySet(), "fields " + Integer.toBinaryString(fields));
+        }
+        assertEquals(FIELD_NAMES.size() * 2, SessionHashLayout.encode(record, SessionRecord.ALL_FIELDS).size());
+    }
+
+    @Test
+    void encodeLeavesNullValuesOut() {
+        SessionRecord record = SessionRecord.restore("s-1", "alice", JA4, null, null, null, null,
+                1_000, 2_000, null);
+
+        Map<String, String> encoded = toMap(SessionHashLayout.encode(record, SessionRecord.ALL_FIELDS));
+
+        assertEquals(Set.of(SessionHashLayout.USER, SessionHashLayout.JA4_FINGERPRINT, SessionHashLayout.CREATED_AT,
+                SessionHashLayout.LAST_SEEN_AT), encoded.keySet());
+    }
+
+    @Test
+    void fullEncodeRoundTrips() {
+        SessionRecord record = record();
+
+        SessionRecord decoded = SessionHashLayout.decode("s-1",
+                toMap(SessionHashLayout.encode(record, SessionRecord.ALL_FIELDS)));
+
+        assertSameRecord(record, decoded);
+        assertFalse(decoded.isPartial());
+    }
+
+    @Test
+    void dirtySubsetOverlaidOnTheStoredHashMatchesTheRecord() {
+        SessionRecord record = record();
+        Map<String, String> hash = toMap(SessionHashLayout.encode(record, SessionRecord.ALL_FIELDS));
+        record.markPersisted();
+        record.touch(Instant.now().plusSeconds(60), "10.0.0.2", "curl/8.0");
+        record.setStatus(SessionStatus.CHALLENGE_REQUIRED);
+
+        List<String> update = SessionHashLayout.encode(record, record.getDirtyFields());
+        hash.putAll(toMap(update));
+
+        assertEquals(Set.of(SessionHashLayout.LAST_SEEN_AT, SessionHashLayout.IP_ADDRESS,
+                SessionHashLayout.USER_AGENT, SessionHashLayout.STATUS), toMap(update).keySet());
+        assertSameRecord(record, SessionHashLayout.decode("s-1", hash));
+    }
+
+    @Test
+    void decodeReturnsNullForAMissingHash() {
+        assertNull(SessionHashLayout.decode("s-1", null));
+        assertNull(SessionHashLayout.decode("s-1", Map.of()));
+        assertNull(SessionHashLayout.decodePartial("s-1", null));
+        assertNull(SessionHashLayout.decodePartial("s-1",
+                new ArrayList<>(Collections.nCopies(SessionHashLayout.VALIDATION_FIELDS.length, null))));
+    }
+
+    @Test
+    void decodePartialReadsOnlyTheValidationFields() {
+        SessionRecord record = record();
+        Map<String, String> hash = toMap(SessionHashLayout.encode(record, SessionRecord.ALL_FIELDS));
+
+        SessionRecord partial = SessionHashLayout.decodePartial("s-1", hmget(hash));
+
+        assertTrue(partial.isPartial());
+        assertEquals(record.getUser(), partial.getUser());
+        assertEquals(record.getJa4Fingerprint(), partial.getJa4Fingerprint());
+        assertEquals(record.getClientFingerprint(), partial.getClientFingerprint());
+        assertEquals(record.getUserAgent(), partial.getUserAgent());
+        assertEquals(record.getIpAddress(), partial.getIpAddress());
+        assertEquals(record.getLastSeenAt(), partial.getLastSeenAt());
+        assertEquals(record.getStatus(), partial.getStatus());
+        assertNull(partial.getClientSignals());
+        assertEquals(0, partial.getCreatedAt().toEpochMilli());
+    }
+
+    @Test
+    void unpersistedFullRecordReplacesTheHash() {
+        List<String> args = RedisSessionStore.writeFieldsArgs(record());
+
+        assertEquals("1", args.get(1));
+        assertEquals(expectedNames(SessionRecord.ALL_FIELDS), toMap(args.subList(2, args.size())).keySet());
+    }
+
+    @Test
+    void persistedRecordUpdatesOnlyItsDirtyFields() {
+        SessionRecord record = record();
+        record.markPersisted();
+        record.touch(Instant.now().plusSeconds(1), "10.0.0.1", "ua");
+
+        List<String> args = RedisSessionStore.writeFieldsArgs(record);
+
+        assertEquals("0", args.get(1));
+        assertEquals(Set.of(SessionHashLayout.LAST_SEEN_AT), toMap(args.subList(2, args.size())).keySet());
+    }
+
+    @Test
+    void partialRecordNeverTakesTheReplacePath() {
+        // replace is DEL + HSET, which would drop the signals and creation time a partial record lacks
+        Map<String, String> hash = toMap(SessionHashLayout.encode(record(), SessionRecord.ALL_FIELDS));
+        SessionRecord partial = SessionHashLayout.decodePartial("s-1", hmget(hash));
+
+        // as decoded, before the store marks it persisted
+        assertEquals(SessionRecord.ALL_FIELDS, partial.getDirtyFields());
+        assertNoReplaceOfUnloadedFields(RedisSessionStore.writeFieldsArgs(partial));
+
+        partial.markPersisted();
+        partial.touch(Instant.now().plusSeconds(1), "10.0.0.3", "ua");
+        assertNoReplaceOfUnloadedFields(RedisSessionStore.writeFieldsArgs(partial));
+
+        partial.markAllDirty();
+        List<String> args = RedisSessionStore.writeFieldsArgs(partial);
+        assertNoReplaceOfUnloadedFields(args);
+
+        // overlaying the update keeps what the partial read never saw
+        hash.putAll(toMap(args.subList(2, args.size())));
+        SessionRecord stored = SessionHashLayout.decode("s-1", hash);
+        assertEquals(record().getClientSignals(), stored.getClientSignals());
+        assertEquals("10.0.0.3", stored.getIpAddress());
+    }
+
+    private static void assertNoReplaceOfUnloadedFields(List<String> args) {
+        assertEquals("0", args.get(1));
+        Set<String> written = toMap(args.subList(2, args.size())).keySet();
+        assertFalse(written.contains(SessionHashLayout.CLIENT_SIGNALS));
+        assertFalse(written.contains(SessionHashLayout.CREATED_AT));
+    }
+
+    private static Set<String> expectedNames(int fields) {
+        Set<String> names = new HashSet<>();
+        for (Map.Entry<Integer, String> entry : FIELD_NAMES.entrySet()) {
+            if ((fields & entry.getKey()) != 0) {
+                names.add(entry.getValue());
+            }
+        }
+        return names;
+    }
+
+    private static List<String> hmget(Map<String, String> hash) {
+        List<String> values = new ArrayList<>();
+        for (String field : SessionHashLayout.VALIDATION_FIELDS) {
+            values.add(hash.get(field));
+        }
+        return values;
+    }
+
+    private static Map<String, String> toMap(List<String> pairs) {
+        assertEquals(0, pairs.size() % 2);
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < pairs.size(); i += 2) {
+            map.put(pairs.get(i), pairs.get(i + 1));
+        }
+        return map;
+    }
+
+    private static SessionRecord record() {
+        return SessionRecord.restore("s-1", "alice", JA4, "client-fp", "ua", "10.0.0.1",
+                Map.of("timezone", "UTC", "screen", "1920x1080"), 1_700_000_000_000L, 1_700_000_060_000L,
+                SessionStatus.ACTIVE);
+    }
+
+    private static void assertSameRecord(SessionRecord expected, SessionRecord actual) {
+        assertEquals(expected.getSessionId(), actual.getSessionId());
+        assertEquals(expected.getUser(), actual.getUser());
+        assertEquals(expected.getJa4Fingerprint(), actual.getJa4Fingerprint());
+        assertEquals(expected.getClientFingerprint(), actual.getClientFingerprint());
+        assertEquals(expected.getUserAgent(), actual.getUserAgent());
+        assertEquals(expected.getIpAddress(), actual.getIpAddress());
+        assertEquals(expected.getClientSignals(), actual.getClientSignals());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getLastSeenAt(), actual.getLastSeenAt());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+// The dirty bits decide which hash fields RedisSessionStore writes back.
+class SessionRecordTest {
+    private static final String JA4 = "t13d1516h2_8daaf6152771_e5627efa2ab1";
+
+    @Test
+    void newRecordIsWrittenInFull() {
+        SessionRecord record = record();
+
+        assertEquals(SessionRecord.ALL_FIELDS, record.getDirtyFields());
+        assertTrue(record.needsPersist(60_000));
+    }
+
+    @Test
+    void markPersistedClearsEveryBit() {
+        SessionRecord record = record();
+
+        record.markPersisted();
+
+        assertEquals(0, record.getDirtyFields());
+        assertFalse(record.hasDirtyAttributes());
+        assertFalse(record.needsPersist(60_000));
+    }
+
+    @Test
+    void touchFromTheSameClientOnlyMarksLastSeen() {
+        SessionRecord record = persisted();
+
+        record.touch(Instant.now().plusSeconds(5), "10.0.0.1", "ua");
+
+        assertEquals(SessionRecord.FIELD_LAST_SEEN_AT, record.getDirtyFields());
+        assertFalse(record.hasDirtyAttributes());
+    }
+
+    @Test
+    void touchMarksChangedAddressAndUserAgent() {
+        SessionRecord ipChange = persisted();
+        ipChange.touch(Instant.now(), "10.0.0.2", "ua");
+        assertEquals(SessionRecord.FIELD_LAST_SEEN_AT | SessionRecord.FIELD_IP_ADDRESS, ipChange.getDirtyFields());
+        assertTrue(ipChange.hasDirtyAttributes());
+
+        SessionRecord uaChange = persisted();
+        uaChange.touch(Instant.now(), "10.0.0.1", "curl/8.0");
+        assertEquals(SessionRecord.FIELD_LAST_SEEN_AT | SessionRecord.FIELD_USER_AGENT, uaChange.getDirtyFields());
+
+        // a request without the header is not a change
+        SessionRecord missing = persisted();
+        missing.touch(Instant.now(), null, null);
+        assertEquals(SessionRecord.FIELD_LAST_SEEN_AT, missing.getDirtyFields());
+        assertEquals("10.0.0.1", missing.getIpAddress());
+    }
+
+    @Test
+    void setStatusMarksOnlyRealChanges() {
+        SessionRecord record = persisted();
+
+        record.setStatus(SessionStatus.ACTIVE);
+        assertEquals(0, record.getDirtyFields());
+
+        record.setStatus(SessionStatus.INVALIDATED);
+        assertEquals(SessionRecord.FIELD_STATUS, record.getDirtyFields());
+        assertTrue(record.needsPersist(Long.MAX_VALUE));
+    }
+
+    @Test
+    void bitsAccumulateUntilPersisted() {
+        SessionRecord record = persisted();
+
+        record.touch(Instant.now(), "10.0.0.2", "ua");
+        record.setStatus(SessionStatus.CHALLENGE_REQUIRED);
+        SessionRecord copy = record.copy();
+
+        int expected = SessionRecord.FIELD_LAST_SEEN_AT | SessionRecord.FIELD_IP_ADDRESS | SessionRecord.FIELD_STATUS;
+        assertEquals(expected, record.getDirtyFields());
+        assertEquals(expected, copy.getDirtyFields());
+        record.markPersisted();
+        assertEquals(0, record.getDirtyFields());
+        assertEquals(expected, copy.getDirtyFields());
+    }
+
+    @Test
+    void markAllDirtyForcesAFullWrite() {
+        SessionRecord record = persisted();
+
+        record.markAllDirty();
+
+        assertEquals(SessionRecord.ALL_FIELDS, record.getDirtyFields());
+    }
+
+    private static SessionRecord record() {
+        return SessionRecord.create("s-1", "alice", JA4, JA4, "ua", "10.0.0.1", Map.of("timezone", "UTC"));
+    }
+
+    private static SessionRecord persisted() {
+        SessionRecord record = record();
+        record.markPersisted();
+        return record;
+    }
+}